@@ -0,0 +1,101 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the generation algorithms on the same maze size and seed. Besides
+ * mazes per second, reports tiles carved per second, and with the gc
+ * profiler gc.alloc.rate.norm gives the bytes each algorithm allocates per
+ * maze: the grid, which is the same for all, plus its working memory.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBenchmark {
+    
+    @Param({"1001"})
+    public int size;
+    
+    @Param({"DEPTH_FIRST", "KRUSKAL", "PRIM", "WILSON", "GROWING_TREE",
+        "SIDEWINDER", "BINARY_TREE"})
+    public String algorithm;
+    
+    private MazeAlgorithm mazeAlgorithm;
+    
+    @Setup
+    public void setUp() {
+        switch (algorithm) {
+            case "DEPTH_FIRST":
+                mazeAlgorithm = new DepthFirstAlgorithm();
+                break;
+            case "KRUSKAL":
+                mazeAlgorithm = new KruskalAlgorithm();
+                break;
+            case "PRIM":
+                mazeAlgorithm = new PrimAlgorithm();
+                break;
+            case "WILSON":
+                mazeAlgorithm = new WilsonAlgorithm();
+                break;
+            case "GROWING_TREE":
+                mazeAlgorithm = new GrowingTreeAlgorithm();
+                break;
+            case "SIDEWINDER":
+                mazeAlgorithm = new SidewinderAlgorithm();
+                break;
+            case "BINARY_TREE":
+                mazeAlgorithm = new BinaryTreeAlgorithm();
+                break;
+            default:
+                throw new IllegalArgumentException(algorithm);
+        }
+    }
+    
+    @Benchmark
+    public Maze generate(Work work) {
+        Maze maze = new Maze(size, size, 1, true, BenchmarkMain.SEED);
+        maze.setMazeAlgorithm(mazeAlgorithm);
+        maze.generateMaze();
+        work.cellsCarved += maze.getMetrics().getCellsCarved();
+        return maze;
+    }
+    
+    
+    /**
+     * Tiles carved, reported as tiles per second next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Work {
+        
+        public long cellsCarved;
+        
+        @Setup(Level.Iteration)
+        public void clear() {
+            cellsCarved = 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding a maze's spanning tree with each coding,
+ * against generating the same maze again from its seed.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    
+    private static final int MAZE_SIZE = 1001;
+    
+    @Param({"RAW", "ARITHMETIC"})
+    public MazeTreeCodec.Coding coding;
+    
+    private Maze maze;
+    private byte[] tree;
+    
+    @Setup
+    public void setUp() {
+        maze = new Maze(MAZE_SIZE, MAZE_SIZE, 1, true, BenchmarkMain.SEED);
+        maze.generateMaze();
+        tree = MazeTreeCodec.encode(maze, coding);
+    }
+    
+    @Benchmark
+    public byte[] encode() {
+        return MazeTreeCodec.encode(maze, coding);
+    }
+    
+    @Benchmark
+    public MazeGrid decode() {
+        MazeGrid grid = new MazeGrid(MAZE_SIZE, MAZE_SIZE);
+        MazeTreeCodec.decode(tree, grid, maze.getStart(), coding);
+        return grid;
+    }
+    
+    @Benchmark
+    public Maze regenerate() {
+        Maze regenerated = new Maze(MAZE_SIZE, MAZE_SIZE, 1, true,
+                BenchmarkMain.SEED);
+        regenerated.generateMaze();
+        return regenerated;
+    }
+}
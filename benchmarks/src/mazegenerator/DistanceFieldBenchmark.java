@@ -0,0 +1,63 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the distance field from the start tile of a generated maze, which
+ * is deep and narrow, and of a grid with no walls, whose levels are wide
+ * enough to expand in parallel.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceFieldBenchmark {
+
+    @Param({"1000", "4000"})
+    public int size;
+
+    private Maze maze;
+    private MazeGrid open;
+
+    @Setup
+    public void setUp() {
+        maze = new Maze(size, size, 1, true, BenchmarkMain.SEED);
+        maze.generateMaze();
+        open = new MazeGrid(size, size);
+        for (int i = 0; i < open.size(); i++) {
+            open.setPath(i, true);
+        }
+    }
+
+    @Benchmark
+    public MazeDistanceField maze() {
+        return maze.distanceField();
+    }
+
+    @Benchmark
+    public MazeDistanceField open() {
+        return new DistanceFieldBuilder(open).build(ForkJoinPool.commonPool(),
+                open.index(size / 2, size / 2));
+    }
+}
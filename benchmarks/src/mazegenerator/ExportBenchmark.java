@@ -0,0 +1,93 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures exporting a generated maze as a PNG, with and without its
+ * solution drawn over it, and as an SVG. The image is written to a stream that only counts
+ * bytes, so no disk time is included.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+    
+    private static final int MAZE_SIZE = 500;
+    
+    @Param({"1", "5", "20"})
+    public int tileSize;
+    
+    private Maze maze;
+    private MazeSolution solution;
+    
+    @Setup
+    public void setUp() {
+        maze = new Maze(MAZE_SIZE, MAZE_SIZE, tileSize, true,
+                BenchmarkMain.SEED);
+        maze.generateMaze();
+        solution = maze.solve(SolverAlgorithm.BFS);
+    }
+    
+    @Benchmark
+    public long png() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        PngMazeWriter.write(maze, out);
+        return out.count;
+    }
+    
+    @Benchmark
+    public long pngWithSolution() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        PngMazeWriter.write(maze, out, solution);
+        return out.count;
+    }
+    
+    @Benchmark
+    public long svg() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        SvgMazeWriter.write(maze, out);
+        return out.count;
+    }
+    
+    
+    /**
+     * Discards everything written to it, keeping only the byte count.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        
+        private long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generating a square maze from a fixed seed, sequentially and in
+ * parallel regions, with each random number generator.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+    
+    private static final int REGION_SIZE = 256;
+    
+    @Param({"100", "500", "2000"})
+    public int size;
+    
+    @Param({"LEGACY", "XOSHIRO256"})
+    public RandomAlgorithm algorithm;
+    
+    @Benchmark
+    public Maze generate() {
+        Maze maze = new Maze(size, size, 1, true, BenchmarkMain.SEED,
+                algorithm);
+        maze.generateMaze();
+        return maze;
+    }
+    
+    @Benchmark
+    public Maze generateParallel() {
+        Maze maze = new Maze(size, size, 1, true, BenchmarkMain.SEED,
+                algorithm);
+        maze.generateMazeParallel(REGION_SIZE);
+        return maze;
+    }
+    
+    @Benchmark
+    public long stream() throws IOException {
+        final long[] checksum = new long[1];
+        new StreamingMazeGenerator(size, size,
+                algorithm.newRandom(BenchmarkMain.SEED)).generate(
+                new MazeRowConsumer() {
+                    @Override
+                    public void acceptRow(int y, long[] row) {
+                        checksum[0] += row[0];
+                    }
+                });
+        return checksum[0];
+    }
+}
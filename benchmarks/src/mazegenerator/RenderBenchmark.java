@@ -0,0 +1,92 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures MazeRenderer against the per-tile Graphics.fillRect rendering
+ * MazePanel used before, at several tile sizes.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    
+    private static final int MAZE_SIZE = 500;
+    
+    @Param({"1", "5", "20"})
+    public int tileSize;
+    
+    private Maze maze;
+    
+    @Setup
+    public void setUp() {
+        maze = new Maze(MAZE_SIZE, MAZE_SIZE, tileSize, true,
+                BenchmarkMain.SEED);
+        maze.generateMaze();
+    }
+    
+    @Benchmark
+    public BufferedImage raster() {
+        return MazeRenderer.render(maze);
+    }
+    
+    @Benchmark
+    public BufferedImage fillRect() {
+        return renderWithFillRect(maze);
+    }
+    
+    @Benchmark
+    public BufferedImage block() {
+        return MazeRenderer.renderBlock(maze.getGrid(), 0, 0, 128, 128,
+                tileSize);
+    }
+    
+    /***************************************************************************
+     * Renders the maze the way MazePanel did before MazeRenderer wrote
+     * straight to the raster.
+     * @param maze The maze to render
+     * @return a BufferedImage of the maze
+     */
+    private static BufferedImage renderWithFillRect(Maze maze) {
+        BufferedImage bi = new BufferedImage(maze.getMazeSizeX(),
+                maze.getMazeSizeY(), BufferedImage.TYPE_INT_ARGB);
+        Graphics g = bi.getGraphics();
+        for (int x = 0; x < maze.getMazeWidth(); x++) {
+            for (int y = 0; y < maze.getMazeHeight(); y++) {
+                if (maze.isPath(x, y)) {
+                    g.setColor(Color.WHITE);
+                } else {
+                    g.setColor(Color.BLACK);
+                }
+                g.fillRect(x*maze.mazeTileSize, y*maze.mazeTileSize, 
+                        maze.mazeTileSize, maze.mazeTileSize);
+            }
+        }
+        g.dispose();
+        return bi;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures expanding one row of a generated maze into a scanline, plain and
+ * with the solution as an overlay. Tile sizes up to
+ * Scanlines.MAX_TABLE_FACTOR are expanded through a table and larger ones a
+ * run at a time.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanlineBenchmark {
+    
+    private static final int MAZE_SIZE = 4001;
+    
+    @Param({"1", "2", "5", "16", "20"})
+    public int tileSize;
+    
+    private long[] row;
+    private long[] overlay;
+    private byte[] line;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE, tileSize, true,
+                BenchmarkMain.SEED);
+        maze.generateMaze();
+        MazeSolution solution = maze.solve(SolverAlgorithm.BFS);
+        
+        // The middle row, which the solution is likely to cross
+        int y = MAZE_SIZE / 2;
+        row = new long[(MAZE_SIZE + 63) >>> 6];
+        overlay = new long[row.length];
+        maze.getGrid().copyRow(y, row);
+        solution.copyRow(y, overlay);
+        line = new byte[(int) (((long) MAZE_SIZE * tileSize * 2 + 7) >>> 3)];
+    }
+    
+    @Benchmark
+    public byte[] expand() {
+        Scanlines.expand(row, MAZE_SIZE, tileSize, line, 0);
+        return line;
+    }
+    
+    @Benchmark
+    public byte[] expandIndexed() {
+        Scanlines.expandIndexed(row, overlay, MAZE_SIZE, tileSize, line, 0);
+        return line;
+    }
+}
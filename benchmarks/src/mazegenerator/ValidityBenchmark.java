@@ -0,0 +1,61 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the tile validity check the generator makes before carving, by
+ * checking every tile of a generated maze in every direction.
+ * @author Julian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidityBenchmark {
+    
+    @Param({"100", "1000"})
+    public int size;
+    
+    private MazeGrid grid;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = new Maze(size, size, 1, true, BenchmarkMain.SEED);
+        maze.generateMaze();
+        grid = maze.getGrid();
+    }
+    
+    @Benchmark
+    public int checkAllTiles() {
+        int valid = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                for (int direction = 0; direction < 4; direction++) {
+                    if (Maze.isValidTile(grid, x, y, direction)) {
+                        valid++;
+                    }
+                }
+            }
+        }
+        return valid;
+    }
+}
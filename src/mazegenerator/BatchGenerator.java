@@ -0,0 +1,462 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+
+/**
+ * Generates a range of seeded mazes without a display and writes each one to
+ * a PNG file. Generation, PNG encoding and file writing run as separate
+ * stages, each on its own set of threads, connected by bounded queues so a
+ * slow stage holds back the stages before it instead of filling the heap.
+ * <p>
+ * Every maze is analyzed before it is encoded, and its analysis is written
+ * as a line of analysis.csv in the output directory.
+ * <p>
+ * Mazes and PNG buffers are drawn from bounded pools and given back once a
+ * later stage is done with them, and each encoder keeps one Deflater and one
+ * MazeAnalyzer, so a long batch reuses the same grids, buffers and scratch
+ * arrays instead of allocating them for every seed.
+ * @author Julian
+ */
+public class BatchGenerator {
+
+    private static final String USAGE = "Usage: --batch <width> <height>"
+            + " <tileSize> <firstSeed> <lastSeed> <outputDir>"
+            + " [legacy|splittable|xoshiro256]";
+
+    // Queue slots per stage thread
+    private static final int QUEUE_SLOTS_PER_THREAD = 2;
+
+    private static final String ANALYSIS_FILE = "analysis.csv";
+    private static final String ANALYSIS_HEADER = "seed,pathTiles,deadEnds,"
+            + "junctions,branchingFactor,longestCorridor,solutionLength,"
+            + "perfect";
+
+    // Marks the end of a queue; each consumer thread takes exactly one
+    private static final Job END = new Job(0);
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int tileSize;
+    private final RandomAlgorithm algorithm;
+    private final long firstSeed;
+    private final long lastSeed;
+    private final File outputDirectory;
+    private final int threadsPerStage;
+    private final MazeCache cache;
+
+    private final AtomicLong nextSeed;
+    private final AtomicLong mazesWritten;
+    private final AtomicLong bytesWritten;
+    private final AtomicLong failures;
+    private final AtomicLong imperfect;
+    private PrintWriter analysisOut;
+
+    private final ObjectPool<Maze> mazes;
+    private final ObjectPool<ByteArrayOutputStream> buffers;
+
+
+    public BatchGenerator(int mazeWidth, int mazeHeight, int tileSize,
+            RandomAlgorithm algorithm, long firstSeed, long lastSeed,
+            File outputDirectory, int threadsPerStage) {
+        this(mazeWidth, mazeHeight, tileSize, algorithm, firstSeed, lastSeed,
+                outputDirectory, threadsPerStage, new MazeCache(0));
+    }
+
+    /***************************************************************************
+     * Creates a batch that takes mazes it has made before from a cache
+     * @param cache The cache to take mazes from and add new mazes to
+     */
+    public BatchGenerator(int mazeWidth, int mazeHeight, int tileSize,
+            RandomAlgorithm algorithm, long firstSeed, long lastSeed,
+            File outputDirectory, int threadsPerStage, MazeCache cache) {
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.tileSize = tileSize;
+        this.algorithm = algorithm;
+        this.firstSeed = firstSeed;
+        this.lastSeed = lastSeed;
+        this.outputDirectory = outputDirectory;
+        this.threadsPerStage = threadsPerStage;
+        this.cache = cache;
+
+        nextSeed = new AtomicLong(firstSeed);
+        mazesWritten = new AtomicLong();
+        bytesWritten = new AtomicLong();
+        failures = new AtomicLong();
+        imperfect = new AtomicLong();
+
+        // Enough for every thread of two stages plus the queue between them
+        int inFlight = threadsPerStage * (2 + QUEUE_SLOTS_PER_THREAD);
+        mazes = new ObjectPool<>(inFlight, new Supplier<Maze>() {
+            @Override
+            public Maze get() {
+                return new Maze(mazeWidth, mazeHeight, tileSize, true, 0,
+                        algorithm);
+            }
+        });
+        buffers = new ObjectPool<>(inFlight,
+                new Supplier<ByteArrayOutputStream>() {
+            @Override
+            public ByteArrayOutputStream get() {
+                return new ByteArrayOutputStream();
+            }
+        });
+    }
+
+
+    /***************************************************************************
+     * Runs a batch from command line arguments, printing throughput once all
+     * mazes have been written.
+     * @param args The command line arguments, starting with "--batch"
+     * @return the process exit code
+     */
+    public static int runFromCommandLine(String[] args) {
+        if (args.length != 7 && args.length != 8) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        BatchGenerator batch;
+        try {
+            int width = Integer.parseInt(args[1]);
+            int height = Integer.parseInt(args[2]);
+            int tileSize = Integer.parseInt(args[3]);
+            long firstSeed = Long.parseLong(args[4]);
+            long lastSeed = Long.parseLong(args[5]);
+            RandomAlgorithm algorithm = RandomAlgorithm.LEGACY;
+            if (args.length == 8) {
+                algorithm = RandomAlgorithm.valueOf(
+                        args[7].toUpperCase(Locale.ROOT));
+            }
+            if (width <= 10 || height <= 10 || tileSize <= 0
+                    || lastSeed < firstSeed) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            batch = new BatchGenerator(width, height, tileSize, algorithm,
+                    firstSeed, lastSeed, new File(args[6]),
+                    Runtime.getRuntime().availableProcessors(),
+                    // Each seed comes up once, so only mazes saved on disk
+                    // by earlier runs can be found again; nothing is kept
+                    // in memory
+                    MazeCache.create(0));
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            batch.run();
+        } catch (IOException e) {
+            System.err.println("There was an error creating the output"
+                    + " files: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("Wrote %d mazes (%d bytes) in %.2f s: %.1f mazes/sec,"
+                + " %.0f bytes/sec%n", batch.getMazesWritten(),
+                batch.getBytesWritten(), seconds,
+                batch.getMazesWritten() / seconds,
+                batch.getBytesWritten() / seconds);
+        System.out.println(batch.getCache());
+        if (batch.getImperfect() > 0) {
+            System.err.println(batch.getImperfect() + " mazes were not"
+                    + " perfect; see " + ANALYSIS_FILE + ".");
+        }
+        if (batch.getFailures() > 0) {
+            System.err.println(batch.getFailures() + " mazes could not be"
+                    + " written.");
+            return 1;
+        }
+        return 0;
+    }
+
+    /***************************************************************************
+     * Generates, encodes and writes every maze in the seed range, returning
+     * once all of them have been written or have failed.
+     * @throws IOException if the output directory or the analysis file
+     * cannot be created
+     * @throws InterruptedException if interrupted while waiting for a stage
+     */
+    public void run() throws IOException, InterruptedException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException(outputDirectory.getPath());
+        }
+        analysisOut = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(outputDirectory,
+                ANALYSIS_FILE)), StandardCharsets.UTF_8));
+        analysisOut.println(ANALYSIS_HEADER);
+        try {
+            runStages();
+        } finally {
+            analysisOut.close();
+            analysisOut = null;
+        }
+    }
+
+    /***************************************************************************
+     * Starts the threads of every stage and waits for each stage to finish
+     * @throws InterruptedException if interrupted while waiting for a stage
+     */
+    private void runStages() throws InterruptedException {
+        int capacity = threadsPerStage * QUEUE_SLOTS_PER_THREAD;
+        final BlockingQueue<Job> generated = new ArrayBlockingQueue<>(capacity);
+        final BlockingQueue<Job> encoded = new ArrayBlockingQueue<>(capacity);
+
+        Thread[] generators = startStage("generate", new Runnable() {
+            @Override
+            public void run() {
+                generate(generated);
+            }
+        });
+        Thread[] encoders = startStage("encode", new Runnable() {
+            @Override
+            public void run() {
+                encode(generated, encoded);
+            }
+        });
+        Thread[] writers = startStage("write", new Runnable() {
+            @Override
+            public void run() {
+                write(encoded);
+            }
+        });
+
+        // Each stage is told to finish once every thread feeding it is done
+        join(generators);
+        for (int i = 0; i < threadsPerStage; i++) {
+            generated.put(END);
+        }
+        join(encoders);
+        for (int i = 0; i < threadsPerStage; i++) {
+            encoded.put(END);
+        }
+        join(writers);
+    }
+
+    /***************************************************************************
+     * Generation stage: claims seeds until the range is used up.
+     * @param out The queue to hand generated mazes to
+     */
+    private void generate(BlockingQueue<Job> out) {
+        try {
+            long seed;
+            // A range ending at Long.MAX_VALUE wraps the counter around to
+            // Long.MIN_VALUE, below the first seed
+            while ((seed = nextSeed.getAndIncrement()) <= lastSeed
+                    && seed >= firstSeed) {
+                Job job = new Job(seed);
+                job.maze = mazes.take();
+                try {
+                    job.maze.reset(tileSize, true, seed);
+                    cache.generateMaze(job.maze);
+                } catch (RuntimeException e) {
+                    mazes.give(job.maze);
+                    fail(job, e);
+                    continue;
+                }
+                out.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /***************************************************************************
+     * Encode stage: encodes each maze as a PNG in memory.
+     * @param in The queue of generated mazes
+     * @param out The queue to hand encoded images to
+     */
+    private void encode(BlockingQueue<Job> in, BlockingQueue<Job> out) {
+        Deflater deflater = new Deflater();
+        MazeAnalyzer analyzer = new MazeAnalyzer(mazeWidth, mazeHeight);
+        try {
+            Job job;
+            while ((job = in.take()) != END) {
+                ByteArrayOutputStream png = buffers.take();
+                png.reset();
+                try {
+                    job.analysis = job.maze.analyze(analyzer);
+                    try (PngMazeWriter writer = new PngMazeWriter(png,
+                            mazeWidth, mazeHeight, tileSize, null, null,
+                            deflater)) {
+                        job.maze.writeRows(writer);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    buffers.give(png);
+                    fail(job, e);
+                    continue;
+                } finally {
+                    mazes.give(job.maze);
+                    job.maze = null;
+                }
+                job.png = png;
+                out.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /***************************************************************************
+     * Write stage: writes each encoded image to its PNG file.
+     * @param in The queue of encoded images
+     */
+    private void write(BlockingQueue<Job> in) {
+        try {
+            Job job;
+            while ((job = in.take()) != END) {
+                File file = new File(outputDirectory,
+                        "maze-" + job.seed + ".png");
+                int size = job.png.size();
+                try (OutputStream out = new FileOutputStream(file)) {
+                    job.png.writeTo(out);
+                } catch (IOException e) {
+                    fail(job, e);
+                    continue;
+                } finally {
+                    buffers.give(job.png);
+                    job.png = null;
+                }
+                mazesWritten.incrementAndGet();
+                bytesWritten.addAndGet(size);
+                writeAnalysis(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /***************************************************************************
+     * Adds the analysis of a written maze to the analysis file
+     * @param job The maze's job
+     */
+    private void writeAnalysis(Job job) {
+        MazeAnalysis analysis = job.analysis;
+        if (!analysis.isPerfect()) {
+            imperfect.incrementAndGet();
+        }
+        String line = job.seed + "," + analysis.getPathTiles()
+                + "," + analysis.getDeadEnds()
+                + "," + analysis.getJunctions()
+                + "," + String.format(Locale.ROOT, "%.4f",
+                        analysis.getBranchingFactor())
+                + "," + analysis.getLongestCorridor()
+                + "," + analysis.getSolutionLength()
+                + "," + analysis.isPerfect();
+        synchronized (analysisOut) {
+            analysisOut.println(line);
+        }
+    }
+
+    private void fail(Job job, Exception e) {
+        failures.incrementAndGet();
+        System.err.println("Maze with seed " + job.seed + " failed: " + e);
+    }
+
+    private Thread[] startStage(String name, Runnable work) {
+        Thread[] threads = new Thread[threadsPerStage];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(work, name + "-" + i);
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    private static void join(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes written so far
+     * @return the number of mazes written so far
+     */
+    public long getMazesWritten() {
+        return mazesWritten.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of PNG bytes written so far
+     * @return the number of PNG bytes written so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /***************************************************************************
+     * Returns the cache mazes are taken from
+     * @return the cache of this batch
+     */
+    public MazeCache getCache() {
+        return cache;
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes written whose analysis found them not to be
+     * perfect
+     * @return the number of imperfect mazes
+     */
+    public long getImperfect() {
+        return imperfect.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes the batch has allocated, which stays at
+     * the size of its pool however many seeds it generates
+     * @return the number of mazes allocated
+     */
+    public int getMazesAllocated() {
+        return mazes.getCreated();
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes that could not be generated or written
+     * @return the number of failed mazes
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+
+    /**
+     * A single maze as it moves through the stages.
+     */
+    private static class Job {
+        final long seed;
+        Maze maze;
+        MazeAnalysis analysis;
+        ByteArrayOutputStream png;
+
+        Job(long seed) {
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The binary tree algorithm: every cell is joined either up or to the left,
+ * at random, so the top row and left column are straight corridors and every
+ * path leads diagonally toward the top left. Each cell is decided on its
+ * own, so it needs no memory beyond the grid and at most one draw per cell.
+ * @author Julian
+ */
+public class BinaryTreeAlgorithm extends CellMazeAlgorithm {
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        long draws = 0;
+        
+        open(grid, columns, 0, progress);
+        for (int cell = 1; cell < columns * rows; cell++) {
+            boolean canGoUp = cell >= columns;
+            boolean canGoLeft = cell % columns > 0;
+            boolean up;
+            if (canGoUp && canGoLeft) {
+                up = rand.nextBoolean();
+                draws++;
+            } else {
+                up = canGoUp;
+            }
+            join(grid, columns, cell, up ? cell - columns : cell - 1,
+                    progress);
+        }
+        counts.randomDraws += draws;
+    }
+    
+    @Override
+    public String getName() {
+        return "Binary Tree";
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Counts the tiles a lattice algorithm carves and passes them on to a
+ * GenerationMonitor every REPORT_INTERVAL tiles. Belongs to one generation
+ * on one thread.
+ * @author Julian
+ */
+final class CarveProgress {
+    
+    private final GenerationMonitor monitor;
+    
+    private long carved;
+    private int low;
+    private int high;
+    private int untilReport;
+    
+    
+    CarveProgress(GenerationMonitor monitor) {
+        this.monitor = monitor;
+        low = Integer.MAX_VALUE;
+        high = -1;
+        untilReport = GenerationMonitor.REPORT_INTERVAL;
+    }
+    
+    /***************************************************************************
+     * Counts a carved tile, reporting once enough have been carved
+     * @param tile The index of the tile
+     */
+    void carved(int tile) {
+        carved++;
+        low = Math.min(low, tile);
+        high = Math.max(high, tile);
+        if (--untilReport == 0) {
+            report();
+            monitor.checkCancelled();
+        }
+    }
+    
+    /***************************************************************************
+     * Reports the tiles carved since the last report
+     */
+    void report() {
+        monitor.report(carved, low, high);
+        low = Integer.MAX_VALUE;
+        high = -1;
+        untilReport = GenerationMonitor.REPORT_INTERVAL;
+    }
+}
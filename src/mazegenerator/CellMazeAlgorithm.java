@@ -0,0 +1,148 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Base for algorithms that build a spanning tree over a lattice of cells.
+ * Cells sit on odd x and y values, like StreamingMazeGenerator's, and two
+ * neighboring cells are joined by opening the tile between them; every other
+ * tile stays a wall. A cell is in the maze once its tile is a path, so no
+ * separate visited set is needed. Cells are numbered row by row.
+ * <p>
+ * When the width or height is even, the last column or row is not part of
+ * the lattice and only one dead end is opened into it.
+ * @author Julian
+ */
+abstract class CellMazeAlgorithm implements MazeAlgorithm {
+    
+    @Override
+    public final int carve(MazeGrid grid, MazeRandom rand,
+            GenerationMetrics counts, GenerationMonitor monitor) {
+        int columns = (grid.getWidth() - 1) / 2;
+        int rows = (grid.getHeight() - 1) / 2;
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Maze must be at least 3x3: "
+                    + grid.getWidth() + "x" + grid.getHeight());
+        }
+        CarveProgress progress = new CarveProgress(monitor);
+        carveCells(grid, columns, rows, rand, counts, progress);
+        progress.report();
+        
+        // A spanning tree opens every cell and one tile per join
+        counts.cellsCarved += 2L * columns * rows - 1;
+        
+        // An even width or height leaves a line of walls between the last
+        // cells and the edge the end tile goes on, so one random dead end is
+        // opened into it for the end tile to reach
+        if (grid.getHeight() % 2 == 0) {
+            grid.setPath(grid.index(2 * rand.nextInt(columns) + 1,
+                    grid.getHeight() - 2), true);
+            counts.randomDraws++;
+            counts.cellsCarved++;
+        }
+        if (grid.getWidth() % 2 == 0) {
+            grid.setPath(grid.index(grid.getWidth() - 2,
+                    2 * rand.nextInt(rows) + 1), true);
+            counts.randomDraws++;
+            counts.cellsCarved++;
+        }
+        return Maze.placeStart(grid, rand, counts);
+    }
+    
+    /***************************************************************************
+     * Joins every cell into one spanning tree
+     * @param grid The grid to carve, all walls
+     * @param columns The number of cells across
+     * @param rows The number of cells down
+     * @param rand The random number generator to draw from
+     * @param counts The counters to add random draws and peak working set to
+     * @param progress Counts each opened cell and joining tile
+     */
+    abstract void carveCells(MazeGrid grid, int columns, int rows,
+            MazeRandom rand, GenerationMetrics counts, CarveProgress progress);
+    
+    /***************************************************************************
+     * Returns the tile of a cell
+     * @param grid The grid being carved
+     * @param columns The number of cells across
+     * @param cell The cell
+     * @return the index of the cell's tile
+     */
+    static int tileOf(MazeGrid grid, int columns, int cell) {
+        return grid.index(2 * (cell % columns) + 1, 2 * (cell / columns) + 1);
+    }
+    
+    /***************************************************************************
+     * Determines if a cell has been added to the maze
+     * @param grid The grid being carved
+     * @param columns The number of cells across
+     * @param cell The cell
+     * @return True if the cell's tile is a path
+     */
+    static boolean isOpen(MazeGrid grid, int columns, int cell) {
+        return grid.isPath(tileOf(grid, columns, cell));
+    }
+    
+    /***************************************************************************
+     * Adds a cell to the maze
+     * @param grid The grid being carved
+     * @param columns The number of cells across
+     * @param cell The cell
+     * @param progress Counts the opened tile
+     */
+    static void open(MazeGrid grid, int columns, int cell,
+            CarveProgress progress) {
+        int tile = tileOf(grid, columns, cell);
+        grid.setPath(tile, true);
+        progress.carved(tile);
+    }
+    
+    /***************************************************************************
+     * Adds a cell to the maze along with the tile joining it to a neighbor
+     * @param grid The grid being carved
+     * @param columns The number of cells across
+     * @param cell The cell
+     * @param neighbor A cell next to it
+     * @param progress Counts the opened tiles
+     */
+    static void join(MazeGrid grid, int columns, int cell, int neighbor,
+            CarveProgress progress) {
+        int tile = tileOf(grid, columns, cell);
+        int between = (tile + tileOf(grid, columns, neighbor)) >>> 1;
+        grid.setPath(tile, true);
+        grid.setPath(between, true);
+        progress.carved(tile);
+        progress.carved(between);
+    }
+    
+    /***************************************************************************
+     * Lists the cells next to a cell
+     * @param cell The cell
+     * @param columns The number of cells across
+     * @param rows The number of cells down
+     * @param neighbors Receives the neighboring cells; must hold 4
+     * @return the number of neighbors
+     */
+    static int neighbors(int cell, int columns, int rows, int[] neighbors) {
+        int x = cell % columns;
+        int y = cell / columns;
+        int count = 0;
+        if (x > 0) {
+            neighbors[count++] = cell - 1;
+        }
+        if (x < columns - 1) {
+            neighbors[count++] = cell + 1;
+        }
+        if (y > 0) {
+            neighbors[count++] = cell - columns;
+        }
+        if (y < rows - 1) {
+            neighbors[count++] = cell + columns;
+        }
+        return count;
+    }
+}
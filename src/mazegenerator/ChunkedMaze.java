@@ -0,0 +1,382 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A maze without edges, generated lazily one chunk at a time. Any tile can be
+ * looked up by its coordinates, and a region costs time in proportion to its
+ * size no matter where it lies.
+ * <p>
+ * A chunk is CHUNK_SIZE tiles square and is generated from the seed and its
+ * own coordinates only, so it is the same whenever and in whatever order it
+ * is generated. Cells sit on odd x and y values as in the lattice algorithms.
+ * The left column and top row of each chunk are the walls it shares with the
+ * chunks to its left and above; the chunk owns them and opens one door in
+ * each, so neighboring chunks always agree on their borders. Inside a chunk
+ * the cells form a perfect maze carved by depth first search, and through
+ * the doors every chunk connects to its four neighbors, so the whole world is
+ * connected.
+ * <p>
+ * Unlike the other generators, the world is not a perfect maze. The chunks
+ * connect as a full grid, so there is a loop through every 2x2 block of
+ * chunks, and a region that crosses chunk borders in both directions may
+ * have more than one path between some of its tiles. This is deliberate: a
+ * spanning tree that chunks could open their doors along, knowing only
+ * their own coordinates, would leave neighboring chunks joined only by
+ * paths that run arbitrarily far around.
+ * <p>
+ * Generated chunks are kept in a least recently used cache of a fixed number
+ * of chunks. Chunk coordinates are ints, so the world spans 2^31 chunks in
+ * each direction from the origin.
+ * @author Julian
+ */
+public class ChunkedMaze {
+
+    // Tiles per chunk side; a chunk row is exactly one long
+    public static final int CHUNK_SIZE = 64;
+
+    private static final int CELLS = CHUNK_SIZE / 2;
+    private static final int DEFAULT_MAX_CHUNKS = 1 << 14;
+
+    private static final String USAGE = "Usage: --region <seed> <x> <y>"
+            + " <width> <height> <tileSize> <file.png|file.svg>"
+            + " [legacy|splittable|xoshiro256]\n"
+            + "The infinite maze has a loop through every 2x2 block of "
+            + CHUNK_SIZE + "x" + CHUNK_SIZE + " tile chunks, so a region"
+            + " spanning chunks is not a perfect maze.";
+
+    private final long seed;
+    private final RandomAlgorithm algorithm;
+
+    private final LinkedHashMap<Long, long[]> chunks;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    public ChunkedMaze(long seed) {
+        this(seed, RandomAlgorithm.XOSHIRO256, DEFAULT_MAX_CHUNKS);
+    }
+
+    /***************************************************************************
+     * Creates an infinite maze
+     * @param seed The seed every chunk is derived from
+     * @param algorithm The random number generator algorithm of each chunk
+     * @param maxChunks The number of generated chunks to keep
+     */
+    public ChunkedMaze(long seed, RandomAlgorithm algorithm,
+            final int maxChunks) {
+        if (maxChunks <= 0) {
+            throw new IllegalArgumentException("maxChunks must be positive: "
+                    + maxChunks);
+        }
+        this.seed = seed;
+        this.algorithm = algorithm;
+        chunks = new LinkedHashMap<Long, long[]>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> e) {
+                if (size() > maxChunks) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /***************************************************************************
+     * Writes a region of an infinite maze to a PNG or SVG file from command
+     * line arguments. A region spanning chunks has loops; see the class
+     * documentation.
+     * @param args The command line arguments, starting with "--region"
+     * @return the process exit code
+     */
+    public static int runFromCommandLine(String[] args) {
+        if (args.length != 8 && args.length != 9) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        ChunkedMaze world;
+        long x0;
+        long y0;
+        int width;
+        int height;
+        int tileSize;
+        String file = args[7];
+        try {
+            long seed = Long.parseLong(args[1]);
+            x0 = Long.parseLong(args[2]);
+            y0 = Long.parseLong(args[3]);
+            width = Integer.parseInt(args[4]);
+            height = Integer.parseInt(args[5]);
+            tileSize = Integer.parseInt(args[6]);
+            RandomAlgorithm algorithm = RandomAlgorithm.XOSHIRO256;
+            if (args.length == 9) {
+                algorithm = RandomAlgorithm.valueOf(
+                        args[8].toUpperCase(Locale.ROOT));
+            }
+            if (width <= 0 || height <= 0 || tileSize <= 0) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            world = new ChunkedMaze(seed, algorithm, DEFAULT_MAX_CHUNKS);
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(file));
+            if (file.endsWith(".svg")) {
+                try (SvgMazeWriter svg = new SvgMazeWriter(out, width, height,
+                        tileSize)) {
+                    world.writeRegion(x0, y0, width, height, svg);
+                }
+            } else {
+                try (PngMazeWriter png = new PngMazeWriter(out, width, height,
+                        tileSize)) {
+                    world.writeRegion(x0, y0, width, height, png);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("There was an error writing the image to a"
+                    + " file.");
+            return 1;
+        }
+        return 0;
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    public boolean isPath(long x, long y) {
+        long[] chunk = chunk(Math.floorDiv(x, CHUNK_SIZE),
+                Math.floorDiv(y, CHUNK_SIZE));
+        return (chunk[Math.floorMod(y, CHUNK_SIZE)]
+                & (1L << Math.floorMod(x, CHUNK_SIZE))) != 0;
+    }
+
+    /***************************************************************************
+     * Returns the path bits of up to 64 consecutive tiles of a row
+     * @param x The x value of the first tile
+     * @param y The y value of the row
+     * @param count The number of tiles (1 to 64)
+     * @return a mask with bit n set if tile x + n is a path
+     */
+    public long getPathBits(long x, long y, int count) {
+        long chunkX = Math.floorDiv(x, CHUNK_SIZE);
+        long chunkY = Math.floorDiv(y, CHUNK_SIZE);
+        int row = Math.floorMod(y, CHUNK_SIZE);
+        int offset = Math.floorMod(x, CHUNK_SIZE);
+
+        long bits = chunk(chunkX, chunkY)[row] >>> offset;
+        if (offset + count > CHUNK_SIZE) {
+            bits |= chunk(chunkX + 1, chunkY)[row] << (CHUNK_SIZE - offset);
+        }
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /***************************************************************************
+     * Copies the path bits of part of a row of tiles
+     * @param x0 The x value of the first tile
+     * @param y The y value of the row
+     * @param width The number of tiles
+     * @param row Receives bit x of the row (bit x % 64 of row[x / 64]) set if
+     * tile x0 + x is a path; must hold at least width bits
+     */
+    public void copyRow(long x0, long y, int width, long[] row) {
+        for (int x = 0; x < width; x += 64) {
+            row[x >>> 6] = getPathBits(x0 + x, y, Math.min(64, width - x));
+        }
+    }
+
+    /***************************************************************************
+     * Copies a rectangle of the maze into a new grid
+     * @param x0 The x value of the top left tile
+     * @param y0 The y value of the top left tile
+     * @param width The width of the rectangle in tiles
+     * @param height The height of the rectangle in tiles
+     * @return a grid of the rectangle, with (x0, y0) at (0, 0)
+     */
+    public MazeGrid region(long x0, long y0, int width, int height) {
+        MazeGrid grid = new MazeGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            int index = grid.index(0, y);
+            for (int x = 0; x < width; x += 64) {
+                int count = Math.min(64, width - x);
+                grid.orPathBits(index + x, getPathBits(x0 + x, y0 + y, count),
+                        count);
+            }
+        }
+        return grid;
+    }
+
+    /***************************************************************************
+     * Passes the rows of a rectangle of the maze to a consumer from top to
+     * bottom, numbering them from 0, so any writer of whole mazes can export
+     * the region
+     * @param x0 The x value of the top left tile
+     * @param y0 The y value of the top left tile
+     * @param width The width of the rectangle in tiles
+     * @param height The height of the rectangle in tiles
+     * @param consumer The consumer of the rows
+     * @throws IOException if the consumer cannot accept a row
+     */
+    public void writeRegion(long x0, long y0, int width, int height,
+            MazeRowConsumer consumer) throws IOException {
+        long[] row = new long[(width + 63) >>> 6];
+        for (int y = 0; y < height; y++) {
+            copyRow(x0, y0 + y, width, row);
+            consumer.acceptRow(y, row);
+        }
+    }
+
+    /***************************************************************************
+     * Returns a chunk, generating it if it is not cached
+     * @param chunkX The column of the chunk
+     * @param chunkY The row of the chunk
+     * @return the path bits of the chunk, one long per row
+     */
+    private synchronized long[] chunk(long chunkX, long chunkY) {
+        int cx = Math.toIntExact(chunkX);
+        int cy = Math.toIntExact(chunkY);
+        long key = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        long[] chunk = chunks.get(key);
+        if (chunk == null) {
+            misses++;
+            chunk = generateChunk(cx, cy);
+            chunks.put(key, chunk);
+        } else {
+            hits++;
+        }
+        return chunk;
+    }
+
+    /***************************************************************************
+     * Generates a chunk from the seed and its coordinates
+     * @param cx The column of the chunk
+     * @param cy The row of the chunk
+     * @return the path bits of the chunk, one long per row
+     */
+    private long[] generateChunk(int cx, int cy) {
+        MazeRandom rand = algorithm.newRandom(chunkSeed(cx, cy));
+        long[] rows = new long[CHUNK_SIZE];
+
+        // The doors to the chunks on the left and above
+        rows[2 * rand.nextInt(CELLS) + 1] |= 1L;
+        rows[0] |= 1L << (2 * rand.nextInt(CELLS) + 1);
+
+        boolean[] visited = new boolean[CELLS * CELLS];
+        int[] neighbors = new int[4];
+        IntStack stack = new IntStack(CELLS * CELLS);
+
+        int first = rand.nextInt(CELLS * CELLS);
+        visited[first] = true;
+        openCell(rows, first);
+        stack.push(first);
+        while (!stack.isEmpty()) {
+            int cell = stack.peek();
+            int i = cell % CELLS;
+            int j = cell / CELLS;
+
+            int count = 0;
+            if (i > 0 && !visited[cell - 1]) {
+                neighbors[count++] = cell - 1;
+            }
+            if (i < CELLS - 1 && !visited[cell + 1]) {
+                neighbors[count++] = cell + 1;
+            }
+            if (j > 0 && !visited[cell - CELLS]) {
+                neighbors[count++] = cell - CELLS;
+            }
+            if (j < CELLS - 1 && !visited[cell + CELLS]) {
+                neighbors[count++] = cell + CELLS;
+            }
+            if (count == 0) {
+                stack.pop();
+                continue;
+            }
+
+            int next = neighbors[count == 1 ? 0 : rand.nextInt(count)];
+            visited[next] = true;
+            openCell(rows, next);
+            // The wall between two cells is at the sum of their coordinates
+            int wallX = i + next % CELLS + 1;
+            int wallY = j + next / CELLS + 1;
+            rows[wallY] |= 1L << wallX;
+            stack.push(next);
+        }
+        return rows;
+    }
+
+    private static void openCell(long[] rows, int cell) {
+        rows[2 * (cell / CELLS) + 1] |= 1L << (2 * (cell % CELLS) + 1);
+    }
+
+    /***************************************************************************
+     * Mixes the seed with the coordinates of a chunk, so nearby chunks get
+     * unrelated random numbers
+     */
+    private long chunkSeed(int cx, int cy) {
+        long h = mix(seed ^ 0x9E3779B97F4A7C15L);
+        h = mix(h ^ (cx * 0xBF58476D1CE4E5B9L));
+        return mix(h ^ (cy * 0x94D049BB133111EBL));
+    }
+
+    // The finalizer of SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /***************************************************************************
+     * Returns the seed every chunk is derived from
+     * @return the seed of the maze
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /***************************************************************************
+     * Returns the number of chunk lookups that found the chunk cached
+     * @return the number of chunk cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /***************************************************************************
+     * Returns the number of chunks generated
+     * @return the number of chunk cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /***************************************************************************
+     * Returns the number of chunks evicted from the cache
+     * @return the number of chunk cache evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
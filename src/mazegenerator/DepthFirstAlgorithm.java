@@ -0,0 +1,62 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The randomized depth first search mazes have always been generated with.
+ * It starts at the start tile and carves tile by tile, rejecting any tile
+ * that would touch another path, so corridors are one tile wide without
+ * being aligned to a lattice. Its stack can grow with the number of tiles.
+ * @author Julian
+ */
+public class DepthFirstAlgorithm implements MazeAlgorithm {
+    
+    @Override
+    public int carve(MazeGrid grid, MazeRandom rand,
+            GenerationMetrics counts, GenerationMonitor monitor) {
+        return carve(grid, rand, new IntStack(), counts, monitor);
+    }
+    
+    @Override
+    public int carve(MazeGrid grid, MazeRandom rand, IntStack tileStack,
+            GenerationMetrics counts, GenerationMonitor monitor) {
+        int mazeWidth = grid.getWidth();
+        int mazeHeight = grid.getHeight();
+        
+        // Add start tile. A start in a corner has no tile it can carve into,
+        // which would leave the end tile search looping forever, so a corner
+        // is drawn again.
+        int xStart;
+        int yStart;
+        long attempts = 0;
+        
+        do {
+            attempts++;
+            xStart = 0;
+            yStart = 0;
+            if (rand.nextBoolean()) {
+                yStart = rand.nextInt(mazeHeight-1) + 1;
+            } else {
+                xStart = rand.nextInt(mazeWidth-1) + 1;
+            }
+        } while (yStart == mazeHeight-1 || xStart == mazeWidth-1);
+        counts.randomDraws += 2 * attempts;
+        counts.startRetries = attempts - 1;
+        
+        int start = grid.index(xStart, yStart);
+        grid.setPath(start, true);
+        
+        // Begin recursion from start tile
+        Maze.carve(grid, rand, tileStack, xStart, yStart, counts, monitor);
+        return start;
+    }
+    
+    @Override
+    public String getName() {
+        return "Depth-First Search";
+    }
+}
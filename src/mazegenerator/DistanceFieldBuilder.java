@@ -0,0 +1,318 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the distance from one tile to every reachable tile with a
+ * level-synchronous breadth-first search over bitsets.
+ * <p>
+ * The path tiles, the visited tiles, the current frontier and the next
+ * frontier are each a bitset with every row padded to whole longs, so a
+ * word's left and right neighbors are its own bits shifted by one (plus one
+ * bit carried from the words beside it) and its upper and lower neighbors
+ * are the words one row away. One level expands 64 tiles per word of the
+ * frontier at a time. Only the words of the frontier that have bits set are
+ * listed and visited, so a level costs as much as its frontier, not as much
+ * as the maze; a maze's frontier is usually narrow but thousands of levels
+ * deep.
+ * <p>
+ * A level with a wide frontier is split into chunks of words expanded in
+ * parallel on a ForkJoinPool. Chunks OR their new bits into the next
+ * frontier atomically, and the chunk that first sets a bit in a word lists
+ * that word, so each word is listed once. The distances of the new tiles are
+ * then written, again in parallel, before the next level starts.
+ * @author Julian
+ */
+class DistanceFieldBuilder {
+
+    // Frontier words in a chunk of a level expanded by one task
+    private static final int CHUNK_WORDS = 256;
+
+    // Frontier words before a level is expanded in parallel
+    private static final int PARALLEL_WORDS = 4 * CHUNK_WORDS;
+
+    // Largest distance kept in 16 bits, as distance + 1
+    private static final int COMPACT_LIMIT = Character.MAX_VALUE - 1;
+
+    // Each frontier word can add bits to itself and four other words
+    private static final int TARGETS = 5;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(
+            long[].class);
+
+    private final MazeGrid grid;
+    private final int width;
+    private final int rowWords;
+
+    private final long[] paths;
+    private final long[] visited;
+    private long[] frontier;
+    private long[] next;
+
+    // Words of the frontier with bits set, and room for the next frontier's
+    private int[] frontierWords = new int[TARGETS * CHUNK_WORDS];
+    private int frontierCount;
+    private int[] nextWords = new int[TARGETS * CHUNK_WORDS];
+    // New words per chunk while expanding, then new tiles per chunk
+    private int[] chunkCounts = new int[1];
+
+    private char[] compact;
+    private int[] wide;
+    private int level;
+
+
+    public DistanceFieldBuilder(MazeGrid grid) {
+        this.grid = grid;
+        width = grid.getWidth();
+        rowWords = (width + 63) >>> 6;
+
+        int height = grid.getHeight();
+        paths = new long[height * rowWords];
+        long[] row = new long[rowWords];
+        for (int y = 0; y < height; y++) {
+            grid.copyRow(y, row);
+            System.arraycopy(row, 0, paths, y * rowWords, rowWords);
+        }
+        visited = new long[paths.length];
+        frontier = new long[paths.length];
+        next = new long[paths.length];
+    }
+
+    /***************************************************************************
+     * Finds the distance from a tile to every tile reachable from it
+     * @param pool The pool to expand wide levels on
+     * @param source The index of the tile to measure from
+     * @return the distances
+     * @throws IllegalArgumentException if the source tile is a wall
+     */
+    public MazeDistanceField build(ForkJoinPool pool, int source) {
+        if (!grid.isPath(source)) {
+            throw new IllegalArgumentException("The source tile is a wall: "
+                    + source);
+        }
+        long startTime = System.nanoTime();
+        Arrays.fill(visited, 0);
+        Arrays.fill(frontier, 0);
+        compact = new char[grid.size()];
+
+        int sourceWord = grid.yOf(source) * rowWords
+                + (grid.xOf(source) >>> 6);
+        long sourceBit = 1L << grid.xOf(source);
+        visited[sourceWord] = sourceBit;
+        frontier[sourceWord] = sourceBit;
+        frontierWords[0] = sourceWord;
+        frontierCount = 1;
+        compact[source] = 1;
+
+        int reached = 1;
+        int farthest = source;
+        level = 0;
+        while (true) {
+            level++;
+            if (level > COMPACT_LIMIT && wide == null) {
+                widen();
+            }
+            int chunks = (frontierCount + CHUNK_WORDS - 1) / CHUNK_WORDS;
+            if (nextWords.length < chunks * CHUNK_WORDS * TARGETS) {
+                nextWords = new int[chunks * CHUNK_WORDS * TARGETS * 2];
+            }
+
+            int nextCount;
+            if (frontierCount >= PARALLEL_WORDS) {
+                if (chunkCounts.length < chunks) {
+                    chunkCounts = new int[chunks * 2];
+                }
+                pool.invoke(new LevelTask(true, 0, chunks, frontierCount));
+                nextCount = 0;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    System.arraycopy(nextWords, chunk * CHUNK_WORDS * TARGETS,
+                            nextWords, nextCount, chunkCounts[chunk]);
+                    nextCount += chunkCounts[chunk];
+                }
+            } else {
+                nextCount = expand(0, frontierCount, false, 0);
+            }
+            if (nextCount == 0) {
+                break;
+            }
+
+            if (nextCount >= PARALLEL_WORDS) {
+                chunks = (nextCount + CHUNK_WORDS - 1) / CHUNK_WORDS;
+                if (chunkCounts.length < chunks) {
+                    chunkCounts = new int[chunks * 2];
+                }
+                pool.invoke(new LevelTask(false, 0, chunks, nextCount));
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    reached += chunkCounts[chunk];
+                }
+            } else {
+                reached += record(0, nextCount);
+            }
+            farthest = tileOf(nextWords[0],
+                    Long.numberOfTrailingZeros(next[nextWords[0]]));
+
+            // The next frontier becomes the current one
+            for (int i = 0; i < frontierCount; i++) {
+                frontier[frontierWords[i]] = 0;
+            }
+            long[] bits = frontier;
+            frontier = next;
+            next = bits;
+            int[] words = frontierWords;
+            frontierWords = nextWords;
+            nextWords = words;
+            frontierCount = nextCount;
+        }
+
+        MazeDistanceField field = new MazeDistanceField(grid, source,
+                wide == null ? compact : null, wide, level - 1, farthest,
+                reached, System.nanoTime() - startTime);
+        compact = null;
+        wide = null;
+        return field;
+    }
+
+    /***************************************************************************
+     * Expands a range of the frontier's words into the next frontier
+     * @param from The position in frontierWords of the first word
+     * @param to The position after the last word
+     * @param atomic True if other threads are expanding at the same time
+     * @param out The position in nextWords to list new words from
+     * @return the number of new words listed
+     */
+    private int expand(int from, int to, boolean atomic, int out) {
+        int count = out;
+        for (int i = from; i < to; i++) {
+            int word = frontierWords[i];
+            long bits = frontier[word];
+            int column = word % rowWords;
+
+            count = offer(word, bits << 1 | bits >>> 1, atomic, count);
+            if (column > 0) {
+                count = offer(word - 1, bits << 63, atomic, count);
+            }
+            if (column + 1 < rowWords) {
+                count = offer(word + 1, bits >>> 63, atomic, count);
+            }
+            if (word >= rowWords) {
+                count = offer(word - rowWords, bits, atomic, count);
+            }
+            if (word + rowWords < paths.length) {
+                count = offer(word + rowWords, bits, atomic, count);
+            }
+        }
+        return count - out;
+    }
+
+    /***************************************************************************
+     * Adds the unvisited path tiles among some bits of a word to the next
+     * frontier, listing the word if it had none yet
+     * @return the position after the listed words
+     */
+    private int offer(int word, long bits, boolean atomic, int count) {
+        bits &= paths[word] & ~visited[word];
+        if (bits == 0) {
+            return count;
+        }
+        long old;
+        if (atomic) {
+            old = (long) WORDS.getAndBitwiseOr(next, word, bits);
+        } else {
+            old = next[word];
+            next[word] = old | bits;
+        }
+        if (old == 0) {
+            nextWords[count++] = word;
+        }
+        return count;
+    }
+
+    /***************************************************************************
+     * Marks the tiles of a range of the next frontier's words as visited and
+     * writes their distances
+     * @param from The position in nextWords of the first word
+     * @param to The position after the last word
+     * @return the number of tiles marked
+     */
+    private int record(int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int word = nextWords[i];
+            long bits = next[word];
+            visited[word] |= bits;
+            count += Long.bitCount(bits);
+            while (bits != 0) {
+                int tile = tileOf(word, Long.numberOfTrailingZeros(bits));
+                if (wide == null) {
+                    compact[tile] = (char) (level + 1);
+                } else {
+                    wide[tile] = level;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return count;
+    }
+
+    private int tileOf(int word, int bit) {
+        return (word / rowWords) * width + ((word % rowWords) << 6) + bit;
+    }
+
+    /***************************************************************************
+     * Moves the distances found so far to 32 bits per tile
+     */
+    private void widen() {
+        wide = new int[compact.length];
+        for (int i = 0; i < compact.length; i++) {
+            wide[i] = compact[i] - 1;
+        }
+        compact = null;
+    }
+
+
+    /**
+     * Expands or records a range of chunks of a level, splitting it in half
+     * until it is one chunk.
+     */
+    private class LevelTask extends RecursiveAction {
+
+        private final boolean expanding;
+        private final int from;
+        private final int to;
+        private final int words;
+
+        LevelTask(boolean expanding, int from, int to, int words) {
+            this.expanding = expanding;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int chunk = from; chunk < to; chunk++) {
+                    int first = chunk * CHUNK_WORDS;
+                    int last = Math.min(words, first + CHUNK_WORDS);
+                    chunkCounts[chunk] = expanding
+                            ? expand(first, last, true, first * TARGETS)
+                            : record(first, last);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LevelTask(expanding, from, middle, words),
+                        new LevelTask(expanding, middle, to, words));
+            }
+        }
+    }
+}
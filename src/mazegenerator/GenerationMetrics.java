@@ -0,0 +1,151 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Counters describing how a maze was generated. The DFS keeps its counts in
+ * local variables and adds them here once it finishes, so collecting them
+ * costs next to nothing. A maze's metrics are not changed after its
+ * generation ends.
+ * @author Julian
+ */
+public class GenerationMetrics {
+    
+    long cellsCarved;
+    int peakStackDepth;
+    long randomDraws;
+    long wastedDraws;
+    long rejectedOutOfBounds;
+    long rejectedAlreadyPath;
+    long rejectedConflict;
+    long startRetries;
+    long endRetries;
+    long elapsedNanos;
+    
+    
+    /***************************************************************************
+     * Adds the counts of another generation, such as one region of a maze
+     * carved in parallel, to these
+     * @param other The counts to add
+     */
+    void add(GenerationMetrics other) {
+        cellsCarved += other.cellsCarved;
+        peakStackDepth = Math.max(peakStackDepth, other.peakStackDepth);
+        randomDraws += other.randomDraws;
+        wastedDraws += other.wastedDraws;
+        rejectedOutOfBounds += other.rejectedOutOfBounds;
+        rejectedAlreadyPath += other.rejectedAlreadyPath;
+        rejectedConflict += other.rejectedConflict;
+        startRetries += other.startRetries;
+        endRetries += other.endRetries;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles the DFS turned into paths, not counting the
+     * start and end tiles on the edge
+     * @return the number of tiles carved
+     */
+    public long getCellsCarved() {
+        return cellsCarved;
+    }
+    
+    /***************************************************************************
+     * Returns the most tiles the DFS stack held at once. For a maze carved in
+     * parallel this is the deepest stack of any region.
+     * @return the peak stack depth
+     */
+    public int getPeakStackDepth() {
+        return peakStackDepth;
+    }
+    
+    /***************************************************************************
+     * Returns the number of values drawn from the random number generator
+     * @return the number of random draws
+     */
+    public long getRandomDraws() {
+        return randomDraws;
+    }
+    
+    /***************************************************************************
+     * Returns the number of directions drawn by the DFS that the tile had
+     * already checked, so the draw could not lead anywhere new
+     * @return the number of wasted draws
+     */
+    public long getWastedDraws() {
+        return wastedDraws;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles rejected for lying on or past the edge
+     * @return the number of tiles rejected as out of bounds
+     */
+    public long getRejectedOutOfBounds() {
+        return rejectedOutOfBounds;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles rejected for already being paths
+     * @return the number of tiles rejected as already carved
+     */
+    public long getRejectedAlreadyPath() {
+        return rejectedAlreadyPath;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles rejected for touching another path
+     * @return the number of tiles rejected for a neighbor conflict
+     */
+    public long getRejectedConflict() {
+        return rejectedConflict;
+    }
+    
+    /***************************************************************************
+     * Returns the total number of tiles rejected for any reason
+     * @return the number of rejected tiles
+     */
+    public long getRejected() {
+        return rejectedOutOfBounds + rejectedAlreadyPath + rejectedConflict;
+    }
+    
+    /***************************************************************************
+     * Returns the number of start tiles drawn again after the first
+     * @return the number of start tile retries
+     */
+    public long getStartRetries() {
+        return startRetries;
+    }
+    
+    /***************************************************************************
+     * Returns the number of end tiles drawn again after the first
+     * @return the number of end tile retries
+     */
+    public long getEndRetries() {
+        return endRetries;
+    }
+    
+    /***************************************************************************
+     * Returns how long generation took
+     * @return the generation time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return "cellsCarved=" + cellsCarved
+                + " peakStackDepth=" + peakStackDepth
+                + " randomDraws=" + randomDraws
+                + " wastedDraws=" + wastedDraws
+                + " rejectedOutOfBounds=" + rejectedOutOfBounds
+                + " rejectedAlreadyPath=" + rejectedAlreadyPath
+                + " rejectedConflict=" + rejectedConflict
+                + " startRetries=" + startRetries
+                + " endRetries=" + endRetries
+                + " elapsedMillis=" + elapsedNanos / 1000000;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets another thread follow and cancel a maze generation. Every few
+ * thousand tiles the generating thread reports how many tiles it has carved
+ * and the range of tile indices it carved since its last report, and checks
+ * whether it has been cancelled. The ranges pile up here until a viewer takes
+ * them, so however often the viewer polls, the generator never waits on it.
+ * @author Julian
+ */
+public class GenerationMonitor {
+    
+    /** Tiles carved between reports */
+    static final int REPORT_INTERVAL = 1 << 14;
+    
+    /** A monitor for generations nobody watches; it cannot be cancelled */
+    static final GenerationMonitor NONE = new GenerationMonitor() {
+        @Override
+        void report(long tilesCarved, int lowTile, int highTile) {
+        }
+        
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException();
+        }
+    };
+    
+    private volatile boolean cancelled;
+    private volatile long tilesCarved;
+    private volatile long expectedTiles;
+    
+    // Tiles carved since the last takeDirtyRange, guarded by this
+    private int dirtyLow = Integer.MAX_VALUE;
+    private int dirtyHigh = -1;
+    
+    
+    /***************************************************************************
+     * Asks the generation to stop. The generating thread throws a
+     * CancellationException at its next report, leaving the maze unfinished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /***************************************************************************
+     * Determines if the generation has been asked to stop
+     * @return True if cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles carved as of the last report
+     * @return the number of tiles carved
+     */
+    public long getTilesCarved() {
+        return tilesCarved;
+    }
+    
+    /***************************************************************************
+     * Returns an estimate of how far along the generation is. Every
+     * algorithm carves about half of the tiles, which the estimate is based
+     * on, so it can stop short of 1 until the generation finishes.
+     * @return the fraction done, from 0 to 1
+     */
+    public double getProgress() {
+        long expected = expectedTiles;
+        return expected == 0 ? 0 : Math.min(1, (double) tilesCarved / expected);
+    }
+    
+    /***************************************************************************
+     * Returns the range of tiles carved since the last call, and clears it
+     * @return the lowest and highest tile index carved, or null if none were
+     */
+    public synchronized int[] takeDirtyRange() {
+        if (dirtyHigh < 0) {
+            return null;
+        }
+        int[] range = { dirtyLow, dirtyHigh };
+        dirtyLow = Integer.MAX_VALUE;
+        dirtyHigh = -1;
+        return range;
+    }
+    
+    /***************************************************************************
+     * Starts following a new generation
+     * @param expected The number of tiles the generation should carve
+     */
+    void start(long expected) {
+        tilesCarved = 0;
+        expectedTiles = Math.max(1, expected);
+    }
+    
+    /***************************************************************************
+     * Records progress, called from the generating thread
+     * @param carved The number of tiles carved so far
+     * @param lowTile The lowest tile index carved since the last report
+     * @param highTile The highest tile index carved since the last report
+     */
+    void report(long carved, int lowTile, int highTile) {
+        tilesCarved = carved;
+        if (lowTile <= highTile) {
+            synchronized (this) {
+                dirtyLow = Math.min(dirtyLow, lowTile);
+                dirtyHigh = Math.max(dirtyHigh, highTile);
+            }
+        }
+    }
+    
+    /***************************************************************************
+     * Stops the generating thread if the generation has been cancelled
+     * @throws CancellationException if cancel has been called
+     */
+    void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Maze generation was cancelled");
+        }
+    }
+}
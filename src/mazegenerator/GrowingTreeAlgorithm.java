@@ -0,0 +1,117 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Locale;
+
+/**
+ * The growing tree algorithm: keeps a list of active cells, takes one by a
+ * selection policy, and joins it to a random neighbor not yet in the maze,
+ * adding that neighbor to the list, or drops it once it has none. Picking
+ * the newest cell behaves like a depth first search and picking at random
+ * like Prim's algorithm. Every cell enters the list once, so the list is a
+ * single int[] of one entry per cell.
+ * @author Julian
+ */
+public class GrowingTreeAlgorithm extends CellMazeAlgorithm {
+    
+    /**
+     * Which active cell to grow from next.
+     */
+    public enum Selection {
+        /** The most recently added cell: long winding corridors */
+        NEWEST,
+        /** The oldest cell: short corridors radiating from the start */
+        OLDEST,
+        /** A random cell: many short dead ends */
+        RANDOM,
+        /** The newest or a random cell with even odds */
+        NEWEST_OR_RANDOM
+    }
+    
+    private final Selection selection;
+    
+    
+    public GrowingTreeAlgorithm() {
+        this(Selection.NEWEST_OR_RANDOM);
+    }
+    
+    public GrowingTreeAlgorithm(Selection selection) {
+        this.selection = selection;
+    }
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        int[] active = new int[columns * rows];
+        int[] neighbors = new int[4];
+        int[] candidates = new int[4];
+        int head = 0;
+        int tail = 0;
+        int peak = 0;
+        long draws = 1;
+        
+        int first = rand.nextInt(active.length);
+        open(grid, columns, first, progress);
+        active[tail++] = first;
+        
+        while (tail > head) {
+            peak = Math.max(peak, tail - head);
+            int index;
+            switch (selection) {
+                case NEWEST:
+                    index = tail - 1;
+                    break;
+                case OLDEST:
+                    index = head;
+                    break;
+                case RANDOM:
+                    index = head + rand.nextInt(tail - head);
+                    draws++;
+                    break;
+                default:
+                    index = rand.nextBoolean() ? tail - 1
+                            : head + rand.nextInt(tail - head);
+                    draws += 2;
+                    break;
+            }
+            int cell = active[index];
+            
+            int n = neighbors(cell, columns, rows, neighbors);
+            int unvisited = 0;
+            for (int i = 0; i < n; i++) {
+                if (!isOpen(grid, columns, neighbors[i])) {
+                    candidates[unvisited++] = neighbors[i];
+                }
+            }
+            if (unvisited == 0) {
+                // Drop the cell, keeping the list contiguous
+                if (index == tail - 1) {
+                    tail--;
+                } else if (index == head) {
+                    head++;
+                } else {
+                    active[index] = active[--tail];
+                }
+                continue;
+            }
+            
+            int target = candidates[rand.nextInt(unvisited)];
+            draws++;
+            join(grid, columns, target, cell, progress);
+            active[tail++] = target;
+        }
+        counts.randomDraws += draws;
+        counts.peakStackDepth = Math.max(counts.peakStackDepth, peak);
+    }
+    
+    @Override
+    public String getName() {
+        return "Growing Tree (" + selection.name().toLowerCase(Locale.ROOT)
+                .replace('_', ' ') + ")";
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * A least recently used cache of rendered image blocks, capped by the number
+ * of bytes the images hold rather than by their count.
+ * <p>
+ * Blocks thrown away because the maze changed are kept as spares, up to a
+ * quarter of the cache's limit with the oldest dropped first, and handed
+ * back out to be drawn over, so a maze that is redrawn over and over reuses
+ * the same images. Blocks evicted to make room are not, as they may still be
+ * in use by whoever asked for the block that pushed them out.
+ * <p>
+ * Blocks are rendered on a background thread while they are painted on the
+ * event dispatch thread, so every method is synchronized. A block rendered
+ * while blocks were being thrown away may show the maze as it was before,
+ * so the cache counts each time blocks are thrown away and only takes a
+ * block rendered since the last time.
+ * @author Julian
+ */
+class ImageBlockCache {
+
+    private final long maxBytes;
+    private long bytes;
+
+    private final LinkedHashMap<Long, BufferedImage> blocks;
+
+    private final ArrayDeque<BufferedImage> spares;
+    private long spareBytes;
+
+    // Counts the times blocks were thrown away
+    private int generation;
+
+
+    public ImageBlockCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        bytes = 0;
+        blocks = new LinkedHashMap<>(256, 0.75f, true);
+        spares = new ArrayDeque<>();
+    }
+
+    /***************************************************************************
+     * Returns the key of a block
+     * @param zoom The zoom level of the block
+     * @param blockX The column of the block
+     * @param blockY The row of the block
+     * @return the key of the block
+     */
+    public static long key(int zoom, int blockX, int blockY) {
+        return ((long) (zoom & 0xFF) << 56) | ((long) blockX << 28) | blockY;
+    }
+
+    /***************************************************************************
+     * Returns a cached block, marking it as the most recently used
+     * @param key The key of the block
+     * @return the block, or null if it is not cached
+     */
+    public synchronized BufferedImage get(long key) {
+        return blocks.get(key);
+    }
+
+    /***************************************************************************
+     * Caches a block, evicting the least recently used blocks until the cache
+     * fits in its byte limit again. The block just added is never evicted.
+     * @param key The key of the block
+     * @param block The rendered block
+     */
+    public synchronized void put(long key, BufferedImage block) {
+        BufferedImage old = blocks.put(key, block);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += sizeOf(block);
+
+        Iterator<Map.Entry<Long, BufferedImage>> eldest =
+                blocks.entrySet().iterator();
+        while (bytes > maxBytes && blocks.size() > 1) {
+            Map.Entry<Long, BufferedImage> entry = eldest.next();
+            bytes -= sizeOf(entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /***************************************************************************
+     * Caches a block unless blocks have been thrown away since it started
+     * being rendered. See put(long, BufferedImage).
+     * @param key The key of the block
+     * @param block The rendered block
+     * @param generation The generation the block was rendered from
+     * @return True if the block was cached, false if it may be out of date
+     */
+    public synchronized boolean put(long key, BufferedImage block,
+            int generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        put(key, block);
+        return true;
+    }
+
+    /***************************************************************************
+     * Returns the number of times blocks have been thrown away, to be passed
+     * back to put with a block rendered from the maze as it is now
+     * @return the current generation
+     */
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    /***************************************************************************
+     * Removes the blocks whose keys match
+     * @param matches Tests the key of each block
+     */
+    public synchronized void removeIf(LongPredicate matches) {
+        generation++;
+        Iterator<Map.Entry<Long, BufferedImage>> entries =
+                blocks.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, BufferedImage> entry = entries.next();
+            if (matches.test(entry.getKey())) {
+                bytes -= sizeOf(entry.getValue());
+                entries.remove();
+                addSpare(entry.getValue());
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Returns the zoom level in a block key
+     * @param key The key of the block
+     * @return the zoom level of the block
+     */
+    public static int zoomOf(long key) {
+        return (byte) (key >>> 56);
+    }
+
+    /***************************************************************************
+     * Returns the row in a block key
+     * @param key The key of the block
+     * @return the row of the block
+     */
+    public static int blockYOf(long key) {
+        return (int) (key & ((1L << 28) - 1));
+    }
+
+    /***************************************************************************
+     * Removes every block from the cache
+     */
+    public synchronized void clear() {
+        generation++;
+        for (BufferedImage block : blocks.values()) {
+            addSpare(block);
+        }
+        blocks.clear();
+        bytes = 0;
+    }
+
+    /***************************************************************************
+     * Takes a spare image to draw a block over, if one of the right size and
+     * type was thrown away
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param type The BufferedImage type of the image
+     * @return the spare image, with old pixels in it, or null if there is none
+     */
+    public synchronized BufferedImage takeSpare(int width, int height, int type) {
+        Iterator<BufferedImage> candidates = spares.iterator();
+        while (candidates.hasNext()) {
+            BufferedImage spare = candidates.next();
+            if (spare.getWidth() == width && spare.getHeight() == height
+                    && spare.getType() == type) {
+                candidates.remove();
+                spareBytes -= sizeOf(spare);
+                return spare;
+            }
+        }
+        return null;
+    }
+
+    private void addSpare(BufferedImage block) {
+        spares.push(block);
+        spareBytes += sizeOf(block);
+        while (spareBytes > maxBytes / 4 && !spares.isEmpty()) {
+            spareBytes -= sizeOf(spares.removeLast());
+        }
+    }
+
+    /***************************************************************************
+     * Returns the number of bytes held by cached blocks
+     * @return the number of bytes held by cached blocks
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static long sizeOf(BufferedImage block) {
+        DataBuffer buffer = block.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
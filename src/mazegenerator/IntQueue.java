@@ -0,0 +1,90 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A growable first in, first out ring buffer of primitive ints, used to hold
+ * tile indices without boxing them.
+ * @author Julian
+ */
+class IntQueue {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] elements;
+    private int head;
+    private int size;
+
+
+    public IntQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntQueue(int initialCapacity) {
+        elements = new int[Integer.highestOneBit(
+                Math.max(2, initialCapacity) - 1) << 1];
+        head = 0;
+        size = 0;
+    }
+
+    /***************************************************************************
+     * Adds a value to the back of the queue
+     * @param value The value to add
+     */
+    public void add(int value) {
+        if (size == elements.length) {
+            int[] grown = new int[elements.length << 1];
+            int firstPart = elements.length - head;
+            System.arraycopy(elements, head, grown, 0, firstPart);
+            System.arraycopy(elements, 0, grown, firstPart, head);
+            elements = grown;
+            head = 0;
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /***************************************************************************
+     * Removes and returns the value at the front of the queue
+     * @return the value that was at the front of the queue
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /***************************************************************************
+     * Determines if the queue is empty
+     * @return True if the queue holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /***************************************************************************
+     * Returns the number of values in the queue
+     * @return the number of values in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /***************************************************************************
+     * Removes every value from the queue, keeping its capacity
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
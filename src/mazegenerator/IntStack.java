@@ -0,0 +1,97 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable stack of primitive ints, used to hold tile indices without
+ * boxing them.
+ * @author Julian
+ */
+class IntStack {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] elements;
+    private int size;
+
+
+    public IntStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntStack(int initialCapacity) {
+        elements = new int[Math.max(1, initialCapacity)];
+        size = 0;
+    }
+
+    /***************************************************************************
+     * Pushes a value on top of the stack
+     * @param value The value to push
+     */
+    public void push(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        elements[size++] = value;
+    }
+
+    /***************************************************************************
+     * Returns the value on top of the stack without removing it
+     * @return the value on top of the stack
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[size - 1];
+    }
+
+    /***************************************************************************
+     * Removes and returns the value on top of the stack
+     * @return the value that was on top of the stack
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[--size];
+    }
+
+    /***************************************************************************
+     * Determines if the stack is empty
+     * @return True if the stack holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /***************************************************************************
+     * Returns the number of values on the stack
+     * @return the number of values on the stack
+     */
+    public int size() {
+        return size;
+    }
+
+    /***************************************************************************
+     * Returns the values on the stack, from bottom to top
+     * @return a new array of the values
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /***************************************************************************
+     * Removes every value from the stack, keeping its capacity
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Kruskal's algorithm: every wall between two cells is shuffled, then walls
+ * are opened in that order whenever they join two separate trees, tracked by
+ * a flat int[] union-find. Uses three ints per cell and makes one random draw
+ * per wall, with no rejections.
+ * @author Julian
+ */
+public class KruskalAlgorithm extends CellMazeAlgorithm {
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        int cells = columns * rows;
+        
+        // Wall 2 * c joins cell c to its right, 2 * c + 1 to the one below
+        int[] walls = new int[(columns - 1) * rows + columns * (rows - 1)];
+        int count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (cell % columns < columns - 1) {
+                walls[count++] = cell * 2;
+            }
+            if (cell / columns < rows - 1) {
+                walls[count++] = cell * 2 + 1;
+            }
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int swap = walls[i];
+            walls[i] = walls[j];
+            walls[j] = swap;
+        }
+        counts.randomDraws += Math.max(0, count - 1);
+        
+        int[] parent = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            parent[cell] = cell;
+            open(grid, columns, cell, progress);
+        }
+        
+        int trees = cells;
+        for (int i = 0; i < count && trees > 1; i++) {
+            int cell = walls[i] >> 1;
+            int other = (walls[i] & 1) == 0 ? cell + 1 : cell + columns;
+            int a = find(parent, cell);
+            int b = find(parent, other);
+            if (a != b) {
+                parent[a] = b;
+                join(grid, columns, cell, other, progress);
+                trees--;
+            }
+        }
+    }
+    
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+    
+    @Override
+    public String getName() {
+        return "Kruskal";
+    }
+}
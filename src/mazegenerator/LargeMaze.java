@@ -0,0 +1,467 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A seeded maze whose tiles are held in OffHeapMazeGrids, for mazes with more
+ * tiles than fit in an int index or on the Java heap. It is carved by
+ * ParallelMazeCarver in regions, solved without a search queue and written
+ * out a row at a time, so nothing on the heap grows with the size of the
+ * maze.
+ * <p>
+ * The maze is solved by following the wall on one side from the start until
+ * the end is reached. In a perfect maze that walk crosses every tile edge on
+ * the solution once and every other edge it crosses twice, so keeping one
+ * parity bit per edge leaves exactly the solution's edges set, and the
+ * solution is then read off by walking them from the start. That takes two
+ * bits per tile while solving and one per tile for the solution.
+ * @author Julian
+ */
+public class LargeMaze implements Closeable {
+
+    private static final String USAGE = "Usage: --large <width> <height>"
+            + " <tileSize> <seed> <file.png|file.svg> [mapDirectory]";
+
+    public static final int DEFAULT_REGION_SIZE = 1024;
+
+    // Directions of the wall follower, in turning order
+    private static final int[] DIRECTION_X = { 1, 0, -1, 0 };
+    private static final int[] DIRECTION_Y = { 0, 1, 0, -1 };
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final long seed;
+    private final RandomAlgorithm algorithm;
+    private final File directory;
+    private final OffHeapMazeGrid grid;
+
+    private OffHeapMazeGrid solution;
+    private long solutionLength = -1;
+    private long start = -1;
+    private long end = -1;
+    private GenerationMetrics metrics;
+
+
+    /***************************************************************************
+     * Creates a maze of walls in direct memory
+     * @param mazeWidth The width of the maze in tiles
+     * @param mazeHeight The height of the maze in tiles
+     * @param seed The seed to generate the maze from
+     * @param algorithm The random number generator to use
+     */
+    public LargeMaze(int mazeWidth, int mazeHeight, long seed,
+            RandomAlgorithm algorithm) {
+        this(mazeWidth, mazeHeight, seed, algorithm,
+                new OffHeapMazeGrid(mazeWidth, mazeHeight), null);
+    }
+
+    /***************************************************************************
+     * Creates a maze of walls in temporary files mapped into memory
+     * @param mazeWidth The width of the maze in tiles
+     * @param mazeHeight The height of the maze in tiles
+     * @param seed The seed to generate the maze from
+     * @param algorithm The random number generator to use
+     * @param directory The directory to create the files in
+     * @throws IOException if the files cannot be created
+     */
+    public LargeMaze(int mazeWidth, int mazeHeight, long seed,
+            RandomAlgorithm algorithm, File directory) throws IOException {
+        this(mazeWidth, mazeHeight, seed, algorithm,
+                new OffHeapMazeGrid(mazeWidth, mazeHeight, directory),
+                directory);
+    }
+
+    private LargeMaze(int mazeWidth, int mazeHeight, long seed,
+            RandomAlgorithm algorithm, OffHeapMazeGrid grid, File directory) {
+        if (mazeWidth <= 10 || mazeHeight <= 10) {
+            throw new IllegalArgumentException("A maze must be at least"
+                    + " 11x11 tiles: " + mazeWidth + "x" + mazeHeight);
+        }
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.seed = seed;
+        this.algorithm = algorithm;
+        this.grid = grid;
+        this.directory = directory;
+    }
+
+    /***************************************************************************
+     * Generates, solves and writes a large maze from command line arguments.
+     * @param args The command line arguments, starting with "--large"
+     * @return the process exit code
+     */
+    public static int runFromCommandLine(String[] args) {
+        if (args.length != 6 && args.length != 7) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        int width;
+        int height;
+        int tileSize;
+        long seed;
+        String file = args[5];
+        try {
+            width = Integer.parseInt(args[1]);
+            height = Integer.parseInt(args[2]);
+            tileSize = Integer.parseInt(args[3]);
+            seed = Long.parseLong(args[4]);
+        } catch (NumberFormatException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (width <= 10 || height <= 10 || tileSize <= 0) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try (LargeMaze maze = args.length == 7
+                ? new LargeMaze(width, height, seed,
+                        RandomAlgorithm.SPLITTABLE, new File(args[6]))
+                : new LargeMaze(width, height, seed,
+                        RandomAlgorithm.SPLITTABLE)) {
+            long startTime = System.nanoTime();
+            maze.generate(DEFAULT_REGION_SIZE, ForkJoinPool.commonPool());
+            long generated = System.nanoTime();
+            long length = maze.solve();
+            long solved = System.nanoTime();
+
+            try (OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(file))) {
+                if (file.endsWith(".svg")) {
+                    try (SvgMazeWriter svg = new SvgMazeWriter(out, width,
+                            height, tileSize)) {
+                        maze.writeRows(svg);
+                    }
+                } else {
+                    try (PngMazeWriter png = new PngMazeWriter(out, width,
+                            height, tileSize)) {
+                        maze.writeRows(png);
+                    }
+                }
+            }
+            long written = System.nanoTime();
+
+            System.out.printf(Locale.ROOT, "%dx%d maze (%d tiles): generated"
+                    + " in %.2f s, solved in %.2f s (%d tiles), written in"
+                    + " %.2f s%n", width, height, maze.size(),
+                    (generated - startTime) / 1e9, (solved - generated) / 1e9,
+                    length, (written - solved) / 1e9);
+        } catch (IOException e) {
+            System.err.println("There was an error writing the maze: "
+                    + e.getMessage());
+            return 1;
+        } catch (OutOfMemoryError e) {
+            System.err.println("The maze does not fit in direct memory; give"
+                    + " a directory to map it in instead.");
+            return 1;
+        }
+        return 0;
+    }
+
+    /***************************************************************************
+     * Carves the maze in square regions on a pool, then opens a start tile on
+     * the left edge and an end tile on the right edge
+     * @param regionSize The width and height of a region in tiles, including
+     * the wall line it shares with the next region
+     * @param pool The pool to carve regions on
+     * @throws IllegalStateException if the regions could not be joined,
+     * which only happens with tiny regions
+     */
+    public void generate(int regionSize, ForkJoinPool pool) {
+        if (regionSize < ParallelMazeCarver.MIN_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size must be at least "
+                    + ParallelMazeCarver.MIN_REGION_SIZE + ": " + regionSize);
+        }
+        grid.clear();
+        closeSolution();
+        long startTime = System.nanoTime();
+        GenerationMetrics counts = new GenerationMetrics();
+        MazeRandom rand = algorithm.newRandom(seed);
+
+        if (!new ParallelMazeCarver(grid, rand, regionSize, counts)
+                .carve(pool)) {
+            throw new IllegalStateException("The regions of the maze could"
+                    + " not be joined; use a larger region size");
+        }
+        start = grid.index(0, edgeRow(rand, 1, counts));
+        end = grid.index(mazeWidth - 1, edgeRow(rand, mazeWidth - 2, counts));
+        grid.setPath(start, true);
+        grid.setPath(end, true);
+
+        counts.elapsedNanos = System.nanoTime() - startTime;
+        metrics = counts;
+    }
+
+    /***************************************************************************
+     * Draws rows until one has a path tile in a column next to the edge
+     * @param rand The random number generator to draw from
+     * @param x The column next to the edge
+     * @param counts The counters to add the draws to
+     * @return the row drawn
+     */
+    private int edgeRow(MazeRandom rand, int x, GenerationMetrics counts) {
+        int y;
+        do {
+            y = rand.nextInt(mazeHeight - 2) + 1;
+            counts.randomDraws++;
+        } while (!grid.isPath(x, y));
+        return y;
+    }
+
+    /***************************************************************************
+     * Finds the path from the start tile to the end tile with a wall
+     * follower, keeping it as an overlay of the tiles on it
+     * @return the number of tiles on the path, including the start and end,
+     * or -1 if the end cannot be reached from the start
+     * @throws IOException if the files to solve in cannot be created
+     * @throws IllegalStateException if the maze has not been generated, or
+     * has loops
+     */
+    public long solve() throws IOException {
+        if (start < 0) {
+            throw new IllegalStateException("The maze has not been generated");
+        }
+        closeSolution();
+
+        // Parity of the edge to the right of and above each tile
+        try (OffHeapMazeGrid right = newGrid(); OffHeapMazeGrid up = newGrid()) {
+            if (!follow(right, up)) {
+                return -1;
+            }
+            solution = newGrid();
+            solutionLength = trace(right, up);
+        }
+        return solutionLength;
+    }
+
+    /***************************************************************************
+     * Follows the wall on the right from the start until the end, flipping
+     * the parity bit of every edge crossed
+     * @return True if the end was reached, false if the walk came back to
+     * the start without reaching it
+     */
+    private boolean follow(OffHeapMazeGrid right, OffHeapMazeGrid up) {
+        int xStart = grid.xOf(start);
+        int yStart = grid.yOf(start);
+        int xEnd = grid.xOf(end);
+        int yEnd = grid.yOf(end);
+        int x = xStart;
+        int y = yStart;
+        int direction = 0;
+
+        while (x != xEnd || y != yEnd) {
+            // The start is on the edge with a single way in, so the walk is
+            // back at it only after going around everything reachable.
+            if (direction == 2 && x == xStart && y == yStart) {
+                return false;
+            }
+
+            // Try right of the way we face, then ahead, left and back
+            for (int turn = 3; turn < 7; turn++) {
+                int d = (direction + turn) & 3;
+                int nx = x + DIRECTION_X[d];
+                int ny = y + DIRECTION_Y[d];
+                if (nx < 0 || ny < 0 || nx >= mazeWidth || ny >= mazeHeight
+                        || !grid.isPath(nx, ny)) {
+                    continue;
+                }
+                if (nx != x) {
+                    flip(right, Math.min(x, nx), y);
+                } else {
+                    flip(up, x, Math.min(y, ny));
+                }
+                x = nx;
+                y = ny;
+                direction = d;
+                break;
+            }
+        }
+        return true;
+    }
+
+    /***************************************************************************
+     * Walks the edges left set by the wall follower from the start to the
+     * end, marking the tiles on the way
+     * @return the number of tiles on the path
+     */
+    private long trace(OffHeapMazeGrid right, OffHeapMazeGrid up) {
+        int x = grid.xOf(start);
+        int y = grid.yOf(start);
+        int xEnd = grid.xOf(end);
+        int yEnd = grid.yOf(end);
+        int from = -1;
+        long length = 1;
+        solution.setPath(x, y, true);
+
+        while (x != xEnd || y != yEnd) {
+            int next = -1;
+            for (int d = 0; d < 4; d++) {
+                if (d == (from ^ 2)) {
+                    continue;
+                }
+                int nx = x + DIRECTION_X[d];
+                int ny = y + DIRECTION_Y[d];
+                if (nx < 0 || ny < 0 || nx >= mazeWidth
+                        || ny >= mazeHeight) {
+                    continue;
+                }
+                boolean set = nx != x ? right.isPath(Math.min(x, nx), y)
+                        : up.isPath(x, Math.min(y, ny));
+                if (set) {
+                    if (next >= 0) {
+                        throw new IllegalStateException("The maze has loops");
+                    }
+                    next = d;
+                }
+            }
+            if (next < 0) {
+                throw new IllegalStateException("The maze has loops");
+            }
+            x += DIRECTION_X[next];
+            y += DIRECTION_Y[next];
+            from = next;
+            solution.setPath(x, y, true);
+            length++;
+        }
+        return length;
+    }
+
+    private static void flip(OffHeapMazeGrid edges, int x, int y) {
+        edges.setPath(x, y, !edges.isPath(x, y));
+    }
+
+    private OffHeapMazeGrid newGrid() throws IOException {
+        return directory == null ? new OffHeapMazeGrid(mazeWidth, mazeHeight)
+                : new OffHeapMazeGrid(mazeWidth, mazeHeight, directory);
+    }
+
+    private void closeSolution() {
+        if (solution != null) {
+            try {
+                solution.close();
+            } catch (IOException e) {
+                System.err.println("There was an error deleting a solution"
+                        + " file: " + e.getMessage());
+            }
+            solution = null;
+            solutionLength = -1;
+        }
+    }
+
+    /***************************************************************************
+     * Passes every row of the maze to a consumer in order, top row first
+     * @param consumer The consumer of the rows
+     * @throws IOException if the consumer fails
+     */
+    public void writeRows(MazeRowConsumer consumer) throws IOException {
+        long[] row = new long[(mazeWidth + 63) >>> 6];
+        for (int y = 0; y < mazeHeight; y++) {
+            grid.copyRow(y, row);
+            consumer.acceptRow(y, row);
+        }
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    public boolean isPath(int x, int y) {
+        return grid.isPath(x, y);
+    }
+
+    /***************************************************************************
+     * Determines if a tile is on the solution found by solve()
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is on the solution, otherwise false
+     * @throws IllegalStateException if the maze has not been solved
+     */
+    public boolean isOnSolution(int x, int y) {
+        if (solution == null) {
+            throw new IllegalStateException("The maze has not been solved");
+        }
+        return solution.isPath(x, y);
+    }
+
+    /***************************************************************************
+     * Returns the length of the solution found by solve()
+     * @return the number of tiles on the solution, or -1 if not solved
+     */
+    public long getSolutionLength() {
+        return solutionLength;
+    }
+
+    /***************************************************************************
+     * Returns the tile index of the start tile
+     * @return the index of the start tile, or -1 before generation
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /***************************************************************************
+     * Returns the tile index of the end tile
+     * @return the index of the end tile, or -1 before generation
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /***************************************************************************
+     * Returns the counters of the last generation
+     * @return the generation metrics, or null before generation
+     */
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /***************************************************************************
+     * Returns the grid holding the maze's tiles
+     * @return the grid of the maze
+     */
+    public OffHeapMazeGrid getGrid() {
+        return grid;
+    }
+
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+
+    public int getMazeHeight() {
+        return mazeHeight;
+    }
+
+    /***************************************************************************
+     * Returns the number of tiles in the maze
+     * @return width * height
+     */
+    public long size() {
+        return grid.size();
+    }
+
+    /***************************************************************************
+     * Closes the grids of the maze and deletes their files, if any
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closeSolution();
+        grid.close();
+    }
+}
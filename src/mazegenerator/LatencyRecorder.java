@@ -0,0 +1,83 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Keeps the most recent request latencies in a fixed ring so percentiles can
+ * be reported without the memory growing with the number of requests.
+ * @author Julian
+ */
+class LatencyRecorder {
+
+    private final long[] latencies;
+    private long count;
+    private long maxNanos;
+
+
+    public LatencyRecorder(int capacity) {
+        latencies = new long[capacity];
+    }
+
+    /***************************************************************************
+     * Records the latency of one request
+     * @param nanos The latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        latencies[(int) (count % latencies.length)] = nanos;
+        count++;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /***************************************************************************
+     * Returns the number of requests recorded
+     * @return the number of requests recorded
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /***************************************************************************
+     * Returns percentiles of the recent latencies
+     * @param percentiles The percentiles to find, each from 0 to 100
+     * @return the latency at each percentile in nanoseconds, or zeros if no
+     * request has been recorded
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies,
+                    (int) Math.min(count, latencies.length));
+        }
+        Arrays.sort(sorted);
+
+        long[] values = new long[percentiles.length];
+        if (sorted.length > 0) {
+            for (int i = 0; i < percentiles.length; i++) {
+                int rank = (int) Math.ceil(percentiles[i] / 100
+                        * sorted.length) - 1;
+                values[i] = sorted[Math.max(0, Math.min(rank,
+                        sorted.length - 1))];
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        long[] p = percentiles(50, 90, 99);
+        long max;
+        synchronized (this) {
+            max = maxNanos;
+        }
+        return String.format(Locale.ROOT, "requests=%d p50=%.2fms p90=%.2fms"
+                + " p99=%.2fms max=%.2fms", getCount(), p[0] / 1e6,
+                p[1] / 1e6, p[2] / 1e6, max / 1e6);
+    }
+}
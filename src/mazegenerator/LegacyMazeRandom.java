@@ -0,0 +1,47 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Random;
+
+/**
+ * A MazeRandom backed by java.util.Random. Mazes generated with it match
+ * mazes generated for the same seed before generators were pluggable.
+ * @author Julian
+ */
+public class LegacyMazeRandom implements MazeRandom {
+    
+    private final Random rand;
+    
+    public LegacyMazeRandom() {
+        rand = new Random();
+    }
+    
+    public LegacyMazeRandom(long seed) {
+        rand = new Random(seed);
+    }
+    
+    @Override
+    public int nextInt(int bound) {
+        return rand.nextInt(bound);
+    }
+    
+    @Override
+    public boolean nextBoolean() {
+        return rand.nextBoolean();
+    }
+    
+    @Override
+    public long nextLong() {
+        return rand.nextLong();
+    }
+    
+    @Override
+    public MazeRandom withSeed(long seed) {
+        return new LegacyMazeRandom(seed);
+    }
+}
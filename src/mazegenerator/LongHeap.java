@@ -0,0 +1,92 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable binary min-heap of primitive longs. Callers pack a priority in
+ * the high bits and a tile index in the low bits so entries need no objects.
+ * @author Julian
+ */
+class LongHeap {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] elements;
+    private int size;
+
+
+    public LongHeap() {
+        elements = new long[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /***************************************************************************
+     * Adds a value to the heap
+     * @param value The value to add
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (elements[parent] <= value) {
+                break;
+            }
+            elements[i] = elements[parent];
+            i = parent;
+        }
+        elements[i] = value;
+    }
+
+    /***************************************************************************
+     * Removes and returns the smallest value in the heap
+     * @return the smallest value
+     */
+    public long poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long smallest = elements[0];
+        long last = elements[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && elements[child + 1] < elements[child]) {
+                child++;
+            }
+            if (last <= elements[child]) {
+                break;
+            }
+            elements[i] = elements[child];
+            i = child;
+        }
+        elements[i] = last;
+        return smallest;
+    }
+
+    /***************************************************************************
+     * Determines if the heap is empty
+     * @return True if the heap holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /***************************************************************************
+     * Returns the number of values in the heap
+     * @return the number of values in the heap
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -6,10 +6,19 @@
 
 package mazegenerator;
 
-import java.util.LinkedList;
-import java.util.Random;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
+ * A maze of path and wall tiles generated by a randomized DFS, or by any
+ * other MazeAlgorithm.
+ * <p>
+ * Each maze owns its random number generator, so any number of mazes can be
+ * generated at once on different threads. A seeded maze depends only on its
+ * dimensions, seed, RandomAlgorithm and MazeAlgorithm: for a given seed,
+ * {@code new Maze(w, h, ts, true, seed).generateMaze()} produces the same
+ * maze no matter which thread runs it or how many other mazes are being
+ * generated at the same time.
  * @author Julian
  */
 public class Maze {
@@ -19,357 +28,703 @@ public class Maze {
     private static final int UP = 2;
     private static final int DOWN = 3;
     
+    // Results of checkTile
+    static final int TILE_VALID = 0;
+    static final int TILE_OUT_OF_BOUNDS = 1;
+    static final int TILE_ALREADY_PATH = 2;
+    static final int TILE_CONFLICT = 3;
     
-    private static Random rand;
+    private static final int[] DIRECTION_X = { -1, 1, 0, 0 };
+    private static final int[] DIRECTION_Y = { 0, 0, 1, -1 };
+    
+    // Neighborhood tiles that must not be paths for a tile to be carved when
+    // heading in each direction. The tile we came from is never included.
+    private static final int[] CONFLICT_MASK = {
+        // LEFT: the whole left column, plus directly above and below
+        neighbor(-1, -1) | neighbor(-1, 0) | neighbor(-1, 1)
+                | neighbor(0, -1) | neighbor(0, 1),
+        // RIGHT: the whole right column, plus directly above and below
+        neighbor(1, -1) | neighbor(1, 0) | neighbor(1, 1)
+                | neighbor(0, -1) | neighbor(0, 1),
+        // UP: the whole row above, plus directly left and right
+        neighbor(-1, 1) | neighbor(0, 1) | neighbor(1, 1)
+                | neighbor(-1, 0) | neighbor(1, 0),
+        // DOWN: the whole row below, plus directly left and right
+        neighbor(-1, -1) | neighbor(0, -1) | neighbor(1, -1)
+                | neighbor(-1, 0) | neighbor(1, 0)
+    };
+    
+    
+    private MazeRandom rand;
+    
+    // How the generator was seeded; algorithm is null when unknown
+    private boolean usesSeed;
+    private long seed;
+    private RandomAlgorithm algorithm;
     
     private final int mazeWidth;
     private final int mazeHeight;
     protected int mazeTileSize;
     
-    public MazeTile[][] mazeTile;
+    private final MazeGrid grid;
+    
+    private MazeAlgorithm mazeAlgorithm;
+    
+    // Carved with, and kept so a maze that is reset does not grow it again
+    private IntStack tileStack;
     
-    public LinkedList<MazeTile> tileStack;
+    // Tile indices of the start and end, or -1 before generation
+    private int start;
+    private int end;
     
+    // Counters of the last generation, or null before generation
+    private GenerationMetrics metrics;
     
+    
+    /***************************************************************************
+     * Creates a maze using java.util.Random, so seeds give the same mazes
+     * they always have.
+     * @param mazeWidth The maze width in tiles
+     * @param mazeHeight The maze height in tiles
+     * @param mazeTileSize The size of a tile in pixels
+     * @param usesSeed True to generate from the seed, false for a random maze
+     * @param seed The seed, ignored if usesSeed is false
+     */
     public Maze(int mazeWidth, int mazeHeight, int mazeTileSize,
             boolean usesSeed, long seed) {
+        this(mazeWidth, mazeHeight, mazeTileSize, usesSeed, seed,
+                RandomAlgorithm.LEGACY);
+    }
+    
+    /***************************************************************************
+     * Creates a maze using the given random number generator algorithm.
+     * @param mazeWidth The maze width in tiles
+     * @param mazeHeight The maze height in tiles
+     * @param mazeTileSize The size of a tile in pixels
+     * @param usesSeed True to generate from the seed, false for a random maze
+     * @param seed The seed, ignored if usesSeed is false
+     * @param algorithm The random number generator algorithm
+     */
+    public Maze(int mazeWidth, int mazeHeight, int mazeTileSize,
+            boolean usesSeed, long seed, RandomAlgorithm algorithm) {
+        this(mazeWidth, mazeHeight, mazeTileSize, usesSeed
+                ? algorithm.newRandom(seed) : algorithm.newRandom(),
+                usesSeed, usesSeed ? seed : 0, algorithm);
+    }
+    
+    /***************************************************************************
+     * Creates a maze drawing from the given random number generator, which
+     * must not be shared with another maze.
+     * @param mazeWidth The maze width in tiles
+     * @param mazeHeight The maze height in tiles
+     * @param mazeTileSize The size of a tile in pixels
+     * @param rand The random number generator for this maze
+     */
+    public Maze(int mazeWidth, int mazeHeight, int mazeTileSize,
+            MazeRandom rand) {
+        this(mazeWidth, mazeHeight, mazeTileSize, rand, false, 0, null);
+    }
+    
+    private Maze(int mazeWidth, int mazeHeight, int mazeTileSize,
+            MazeRandom rand, boolean usesSeed, long seed,
+            RandomAlgorithm algorithm) {
         this.mazeWidth = mazeWidth;
         this.mazeHeight = mazeHeight;
         this.mazeTileSize = mazeTileSize;
+        this.rand = rand;
+        this.usesSeed = usesSeed;
+        this.seed = seed;
+        this.algorithm = algorithm;
         
-        if (usesSeed) {
-            this.rand = new Random(seed);
-        } else {
-            this.rand = new Random();
-        }
-        
-        tileStack = new LinkedList<>();
+        mazeAlgorithm = new DepthFirstAlgorithm();
         
-        // x, y coordinates
-        mazeTile = new MazeTile[mazeWidth][mazeHeight];
-        for (int x = 0; x < mazeTile.length; x++) {
-            for (int y = 0; y < mazeTile[x].length; y++) {
-                mazeTile[x][y] = new MazeTile(x, y);
-            }
-        }
+        grid = new MazeGrid(mazeWidth, mazeHeight);
+        start = -1;
+        end = -1;
     }
     
     
+    /***************************************************************************
+     * Determines if the maze can be reset for a new maze of a given size
+     * @param mazeWidth The width of the new maze in tiles
+     * @param mazeHeight The height of the new maze in tiles
+     * @return True if the maze has that size and was created from a
+     * RandomAlgorithm, so it can be reseeded, otherwise false
+     */
+    public boolean canReset(int mazeWidth, int mazeHeight) {
+        return this.mazeWidth == mazeWidth && this.mazeHeight == mazeHeight
+                && algorithm != null;
+    }
+    
+    /***************************************************************************
+     * Turns the maze back into all walls with a new seed, so it can be
+     * generated again without allocating a new grid. The RandomAlgorithm and
+     * MazeAlgorithm are kept, so the maze then generates exactly what a new
+     * Maze with the same seed would.
+     * @param mazeTileSize The size of a tile in pixels
+     * @param usesSeed True to generate from the seed, false for a random maze
+     * @param seed The seed, ignored if usesSeed is false
+     * @throws IllegalStateException if the maze was given its own MazeRandom
+     */
+    public void reset(int mazeTileSize, boolean usesSeed, long seed) {
+        if (algorithm == null) {
+            throw new IllegalStateException("A maze given its own MazeRandom"
+                    + " cannot be reseeded");
+        }
+        this.mazeTileSize = mazeTileSize;
+        this.usesSeed = usesSeed;
+        this.seed = usesSeed ? seed : 0;
+        rand = usesSeed ? algorithm.newRandom(seed) : algorithm.newRandom();
+        
+        grid.clear();
+        start = -1;
+        end = -1;
+        metrics = null;
+    }
+    
     /***************************************************************************
      * Generates a maze based on constructed object variables. Handles adding
      * the start and end of the maze on top of calling recursive generation.
      */
     public void generateMaze() {
+        generateMaze(GenerationMonitor.NONE);
+    }
+    
+    /***************************************************************************
+     * Generates the maze while reporting progress to a monitor, which another
+     * thread can use to follow the generation and cancel it. The grid may be
+     * read while it is being carved, though tiles can show up late.
+     * @param monitor The monitor to report to
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled, in which case the maze is left unfinished and should be
+     * thrown away
+     */
+    public void generateMaze(GenerationMonitor monitor) {
+        MazeGenerationEvent event = new MazeGenerationEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        GenerationMetrics counts = new GenerationMetrics();
         
-        // Add start tile
-        int xStart = 0;
-        int yStart = 0;
+        monitor.start((long) mazeWidth * mazeHeight / 2);
+        if (tileStack == null) {
+            tileStack = new IntStack();
+        }
+        // A cancelled carve leaves tiles on the stack
+        tileStack.clear();
+        start = mazeAlgorithm.carve(grid, rand, tileStack, counts, monitor);
         
-        if (rand.nextBoolean()) {
-            yStart = rand.nextInt(mazeHeight-1) + 1;
-        } else {
-            xStart = rand.nextInt(mazeWidth-1) + 1;
+        addEnd(grid.xOf(start), counts);
+        finish(event, counts, startTime, mazeAlgorithm.getName());
+    }
+    
+    /***************************************************************************
+     * Generates a maze in parallel on the common ForkJoinPool. See
+     * generateMazeParallel(int, ForkJoinPool).
+     * @param regionSize The width and height of a region in tiles, including
+     * the wall line it shares with the next region
+     */
+    public void generateMazeParallel(int regionSize) {
+        generateMazeParallel(regionSize, ForkJoinPool.commonPool());
+    }
+    
+    /***************************************************************************
+     * Generates a maze by splitting it into square regions, carving every
+     * region with its own DFS in parallel, then opening one tile in the wall
+     * between chosen pairs of neighboring regions so the regions form a
+     * spanning tree. The result is a single perfect maze with the same one
+     * tile wide corridors generateMaze produces, and is the same for a given
+     * seed and region size however many threads the pool has. It is not the
+     * maze generateMaze produces for the same seed.
+     * @param regionSize The width and height of a region in tiles, including
+     * the wall line it shares with the next region
+     * @param pool The pool to carve regions on
+     */
+    public void generateMazeParallel(int regionSize, ForkJoinPool pool) {
+        if (regionSize < ParallelMazeCarver.MIN_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size must be at least "
+                    + ParallelMazeCarver.MIN_REGION_SIZE + ": " + regionSize);
+        }
+        
+        MazeGenerationEvent event = new MazeGenerationEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        GenerationMetrics counts = new GenerationMetrics();
+        
+        if (!new ParallelMazeCarver(grid, rand, regionSize, counts)
+                .carve(pool)) {
+            // Some region could not be reached from its neighbors; this only
+            // happens with tiny regions, so fall back to a single DFS. It is
+            // called directly, as the maze's own algorithm may not be one.
+            grid.clear();
+            start = new DepthFirstAlgorithm().carve(grid, rand, counts,
+                    GenerationMonitor.NONE);
+            addEnd(grid.xOf(start), counts);
+            finish(event, counts, startTime, "Depth-First Search");
+            return;
         }
         
-        mazeTile[xStart][yStart].isPath = true;
+        start = placeStart(grid, rand, counts);
+        
+        addEnd(grid.xOf(start), counts);
+        finish(event, counts, startTime, "Parallel Depth-First Search");
+    }
+    
+    /***************************************************************************
+     * Adds a start tile on the left or top edge, next to a tile that has
+     * already been carved
+     * @param grid The carved grid
+     * @param rand The random number generator to draw from
+     * @param counts The counters to add the start tile draws to
+     * @return the index of the start tile
+     */
+    static int placeStart(MazeGrid grid, MazeRandom rand,
+            GenerationMetrics counts) {
+        int mazeWidth = grid.getWidth();
+        int mazeHeight = grid.getHeight();
+        int xStart;
+        int yStart;
+        long attempts = 0;
+        
+        do {
+            attempts++;
+            xStart = 0;
+            yStart = 0;
+            if (rand.nextBoolean()) {
+                yStart = rand.nextInt(mazeHeight-1) + 1;
+            } else {
+                xStart = rand.nextInt(mazeWidth-1) + 1;
+            }
+        } while (xStart == 0 ? !grid.isPath(1, yStart)
+                : !grid.isPath(xStart, 1));
+        counts.randomDraws += 2 * attempts;
+        counts.startRetries = attempts - 1;
         
-        // Begin recursion from start tile
-        generateMaze(xStart, yStart);
+        int start = grid.index(xStart, yStart);
+        grid.setPath(start, true);
+        return start;
+    }
+    
+    /***************************************************************************
+     * Keeps the counters of a finished generation and commits its event if
+     * Flight Recorder is recording it.
+     * @param event The event begun when generation started
+     * @param counts The counters of the generation
+     * @param startTime The System.nanoTime() when generation started
+     * @param algorithmName The name of the algorithm used, for the event
+     */
+    private void finish(MazeGenerationEvent event, GenerationMetrics counts,
+            long startTime, String algorithmName) {
+        counts.elapsedNanos = System.nanoTime() - startTime;
+        metrics = counts;
         
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithmName;
+            event.width = mazeWidth;
+            event.height = mazeHeight;
+            event.seeded = usesSeed;
+            event.seed = seed;
+            event.randomAlgorithm = algorithm == null ? null
+                    : algorithm.name();
+            event.cellsCarved = counts.cellsCarved;
+            event.peakStackDepth = counts.peakStackDepth;
+            event.randomDraws = counts.randomDraws;
+            event.wastedDraws = counts.wastedDraws;
+            event.rejectedOutOfBounds = counts.rejectedOutOfBounds;
+            event.rejectedAlreadyPath = counts.rejectedAlreadyPath;
+            event.rejectedConflict = counts.rejectedConflict;
+            event.startRetries = counts.startRetries;
+            event.endRetries = counts.endRetries;
+            event.commit();
+        }
+    }
+    
+    /***************************************************************************
+     * Adds an end tile on the edge opposite the start tile, next to a tile
+     * that has been carved.
+     * @param xStart The x value of the start tile
+     * @param counts The counters to add the end tile draws to
+     */
+    private void addEnd(int xStart, GenerationMetrics counts) {
         
         // Generate an end tile
         int xEnd = mazeWidth-1;
         int yEnd = mazeHeight-1;
         
         boolean endIsValid = false;
+        long attempts = 0;
         
         if (xStart == 0) {
             while (!endIsValid) {
+                attempts++;
                 xEnd = rand.nextInt(mazeWidth-1) + 1;
-                if (mazeTile[xEnd][yEnd-1].isPath) {
+                if (grid.isPath(xEnd, yEnd-1)) {
                     endIsValid = true;
                 }
             }
         } else {
             while (!endIsValid) {
+                attempts++;
                 yEnd = rand.nextInt(mazeHeight-1) + 1;
-                if (mazeTile[xEnd-1][yEnd].isPath) {
+                if (grid.isPath(xEnd-1, yEnd)) {
                     endIsValid = true;
                 }
             }
         }
         
-        mazeTile[xEnd][yEnd].isPath = true;
+        counts.randomDraws += attempts;
+        counts.endRetries = attempts - 1;
+        
+        end = grid.index(xEnd, yEnd);
+        grid.setPath(end, true);
         
     }
     
     
     /***************************************************************************
-     * Uses a randomized DFS algorithm to generate a confusing maze
-     * @param currentX Current path tile we're recursing from
-     * @param currentY Current path tile we're recursing from
+     * Uses a randomized DFS algorithm to generate a confusing maze. Only tiles
+     * off the outer edge of the grid are carved.
+     * @param grid The grid to carve
+     * @param rand The random number generator to draw directions from
+     * @param tileStack An empty stack to use for the DFS
+     * @param startX Path tile we're recursing from
+     * @param startY Path tile we're recursing from
+     * @param counts The counters to add the work done to
+     * @param monitor The monitor to report progress to
      */
-    private void generateMaze(int startX, int startY) {
+    static void carve(MazeGrid grid, MazeRandom rand, IntStack tileStack,
+            int startX, int startY, GenerationMetrics counts,
+            GenerationMonitor monitor) {
         
-        tileStack.add(mazeTile[startX][startY]);
+        int first = grid.index(startX, startY);
+        tileStack.push(first);
+        
+        // Range of tiles carved since the last report to the monitor
+        int low = first;
+        int high = first;
+        int untilReport = GenerationMonitor.REPORT_INTERVAL;
+        
+        // Counted in locals and added to counts at the end
+        long carved = 1;
+        int peakDepth = 1;
+        long draws = 0;
+        long wasted = 0;
+        long outOfBounds = 0;
+        long alreadyPath = 0;
+        long conflict = 0;
         
         // Iterative DFS approach - beats recursive because no need to set
         // a larger stack size for larger entries.
         
         while (!tileStack.isEmpty()) {
             // Set that current tile is a path (even if it already is)
-            MazeTile tile = tileStack.peek();
-            tile.isPath = true;
-            
-            int currentX = tile.xPos;
-            int currentY = tile.yPos;
+            int tile = tileStack.peek();
+            grid.setPath(tile, true);
             
             // If we need to further check different directions, to expand our
             // path, then do so.
-            if (!tile.checkedLeft || !tile.checkedRight
-                    || !tile.checkedUp || !tile.checkedDown) {
+            int checked = grid.getChecked(tile);
+            if (checked != MazeGrid.CHECKED_ALL) {
                 int wayToGo = rand.nextInt(4);
-                switch(wayToGo) {
-                    case LEFT:
-                        if (isValidTile(currentX-1, currentY, wayToGo)) {
-                            tileStack.push(mazeTile[currentX-1][currentY]);
+                draws++;
+                if ((checked & (1 << wayToGo)) != 0) {
+                    wasted++;
+                }
+                int nextX = grid.xOf(tile) + DIRECTION_X[wayToGo];
+                int nextY = grid.yOf(tile) + DIRECTION_Y[wayToGo];
+                switch (checkTile(grid, nextX, nextY, wayToGo)) {
+                    case TILE_VALID:
+                        int next = grid.index(nextX, nextY);
+                        tileStack.push(next);
+                        carved++;
+                        peakDepth = Math.max(peakDepth, tileStack.size());
+                        low = Math.min(low, next);
+                        high = Math.max(high, next);
+                        if (--untilReport == 0) {
+                            monitor.report(counts.cellsCarved + carved, low,
+                                    high);
+                            monitor.checkCancelled();
+                            low = next;
+                            high = next;
+                            untilReport = GenerationMonitor.REPORT_INTERVAL;
                         }
-                        tile.checkedLeft = true;
                         break;
-                    case RIGHT:
-                        if (isValidTile(currentX+1, currentY, wayToGo)) {
-                            tileStack.push(mazeTile[currentX+1][currentY]);
-                        }
-                        tile.checkedRight = true;
+                    case TILE_OUT_OF_BOUNDS:
+                        outOfBounds++;
                         break;
-                    case UP:
-                        if (isValidTile(currentX, currentY+1, wayToGo)) {
-                            tileStack.push(mazeTile[currentX][currentY+1]);
-                        }
-                        tile.checkedUp = true;
+                    case TILE_ALREADY_PATH:
+                        alreadyPath++;
                         break;
-                    case DOWN:
-                        if (isValidTile(currentX, currentY-1, wayToGo)) {
-                            tileStack.push(mazeTile[currentX][currentY-1]);
-                        }
-                        tile.checkedDown = true;
+                    default:
+                        conflict++;
                         break;
                 }
+                grid.setChecked(tile, wayToGo);
             } else { // Otherwise, this tile can be removed from the stack
                 tileStack.pop();
             }
         }
+        
+        monitor.report(counts.cellsCarved + carved, low, high);
+        
+        counts.cellsCarved += carved;
+        counts.peakStackDepth = Math.max(counts.peakStackDepth, peakDepth);
+        counts.randomDraws += draws;
+        counts.wastedDraws += wasted;
+        counts.rejectedOutOfBounds += outOfBounds;
+        counts.rejectedAlreadyPath += alreadyPath;
+        counts.rejectedConflict += conflict;
     }
 
     
     /***************************************************************************
      * Determines if a tile we are considering placing is valid
+     * @param grid The grid being carved
      * @param x The x value of the tile that is being considered
      * @param y The y value of the tile that is being considered
      * @param wayToGo The direction we are heading
      * @return True if the tile is valid, otherwise false
      */
-    private boolean isValidTile(int x, int y, int wayToGo) {
-        if (x <= 0 || y <= 0)
-            return false;
-        if (x >= mazeWidth - 1 || y >= mazeHeight - 1)
-            return false;
-        if (mazeTile[x][y].isPath)
-            return false;
-        return isValidDirection(x, y, wayToGo);
+    static boolean isValidTile(MazeGrid grid, int x, int y,
+            int wayToGo) {
+        return checkTile(grid, x, y, wayToGo) == TILE_VALID;
     }
-
+    
     /***************************************************************************
-     * Determines if the tile is valid to place, considering we are going in a
-     * certain direction.
+     * Determines if a tile we are considering placing is valid, and if not,
+     * why not
+     * @param grid The grid being carved
      * @param x The x value of the tile that is being considered
      * @param y The y value of the tile that is being considered
      * @param wayToGo The direction we are heading
-     * @return True if the tile is valid, otherwise false
+     * @return TILE_VALID, or the reason the tile is rejected
      */
-    private boolean isValidDirection(int x, int y, int wayToGo) {
-        int directNeighborCount = 0;   
-        switch (wayToGo) {
-            case LEFT:
-                return (validLeft(x, y) && validUpCenter(x, y)
-                        && validDownCenter(x, y));
-            case RIGHT:
-                return (validRight(x, y) && validUpCenter(x, y)
-                        && validDownCenter(x, y));
-            case UP:
-                return (validUp(x, y) && validRightCenter(x, y)
-                        && validLeftCenter(x, y));
-            case DOWN:
-                return (validDown(x, y) && validLeftCenter(x, y)
-                        && validRightCenter(x, y));
-            default:
-                return true;
-        }
+    static int checkTile(MazeGrid grid, int x, int y, int wayToGo) {
+        if (x <= 0 || y <= 0)
+            return TILE_OUT_OF_BOUNDS;
+        if (x >= grid.getWidth() - 1 || y >= grid.getHeight() - 1)
+            return TILE_OUT_OF_BOUNDS;
+        if (grid.isPath(x, y))
+            return TILE_ALREADY_PATH;
+        if ((grid.neighborhood(x, y) & CONFLICT_MASK[wayToGo]) != 0)
+            return TILE_CONFLICT;
+        return TILE_VALID;
     }
     
     /***************************************************************************
-     * Determines if left center of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Returns the bit of a tile in a 3x3 neighborhood mask
+     * @param dx The x offset from the center tile (-1 to 1)
+     * @param dy The y offset from the center tile (-1 to 1)
+     * @return the bit of the tile in MazeGrid.neighborhood
      */
-    private boolean validLeftCenter(int x, int y) {
-        if (x > 0) {
-            if (mazeTile[x-1][y].isPath) {
-                return false;
-            }
-        }
-        return true;
+    private static int neighbor(int dx, int dy) {
+        return 1 << ((dy + 1) * 3 + (dx + 1));
     }
     
     /***************************************************************************
-     * Determines if left side of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Returns whether a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is a path, otherwise false
      */
-    private boolean validLeft(int x, int y) {
-        // Take care of left side
-        if (x > 0) {
-            if (mazeTile[x-1][y].isPath) {
-                return false;
-            }
-            if (y > 0) {
-                if (mazeTile[x-1][y-1].isPath) {
-                    return false;
-                }
-            }
-            if (y < mazeHeight-1) {
-                if (mazeTile[x-1][y+1].isPath) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public boolean isPath(int x, int y) {
+        return grid.isPath(x, y);
     }
     
     /***************************************************************************
-     * Determines if right center of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Finds the path from the start tile to the end tile
+     * @param algorithm The algorithm to search with
+     * @return the path, or null if the end cannot be reached from the start
      */
-    private boolean validRightCenter(int x, int y) {
-        if (x < mazeWidth-1) {
-            if (mazeTile[x+1][y].isPath) {
-                return false;
-            }
+    public MazeSolution solve(SolverAlgorithm algorithm) {
+        if (start < 0 || end < 0) {
+            throw new IllegalStateException("The maze has not been generated");
         }
-        return true;
+        return MazeSolver.solve(grid, start, end, algorithm);
     }
-    
+
     /***************************************************************************
-     * Determines if right side of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Analyzes the maze on the common ForkJoinPool. See
+     * analyze(ForkJoinPool).
+     * @return the analysis
      */
-    private boolean validRight(int x, int y) {
-        // Take care of right side
-        if (x < mazeWidth-1) {
-            if (mazeTile[x+1][y].isPath) {
-                return false;
-            }
-            if (y > 0) {
-                if (mazeTile[x+1][y-1].isPath) {
-                    return false;
-                }
-            }
-            if (y < mazeHeight-1) {
-                if (mazeTile[x+1][y+1].isPath) {
-                    return false;
-                }
-            }
+    public MazeAnalysis analyze() {
+        return analyze(ForkJoinPool.commonPool());
+    }
+
+    /***************************************************************************
+     * Counts the dead ends, junctions and corridors of the maze, checks that
+     * its paths are connected without loops and measures its solution, in one
+     * pass over bands of rows analyzed in parallel
+     * @param pool The pool to analyze bands on
+     * @return the analysis
+     */
+    public MazeAnalysis analyze(ForkJoinPool pool) {
+        return new MazeAnalyzer(mazeWidth, mazeHeight).analyze(grid, pool,
+                start, end);
+    }
+
+    /***************************************************************************
+     * Analyzes the maze on the common ForkJoinPool with an analyzer kept for
+     * mazes of its size, whose arrays are reused from the last maze it
+     * analyzed. See analyze(ForkJoinPool).
+     * @param analyzer The analyzer, not in use by another thread
+     * @return the analysis
+     */
+    MazeAnalysis analyze(MazeAnalyzer analyzer) {
+        return analyzer.analyze(grid, ForkJoinPool.commonPool(), start, end);
+    }
+
+    /***************************************************************************
+     * Finds the distance from the start tile to every reachable tile on the
+     * common ForkJoinPool. See distanceField(ForkJoinPool, int).
+     * @return the distances from the start tile
+     */
+    public MazeDistanceField distanceField() {
+        if (start < 0) {
+            throw new IllegalStateException("The maze has not been generated");
         }
-        return true;
+        return distanceField(ForkJoinPool.commonPool(), start);
+    }
+
+    /***************************************************************************
+     * Finds the distance from a tile to every tile reachable from it with a
+     * breadth-first search that expands each level 64 tiles at a time, and
+     * wide levels in parallel
+     * @param pool The pool to expand wide levels on
+     * @param source The index of the tile to measure from, which must be a
+     * path
+     * @return the distances from the source tile
+     */
+    public MazeDistanceField distanceField(ForkJoinPool pool, int source) {
+        return new DistanceFieldBuilder(grid).build(pool, source);
+    }
+
+    /***************************************************************************
+     * Returns the tile index of the start tile
+     * @return the index of the start tile, or -1 before generation
+     */
+    public int getStart() {
+        return start;
     }
     
+    /***************************************************************************
+     * Returns the tile index of the end tile
+     * @return the index of the end tile, or -1 before generation
+     */
+    public int getEnd() {
+        return end;
+    }
     
     /***************************************************************************
-     * Determines if upper center of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Sets the start and end tiles of a maze whose grid was filled in from
+     * elsewhere, such as a saved file
+     * @param start The index of the start tile
+     * @param end The index of the end tile
      */
-    private boolean validUpCenter(int x, int y) {
-        if (y < mazeHeight - 1) {
-            if (mazeTile[x][y+1].isPath) {
-                return false;
-            }
-        }
-        return true;
+    void setEnds(int start, int end) {
+        this.start = start;
+        this.end = end;
     }
     
     /***************************************************************************
-     * Determines if upper side of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Sets the algorithm generateMaze carves with. The default is the
+     * randomized depth first search mazes have always been generated with.
+     * @param mazeAlgorithm The algorithm to carve with
      */
-    private boolean validUp(int x, int y) {
-        // Take care of up and down
-        if (y < mazeHeight - 1) {
-            if (mazeTile[x][y+1].isPath) {
-                return false;
-            }
-            if (x < mazeWidth-1) {
-                if (mazeTile[x+1][y+1].isPath) {
-                    return false;
-                }
-            }
-            if (x > 0) {
-                if (mazeTile[x-1][y+1].isPath) {
-                    return false;
-                }
-            }
+    public void setMazeAlgorithm(MazeAlgorithm mazeAlgorithm) {
+        if (mazeAlgorithm == null) {
+            throw new NullPointerException("mazeAlgorithm");
         }
-        return true;
+        this.mazeAlgorithm = mazeAlgorithm;
     }
     
     /***************************************************************************
-     * Determines if lower center of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Returns the algorithm generateMaze carves with
+     * @return the algorithm generateMaze carves with
      */
-    private boolean validDownCenter(int x, int y) {
-        if (y > 0) {
-            if (mazeTile[x][y-1].isPath) {
-                return false;
-            }
-        }
-        return true;
+    public MazeAlgorithm getMazeAlgorithm() {
+        return mazeAlgorithm;
     }
     
     /***************************************************************************
-     * Determines if lower side of the tile has no path
-     * @param x The x value of the tile that is being considered
-     * @param y The y value of the tile that is being considered
-     * @return True if there are no conflicting tiles
+     * Returns the counters of the last generation of this maze
+     * @return the counters, or null if the maze has not been generated
      */
-    private boolean validDown(int x, int y) {
-        // Take care of up and down
-        if (y > 0) {
-            if (mazeTile[x][y-1].isPath) {
-                return false;
-            }
-            if (x < mazeWidth-1) {
-                if (mazeTile[x+1][y-1].isPath) {
-                    return false;
-                }
-            }
-            if (x > 0) {
-                if (mazeTile[x-1][y-1].isPath) {
-                    return false;
-                }
-            }
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /***************************************************************************
+     * Determines if the maze was generated from a known seed
+     * @return True if the maze was generated from getSeed()
+     */
+    public boolean usesSeed() {
+        return usesSeed;
+    }
+    
+    /***************************************************************************
+     * Returns the seed the maze was generated from
+     * @return the seed, or 0 if the maze was not seeded
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /***************************************************************************
+     * Returns the random number generator algorithm the maze was generated
+     * with
+     * @return the algorithm, or null if the maze was given its own MazeRandom
+     */
+    public RandomAlgorithm getRandomAlgorithm() {
+        return algorithm;
+    }
+    
+    /***************************************************************************
+     * Passes every row of the maze to a consumer, from top to bottom
+     * @param consumer The consumer of the rows
+     * @throws IOException if the consumer cannot accept a row
+     */
+    public void writeRows(MazeRowConsumer consumer) throws IOException {
+        long[] row = new long[(mazeWidth + 63) >>> 6];
+        for (int y = 0; y < mazeHeight; y++) {
+            grid.copyRow(y, row);
+            consumer.acceptRow(y, row);
         }
-        return true;
+    }
+    
+    /***************************************************************************
+     * Returns a view of a single tile of the maze
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return a MazeTile backed by this maze's grid
+     */
+    public MazeTile getMazeTile(int x, int y) {
+        return new MazeTile(grid, x, y);
+    }
+    
+    /***************************************************************************
+     * Returns the bit-packed grid backing this maze
+     * @return the bit-packed grid backing this maze
+     */
+    public MazeGrid getGrid() {
+        return grid;
+    }
+    
+    /***************************************************************************
+     * Returns the maze width in tiles
+     * @return the maze width in tiles
+     */
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+    
+    /***************************************************************************
+     * Returns the maze height in tiles
+     * @return the maze height in tiles
+     */
+    public int getMazeHeight() {
+        return mazeHeight;
     }
     
     /***************************************************************************
@@ -0,0 +1,57 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * A way of carving a maze into a grid. An algorithm carves paths into a grid
+ * that is all walls, keeping the outer edge walls except for one start tile
+ * on the left or top edge, and returns that start tile; Maze then adds the
+ * end tile. Implementations keep no state between calls, so one instance can
+ * carve many mazes on different threads at once.
+ * @author Julian
+ */
+public interface MazeAlgorithm {
+    
+    /***************************************************************************
+     * Carves a maze into a grid
+     * @param grid The grid to carve, all walls
+     * @param rand The random number generator to draw from
+     * @param counts The counters to add the work done to
+     * @param monitor The monitor to report progress to every
+     * GenerationMonitor.REPORT_INTERVAL tiles and check for cancellation
+     * @return the index of the start tile, on the left or top edge
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    int carve(MazeGrid grid, MazeRandom rand, GenerationMetrics counts,
+            GenerationMonitor monitor);
+    
+    /***************************************************************************
+     * Carves a maze into a grid with a stack of tiles kept by the caller, so
+     * a maze generated again and again does not grow a new stack each time.
+     * Algorithms that need no stack carve as carve(grid, rand, counts,
+     * monitor) does.
+     * @param grid The grid to carve, all walls
+     * @param rand The random number generator to draw from
+     * @param tileStack An empty stack to carve with, left empty
+     * @param counts The counters to add the work done to
+     * @param monitor The monitor to report progress to
+     * @return the index of the start tile, on the left or top edge
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled
+     */
+    default int carve(MazeGrid grid, MazeRandom rand, IntStack tileStack,
+            GenerationMetrics counts, GenerationMonitor monitor) {
+        return carve(grid, rand, counts, monitor);
+    }
+    
+    /***************************************************************************
+     * Returns the name of the algorithm for menus and reports
+     * @return the name of the algorithm
+     */
+    String getName();
+}
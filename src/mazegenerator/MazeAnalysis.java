@@ -0,0 +1,170 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Locale;
+
+/**
+ * The shape of a maze's paths, for scoring how hard it is. Path tiles are
+ * the nodes of a graph and two path tiles side by side are joined by an edge;
+ * a tile's degree is how many path tiles it touches. A maze is perfect when
+ * that graph is a tree: every path tile is connected and there are no loops.
+ * @author Julian
+ */
+public class MazeAnalysis {
+
+    long pathTiles;
+    long edges;
+    final long[] degreeCounts = new long[5];
+    long deadEnds;
+    long components;
+    long longestCorridor;
+    int solutionLength = -1;
+    long elapsedNanos;
+
+
+    /***************************************************************************
+     * Returns the number of path tiles, including the start and end
+     * @return the number of path tiles
+     */
+    public long getPathTiles() {
+        return pathTiles;
+    }
+
+    /***************************************************************************
+     * Returns the number of pairs of path tiles that are side by side
+     * @return the number of edges between path tiles
+     */
+    public long getEdges() {
+        return edges;
+    }
+
+    /***************************************************************************
+     * Returns the number of path tiles with a given number of path neighbors
+     * @param degree The number of path neighbors, from 0 to 4
+     * @return the number of path tiles with that degree
+     */
+    public long getDegreeCount(int degree) {
+        return degreeCounts[degree];
+    }
+
+    /***************************************************************************
+     * Returns the number of path tiles that lead nowhere, not counting the
+     * start and end tiles
+     * @return the number of dead ends
+     */
+    public long getDeadEnds() {
+        return deadEnds;
+    }
+
+    /***************************************************************************
+     * Returns the number of path tiles where the way splits, those with three
+     * or four path neighbors
+     * @return the number of junctions
+     */
+    public long getJunctions() {
+        return degreeCounts[3] + degreeCounts[4];
+    }
+
+    /***************************************************************************
+     * Returns the average number of ways onward from a junction, not counting
+     * the way in
+     * @return the average branching factor, or 0 if there are no junctions
+     */
+    public double getBranchingFactor() {
+        long junctions = getJunctions();
+        return junctions == 0 ? 0
+                : (double) (2 * degreeCounts[3] + 3 * degreeCounts[4])
+                / junctions;
+    }
+
+    /***************************************************************************
+     * Returns the length of the longest corridor, a run of connected path
+     * tiles that each have exactly two path neighbors
+     * @return the number of tiles in the longest corridor
+     */
+    public long getLongestCorridor() {
+        return longestCorridor;
+    }
+
+    /***************************************************************************
+     * Returns the length of the path from the start tile to the end tile
+     * @return the number of tiles on the path, including the start and end,
+     * or -1 if the maze has no end or the end cannot be reached
+     */
+    public int getSolutionLength() {
+        return solutionLength;
+    }
+
+    /***************************************************************************
+     * Returns the number of separate groups of connected path tiles
+     * @return the number of connected components
+     */
+    public long getComponents() {
+        return components;
+    }
+
+    /***************************************************************************
+     * Returns the number of independent loops in the paths, which is zero
+     * exactly when no path can be walked around in a circle
+     * @return the number of independent cycles
+     */
+    public long getCycles() {
+        return edges - pathTiles + components;
+    }
+
+    /***************************************************************************
+     * Returns whether every path tile can be reached from every other
+     * @return True if the paths are connected, otherwise false
+     */
+    public boolean isConnected() {
+        return components == 1;
+    }
+
+    /***************************************************************************
+     * Returns whether the paths have no loops
+     * @return True if the paths are acyclic, otherwise false
+     */
+    public boolean isAcyclic() {
+        return getCycles() == 0;
+    }
+
+    /***************************************************************************
+     * Returns whether the paths form a single tree, so there is exactly one
+     * way between any two path tiles
+     * @return True if the maze is perfect, otherwise false
+     */
+    public boolean isPerfect() {
+        return isConnected() && isAcyclic();
+    }
+
+    /***************************************************************************
+     * Returns how long the analysis took
+     * @return the analysis time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "pathTiles=" + pathTiles
+                + " deadEnds=" + deadEnds
+                + " junctions=" + getJunctions()
+                + " degrees=" + degreeCounts[0] + "/" + degreeCounts[1]
+                + "/" + degreeCounts[2] + "/" + degreeCounts[3]
+                + "/" + degreeCounts[4]
+                + " branchingFactor="
+                + String.format(Locale.ROOT, "%.3f", getBranchingFactor())
+                + " longestCorridor=" + longestCorridor
+                + " solutionLength=" + solutionLength
+                + " components=" + components
+                + " cycles=" + getCycles()
+                + " perfect=" + isPerfect()
+                + " elapsedMillis=" + elapsedNanos / 1000000;
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Analyzes a maze in one pass over its rows, split into bands of rows that
+ * are analyzed in parallel on a ForkJoinPool.
+ * <p>
+ * Each band reads its rows 64 tiles at a time and counts the path neighbors
+ * of all 64 tiles at once with bitwise adders, which gives the degree
+ * histogram and the number of edges. Connected tiles are grouped with a
+ * union-find over horizontal runs of path tiles: a run is joined with every
+ * run in the row below that it touches. The same is done for the runs of
+ * tiles with exactly two neighbors, whose groups are the corridors. A band
+ * only keeps the groups of its first and last rows once it is done, and the
+ * bands are then joined in order where those rows meet.
+ * <p>
+ * The solution length is the one thing that cannot be read off the rows, so
+ * it is found afterwards with a bidirectional search.
+ * <p>
+ * An analyzer keeps the rows and union-finds of its bands between analyses,
+ * so one kept for mazes of the same size analyzes each of them without
+ * allocating them again. It analyzes one maze at a time.
+ * @author Julian
+ */
+class MazeAnalyzer {
+
+    // Rows analyzed by one band
+    private static final int BAND_ROWS = 64;
+
+    private final int width;
+    private final int height;
+    private final int words;
+    private final Band[] bands;
+
+    // The grid being analyzed
+    private MazeGrid grid;
+
+
+    /***************************************************************************
+     * Creates an analyzer for mazes of one size
+     * @param width The maze width in tiles
+     * @param height The maze height in tiles
+     */
+    public MazeAnalyzer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        words = (width + 63) >>> 6;
+
+        bands = new Band[(height + BAND_ROWS - 1) / BAND_ROWS];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new Band(i * BAND_ROWS,
+                    Math.min(height, (i + 1) * BAND_ROWS));
+        }
+    }
+
+    /***************************************************************************
+     * Analyzes a maze
+     * @param grid The grid of the maze, of the analyzer's size
+     * @param pool The pool to analyze bands on
+     * @param start The index of the start tile, or -1 if there is none
+     * @param end The index of the end tile, or -1 if there is none
+     * @return the analysis
+     */
+    public MazeAnalysis analyze(MazeGrid grid, ForkJoinPool pool, int start,
+            int end) {
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            throw new IllegalArgumentException("The analyzer is for "
+                    + width + "x" + height + " mazes");
+        }
+        this.grid = grid;
+        try {
+            return analyze(pool, start, end);
+        } finally {
+            this.grid = null;
+        }
+    }
+
+    private MazeAnalysis analyze(ForkJoinPool pool, int start, int end) {
+        long startTime = System.nanoTime();
+        MazeAnalysis analysis = new MazeAnalysis();
+        if (bands.length > 0) {
+            pool.invoke(new BandTask(0, bands.length));
+        }
+
+        for (Band band : bands) {
+            analysis.pathTiles += band.pathTiles;
+            for (int d = 0; d < band.degreeCounts.length; d++) {
+                analysis.degreeCounts[d] += band.degreeCounts[d];
+            }
+        }
+        // Every edge is counted once in the degree of each of its tiles
+        for (int d = 1; d < analysis.degreeCounts.length; d++) {
+            analysis.edges += d * analysis.degreeCounts[d];
+        }
+        analysis.edges /= 2;
+        analysis.components = join(true).components;
+        analysis.longestCorridor = join(false).largest;
+
+        analysis.deadEnds = analysis.degreeCounts[1];
+        if (start >= 0 && degree(grid, start) == 1) {
+            analysis.deadEnds--;
+        }
+        if (end >= 0 && end != start && degree(grid, end) == 1) {
+            analysis.deadEnds--;
+        }
+        if (start >= 0 && end >= 0) {
+            MazeSolution solution = MazeSolver.solve(grid, start, end,
+                    SolverAlgorithm.BIDIRECTIONAL_BFS);
+            if (solution != null) {
+                analysis.solutionLength = solution.length();
+            }
+        }
+        analysis.elapsedNanos = System.nanoTime() - startTime;
+        return analysis;
+    }
+
+    /***************************************************************************
+     * Joins the groups of every band where the bands meet
+     * @param paths True to join the groups of path tiles, false to join the
+     * corridors
+     * @return the joined groups
+     */
+    private RunLabeler.Joined join(boolean paths) {
+        int labels = 0;
+        for (Band band : bands) {
+            labels += (paths ? band.paths : band.corridors).labelCount;
+        }
+        RunLabeler.Joined joined = new RunLabeler.Joined(labels);
+
+        int base = 0;
+        RunLabeler above = null;
+        int aboveBase = 0;
+        for (Band band : bands) {
+            RunLabeler labeler = paths ? band.paths : band.corridors;
+            joined.add(labeler, base);
+            if (above != null) {
+                joined.join(above, aboveBase, labeler, base);
+            }
+            above = labeler;
+            aboveBase = base;
+            base += labeler.labelCount;
+        }
+        return joined;
+    }
+
+    /***************************************************************************
+     * Counts the path neighbors of 64 tiles of a row at once. The four
+     * neighbor bits of every tile are added into a three bit count, one
+     * bitwise adder per bit of the count.
+     * @param below The row below, or zeros if there is none
+     * @param row The row
+     * @param above The row above, or zeros if there is none
+     * @param w The index of the word of the row to count for
+     * @param count Receives the bits of the counts, lowest first, as three
+     * words whose bits line up with the tiles of the row's word
+     */
+    static void countNeighbors(long[] below, long[] row, long[] above, int w,
+            long[] count) {
+        long path = row[w];
+        long left = path << 1;
+        if (w > 0) {
+            left |= row[w - 1] >>> 63;
+        }
+        long right = path >>> 1;
+        if (w + 1 < row.length) {
+            right |= row[w + 1] << 63;
+        }
+        long up = above[w];
+        long down = below[w];
+
+        long sumA = left ^ right;
+        long carryA = left & right;
+        long sumB = up ^ down;
+        long carryB = up & down;
+        long carry0 = sumA & sumB;
+        count[0] = sumA ^ sumB;
+        count[1] = carryA ^ carryB ^ carry0;
+        count[2] = (carryA & carryB) | (carry0 & (carryA ^ carryB));
+    }
+
+    /***************************************************************************
+     * Counts the path neighbors of a tile
+     * @param grid The grid of the tile
+     * @param tile The index of the tile
+     * @return the number of path tiles next to the tile
+     */
+    static int degree(MazeGrid grid, int tile) {
+        int width = grid.getWidth();
+        int x = grid.xOf(tile);
+        int y = grid.yOf(tile);
+        int count = 0;
+        if (x > 0 && grid.isPath(tile - 1)) {
+            count++;
+        }
+        if (x + 1 < width && grid.isPath(tile + 1)) {
+            count++;
+        }
+        if (y > 0 && grid.isPath(tile - width)) {
+            count++;
+        }
+        if (y + 1 < grid.getHeight() && grid.isPath(tile + width)) {
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * The counts and groups of one band of rows.
+     */
+    private class Band {
+
+        final int rowFrom;
+        final int rowTo;
+
+        long pathTiles;
+        final long[] degreeCounts = new long[5];
+        final RunLabeler paths;
+        final RunLabeler corridors;
+
+        // The rows below, at and above the row being analyzed, and the
+        // corridor tiles of the row
+        private long[] below;
+        private long[] row;
+        private long[] above;
+        private final long[] corridor;
+        // The bits of the neighbor counts of a word
+        private final long[] count = new long[3];
+
+        Band(int rowFrom, int rowTo) {
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            paths = new RunLabeler(width, rowTo - rowFrom);
+            corridors = new RunLabeler(width, rowTo - rowFrom);
+            below = new long[words];
+            row = new long[words];
+            above = new long[words];
+            corridor = new long[words];
+        }
+
+        /***********************************************************************
+         * Analyzes the rows of the band. The rows on either side are read too,
+         * for the degrees of the band's edge rows.
+         */
+        void analyze() {
+            pathTiles = 0;
+            Arrays.fill(degreeCounts, 0);
+            paths.reset();
+            corridors.reset();
+
+            if (rowFrom > 0) {
+                grid.copyRow(rowFrom - 1, below);
+            } else {
+                Arrays.fill(below, 0);
+            }
+            grid.copyRow(rowFrom, row);
+            for (int y = rowFrom; y < rowTo; y++) {
+                if (y + 1 < grid.getHeight()) {
+                    grid.copyRow(y + 1, above);
+                } else {
+                    Arrays.fill(above, 0);
+                }
+
+                for (int w = 0; w < words; w++) {
+                    long path = row[w];
+                    countNeighbors(below, row, above, w, count);
+                    long bit0 = count[0];
+                    long bit1 = count[1];
+                    long bit2 = count[2];
+
+                    long one = path & ~bit2 & ~bit1 & bit0;
+                    long two = path & ~bit2 & bit1 & ~bit0;
+                    long three = path & bit1 & bit0;
+                    long four = path & bit2;
+                    int tiles = Long.bitCount(path);
+                    int counted = Long.bitCount(one) + Long.bitCount(two)
+                            + Long.bitCount(three) + Long.bitCount(four);
+                    degreeCounts[0] += tiles - counted;
+                    degreeCounts[1] += Long.bitCount(one);
+                    degreeCounts[2] += Long.bitCount(two);
+                    degreeCounts[3] += Long.bitCount(three);
+                    degreeCounts[4] += Long.bitCount(four);
+                    pathTiles += tiles;
+                    corridor[w] = two;
+                }
+                paths.addRow(row);
+                corridors.addRow(corridor);
+
+                long[] swap = below;
+                below = row;
+                row = above;
+                above = swap;
+            }
+            paths.finish();
+            corridors.finish();
+        }
+    }
+
+    /**
+     * Analyzes a range of bands, splitting it in half until it is small.
+     */
+    private class BandTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        BandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int band = from; band < to; band++) {
+                    bands[band].analyze();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BandTask(from, middle),
+                        new BandTask(middle, to));
+            }
+        }
+    }
+
+
+    /**
+     * Groups the runs of set bits in a band's rows with a union-find. Once
+     * the band is finished, only the groups of the runs in its first and last
+     * rows are kept, numbered from 0 as labels. Its arrays are kept when it
+     * is reset for the band of the next maze.
+     */
+    private static class RunLabeler {
+
+        private final int width;
+
+        // The union-find, one node per run
+        private int[] parent;
+        private int[] size;
+        private int nodes;
+
+        // The label of each root while finishing, or -1
+        private int[] label;
+
+        // Runs of the last row added and of the row being added: first
+        // tile, tile after the last, and node
+        private int[] lastStart;
+        private int[] lastEnd;
+        private int[] lastNode;
+        private int lastCount;
+        private int[] rowStart;
+        private int[] rowEnd;
+        private int[] rowNode;
+
+        // Runs of the first row, kept once it has been added
+        private final int[] firstStart;
+        private final int[] firstEnd;
+        private final int[] firstNode;
+        private int firstCount = -1;
+
+        // Results once finished
+        long components;
+        long largest;
+        final int[] firstLabel;
+        final int[] lastLabel;
+        final long[] labelSize;
+        int labelCount;
+
+        RunLabeler(int width, int rows) {
+            this.width = width;
+            int maxRuns = (width + 1) / 2;
+
+            // Room for a run every four tiles, which few mazes go past
+            int capacity = Math.max(16, (int) Math.min(1 << 24,
+                    (long) maxRuns * rows / 2));
+            parent = new int[capacity];
+            size = new int[capacity];
+            lastStart = new int[maxRuns];
+            lastEnd = new int[maxRuns];
+            lastNode = new int[maxRuns];
+            rowStart = new int[maxRuns];
+            rowEnd = new int[maxRuns];
+            rowNode = new int[maxRuns];
+            firstStart = new int[maxRuns];
+            firstEnd = new int[maxRuns];
+            firstNode = new int[maxRuns];
+            firstLabel = new int[maxRuns];
+            lastLabel = new int[maxRuns];
+            labelSize = new long[maxRuns * 2];
+            label = new int[0];
+        }
+
+        /***********************************************************************
+         * Empties the labeler for the rows of another maze
+         */
+        void reset() {
+            nodes = 0;
+            lastCount = 0;
+            firstCount = -1;
+            components = 0;
+            largest = 0;
+            labelCount = 0;
+        }
+
+        /***********************************************************************
+         * Adds the runs of the next row, joining each with the runs it
+         * touches in the row before
+         * @param row The bits of the row
+         */
+        void addRow(long[] row) {
+            int count = 0;
+            int last = 0;
+            int x = 0;
+            while (x < width) {
+                x = nextRun(row, x, true);
+                if (x >= width) {
+                    break;
+                }
+                int end = nextRun(row, x, false);
+                int node = newNode(end - x);
+
+                while (last < lastCount && lastEnd[last] <= x) {
+                    last++;
+                }
+                for (int i = last; i < lastCount && lastStart[i] < end; i++) {
+                    union(node, lastNode[i]);
+                }
+                rowStart[count] = x;
+                rowEnd[count] = end;
+                rowNode[count] = node;
+                count++;
+                x = end;
+            }
+
+            if (firstCount < 0) {
+                System.arraycopy(rowStart, 0, firstStart, 0, count);
+                System.arraycopy(rowEnd, 0, firstEnd, 0, count);
+                System.arraycopy(rowNode, 0, firstNode, 0, count);
+                firstCount = count;
+            }
+            int[] swap = lastStart;
+            lastStart = rowStart;
+            rowStart = swap;
+            swap = lastEnd;
+            lastEnd = rowEnd;
+            rowEnd = swap;
+            swap = lastNode;
+            lastNode = rowNode;
+            rowNode = swap;
+            lastCount = count;
+        }
+
+        /***********************************************************************
+         * Counts the groups and labels those of the first and last rows
+         */
+        void finish() {
+            if (label.length < nodes) {
+                label = new int[parent.length];
+            }
+            Arrays.fill(label, 0, nodes, -1);
+            int labels = 0;
+            for (int i = 0; i < firstCount + lastCount; i++) {
+                int root = i < firstCount ? find(firstNode[i])
+                        : find(lastNode[i - firstCount]);
+                if (label[root] < 0) {
+                    label[root] = labels;
+                    labelSize[labels++] = size[root];
+                }
+                if (i < firstCount) {
+                    firstLabel[i] = label[root];
+                } else {
+                    lastLabel[i - firstCount] = label[root];
+                }
+            }
+            labelCount = labels;
+
+            for (int node = 0; node < nodes; node++) {
+                if (parent[node] == node) {
+                    components++;
+                    largest = Math.max(largest, size[node]);
+                }
+            }
+        }
+
+        private int newNode(int length) {
+            if (nodes == parent.length) {
+                parent = Arrays.copyOf(parent, nodes << 1);
+                size = Arrays.copyOf(size, nodes << 1);
+            }
+            parent[nodes] = nodes;
+            size[nodes] = length;
+            return nodes++;
+        }
+
+        private int find(int node) {
+            while (parent[node] != node) {
+                parent[node] = parent[parent[node]];
+                node = parent[node];
+            }
+            return node;
+        }
+
+        private void union(int a, int b) {
+            a = find(a);
+            b = find(b);
+            if (a == b) {
+                return;
+            }
+            if (size[a] < size[b]) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            parent[b] = a;
+            size[a] += size[b];
+        }
+
+        /***********************************************************************
+         * Finds the next tile at or after x that is set, or clear
+         * @return the x value of the tile found, or at least width if none
+         */
+        private int nextRun(long[] row, int x, boolean set) {
+            int word = x >>> 6;
+            long bits = (set ? row[word] : ~row[word]) & (-1L << x);
+            while (bits == 0) {
+                if (++word << 6 >= width) {
+                    return width;
+                }
+                bits = set ? row[word] : ~row[word];
+            }
+            return Math.min(width, (word << 6)
+                    + Long.numberOfTrailingZeros(bits));
+        }
+
+
+        /**
+         * The groups of every band joined where the bands meet, as a
+         * union-find over the bands' labels.
+         */
+        static class Joined {
+
+            private final int[] parent;
+            private final long[] size;
+            long components;
+            long largest;
+
+            Joined(int labels) {
+                parent = new int[labels];
+                size = new long[labels];
+            }
+
+            /*******************************************************************
+             * Adds the groups of a band
+             * @param band The finished band
+             * @param base The first label of the band in this union-find
+             */
+            void add(RunLabeler band, int base) {
+                components += band.components;
+                largest = Math.max(largest, band.largest);
+                for (int i = 0; i < band.labelCount; i++) {
+                    parent[base + i] = base + i;
+                    size[base + i] = band.labelSize[i];
+                }
+            }
+
+            /*******************************************************************
+             * Joins the groups of the last row of one band with those of the
+             * first row of the band after it wherever their runs touch
+             */
+            void join(RunLabeler lower, int lowerBase, RunLabeler upper,
+                    int upperBase) {
+                int i = 0;
+                for (int j = 0; j < upper.firstCount; j++) {
+                    int start = upper.firstStart[j];
+                    int end = upper.firstEnd[j];
+                    while (i < lower.lastCount && lower.lastEnd[i] <= start) {
+                        i++;
+                    }
+                    for (int k = i; k < lower.lastCount
+                            && lower.lastStart[k] < end; k++) {
+                        union(lowerBase + lower.lastLabel[k],
+                                upperBase + upper.firstLabel[j]);
+                    }
+                }
+            }
+
+            private int find(int label) {
+                while (parent[label] != label) {
+                    parent[label] = parent[parent[label]];
+                    label = parent[label];
+                }
+                return label;
+            }
+
+            private void union(int a, int b) {
+                a = find(a);
+                b = find(b);
+                if (a == b) {
+                    return;
+                }
+                parent[b] = a;
+                size[a] += size[b];
+                components--;
+                largest = Math.max(largest, size[a]);
+            }
+        }
+    }
+}
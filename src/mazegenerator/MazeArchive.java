@@ -0,0 +1,250 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads mazes back from an archive written by MazeArchiveWriter. Only the
+ * index is mapped when the archive is opened; a maze is looked up by binary
+ * search of the index and only its own entry is read and decoded, so any
+ * maze of millions can be loaded without reading the rest.
+ * <p>
+ * The file is little-endian: a header, the entries in the order they were
+ * added, and the index sorted by id.
+ * <pre>
+ * header  0  magic "MZAR"       4  format version
+ *         8  number of mazes   16  index offset (long)
+ * entry   0  width in tiles     4  height in tiles
+ *         8  tile size         12  flags (bit 0: seeded, bits 8-15: Coding
+ *                                  code)
+ *        16  seed (long)       24  random algorithm, its RandomAlgorithm
+ *                                  code or 0 if unknown
+ *        28  start tile index  32  end tile index (-1 if none)
+ *        36  carving algorithm, its MazeFile code or 0 if unknown
+ *        40  tree length       44  encoded tree
+ * index  0  id (long)          8  entry offset (long)
+ * </pre>
+ * As in a .maze file, a seeded maze carved with an algorithm that has no
+ * code is loaded as unseeded. Version 1 entries have no carving algorithm,
+ * so the tree length is at 36 and the tree at 40, and were carved
+ * depth-first.
+ * <p>
+ * Reading is safe from several threads at once.
+ * @author Julian
+ */
+public class MazeArchive implements Closeable {
+
+    public static final String EXTENSION = "mzar";
+
+    static final int MAGIC = 'M' | 'Z' << 8 | 'A' << 16 | 'R' << 24;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_HEADER_SIZE = 44;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    static final int FLAG_SEEDED = 0x1;
+    static final int CODING_SHIFT = 8;
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final int count;
+    private final int entryHeaderSize;
+
+
+    /***************************************************************************
+     * Opens an archive and maps its index
+     * @param file The archive file
+     * @throws IOException if the file cannot be read or is not an archive
+     */
+    public MazeArchive(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a maze archive: " + file);
+            }
+            int version = header.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported maze archive version "
+                        + version + ": " + file);
+            }
+            entryHeaderSize = version == 1 ? ENTRY_HEADER_SIZE - Integer.BYTES
+                    : ENTRY_HEADER_SIZE;
+            long mazes = header.getLong();
+            long indexOffset = header.getLong();
+            if (mazes < 0 || mazes > Integer.MAX_VALUE / INDEX_ENTRY_SIZE
+                    || indexOffset < HEADER_SIZE || indexOffset
+                    + mazes * INDEX_ENTRY_SIZE != channel.size()) {
+                throw new IOException("Corrupt maze archive header: " + file);
+            }
+            count = (int) mazes;
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset,
+                    (long) count * INDEX_ENTRY_SIZE);
+            index.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes in the archive
+     * @return the number of mazes
+     */
+    public int size() {
+        return count;
+    }
+
+    /***************************************************************************
+     * Returns the id of a maze, in order of id
+     * @param i The position of the maze in the index, from 0 to size() - 1
+     * @return the id of the maze
+     */
+    public long getId(int i) {
+        return index.getLong(i * INDEX_ENTRY_SIZE);
+    }
+
+    /***************************************************************************
+     * Checks whether the archive has a maze with an id
+     * @param id The id to look for
+     * @return true if there is a maze with the id
+     */
+    public boolean contains(long id) {
+        return find(id) >= 0;
+    }
+
+    /***************************************************************************
+     * Loads the maze with an id
+     * @param id The id the maze was added under
+     * @return the maze, with its start and end tiles, or null if there is no
+     * maze with the id
+     * @throws IOException if the entry cannot be read or is corrupt
+     */
+    public Maze get(long id) throws IOException {
+        int i = find(id);
+        return i < 0 ? null : read(i);
+    }
+
+    /***************************************************************************
+     * Loads a maze by its position in the index
+     * @param i The position of the maze in the index, from 0 to size() - 1
+     * @return the maze, with its start and end tiles
+     * @throws IOException if the entry cannot be read or is corrupt
+     */
+    public Maze read(int i) throws IOException {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("No maze " + i + " in an"
+                    + " archive of " + count);
+        }
+        long offset = index.getLong(i * INDEX_ENTRY_SIZE + Long.BYTES);
+        ByteBuffer header = ByteBuffer.allocate(entryHeaderSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, offset);
+
+        int width = header.getInt();
+        int height = header.getInt();
+        int tileSize = header.getInt();
+        int flags = header.getInt();
+        long seed = header.getLong();
+        int algorithmCode = header.getInt();
+        int start = header.getInt();
+        int end = header.getInt();
+        int carverCode = entryHeaderSize == ENTRY_HEADER_SIZE
+                ? header.getInt() : 1;
+        int treeLength = header.getInt();
+        RandomAlgorithm algorithm = RandomAlgorithm.fromCode(algorithmCode);
+        MazeTreeCodec.Coding coding = MazeTreeCodec.Coding.fromCode(
+                (flags >>> CODING_SHIFT) & 0xFF);
+
+        long tiles = (long) width * height;
+        if (width <= 0 || height <= 0 || tileSize <= 0
+                || tiles > Integer.MAX_VALUE
+                || algorithmCode != 0 && algorithm == null
+                || coding == null
+                || carverCode < 0 || carverCode > MazeFile.CARVERS.length
+                || start < 0 || start >= tiles
+                || end < -1 || end >= tiles
+                || treeLength < 0 || offset + entryHeaderSize + treeLength
+                > channel.size()) {
+            throw new IOException("Corrupt maze archive entry " + i + ": "
+                    + file);
+        }
+        byte[] tree = new byte[treeLength];
+        readFully(ByteBuffer.wrap(tree), offset + entryHeaderSize);
+
+        Maze maze;
+        if (algorithm == null) {
+            maze = new Maze(width, height, tileSize,
+                    RandomAlgorithm.LEGACY.newRandom());
+        } else {
+            maze = new Maze(width, height, tileSize,
+                    (flags & FLAG_SEEDED) != 0 && carverCode != 0, seed,
+                    algorithm);
+        }
+        if (carverCode != 0) {
+            maze.setMazeAlgorithm(MazeFile.CARVERS[carverCode - 1]);
+        }
+        MazeTreeCodec.decode(tree, maze.getGrid(), start, coding);
+        maze.setEnds(start, end);
+        return maze;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /***************************************************************************
+     * Finds an id in the sorted index
+     * @return the position of the id, or -1 if it is not there
+     */
+    private int find(long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = getId(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /***************************************************************************
+     * Fills a buffer from the file at a position, without moving the channel,
+     * and flips it for reading
+     */
+    private void readFully(ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of maze archive: "
+                        + file);
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes mazes to a MazeArchive file one after another. Each maze is stored
+ * as its encoded spanning tree, so an entry is a few bytes per hundred
+ * tiles. The index of ids is kept in memory, sixteen bytes per maze, and is
+ * sorted and written at the end when the archive is closed.
+ * @author Julian
+ */
+public class MazeArchiveWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final MazeTreeCodec.Coding coding;
+
+    // Ids and entry offsets, in the order the mazes were added
+    private long[] ids;
+    private long[] offsets;
+    private int count;
+
+    private long position;
+    private final ByteBuffer header;
+    private boolean closed;
+
+
+    /***************************************************************************
+     * Creates an archive, replacing anything already in the file
+     * @param file The file to write
+     * @param coding How to encode each maze's tree
+     * @throws IOException if the file cannot be created
+     */
+    public MazeArchiveWriter(File file, MazeTreeCodec.Coding coding)
+            throws IOException {
+        this.coding = coding;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ids = new long[1024];
+        offsets = new long[1024];
+        header = ByteBuffer.allocate(MazeArchive.ENTRY_HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        // The file header is written again with the real values on close
+        position = MazeArchive.HEADER_SIZE;
+        channel.position(position);
+    }
+
+    /***************************************************************************
+     * Adds a seeded maze under its seed
+     * @param maze The generated maze to add
+     * @throws IOException if the maze cannot be written
+     */
+    public void add(Maze maze) throws IOException {
+        if (!maze.usesSeed()) {
+            throw new IllegalArgumentException("Only a seeded maze can be"
+                    + " added under its seed");
+        }
+        add(maze.getSeed(), maze);
+    }
+
+    /***************************************************************************
+     * Adds a maze under an id
+     * @param id The id to look the maze up by, which must be unique
+     * @param maze The generated maze to add
+     * @throws IOException if the maze cannot be written
+     */
+    public void add(long id, Maze maze) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The archive is closed");
+        }
+        byte[] tree = MazeTreeCodec.encode(maze, coding);
+        RandomAlgorithm algorithm = maze.getRandomAlgorithm();
+
+        header.clear();
+        header.putInt(maze.getMazeWidth())
+                .putInt(maze.getMazeHeight())
+                .putInt(maze.mazeTileSize)
+                .putInt((maze.usesSeed() ? MazeArchive.FLAG_SEEDED : 0)
+                        | coding.getCode() << MazeArchive.CODING_SHIFT)
+                .putLong(maze.getSeed())
+                .putInt(algorithm == null ? 0 : algorithm.getCode())
+                .putInt(maze.getStart())
+                .putInt(maze.getEnd())
+                .putInt(MazeFile.carverCode(maze.getMazeAlgorithm()))
+                .putInt(tree.length);
+        header.flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(tree));
+
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count << 1);
+            offsets = Arrays.copyOf(offsets, count << 1);
+        }
+        ids[count] = id;
+        offsets[count] = position;
+        count++;
+        position += MazeArchive.ENTRY_HEADER_SIZE + tree.length;
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes added
+     * @return the number of mazes added
+     */
+    public int size() {
+        return count;
+    }
+
+    /***************************************************************************
+     * Writes the index and the file header, and closes the file
+     * @throws IOException if the archive cannot be finished, or if two mazes
+     * were added under the same id
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            int[] order = sortedOrder();
+
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(1 << 16)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                if (i > 0 && ids[entry] == ids[order[i - 1]]) {
+                    throw new IOException("Two mazes have the id "
+                            + ids[entry]);
+                }
+                if (index.remaining() < MazeArchive.INDEX_ENTRY_SIZE) {
+                    index.flip();
+                    writeFully(index);
+                    index.clear();
+                }
+                index.putLong(ids[entry]).putLong(offsets[entry]);
+            }
+            index.flip();
+            writeFully(index);
+
+            ByteBuffer fileHeader = ByteBuffer.allocate(MazeArchive.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            fileHeader.putInt(MazeArchive.MAGIC)
+                    .putInt(MazeArchive.VERSION)
+                    .putLong(count)
+                    .putLong(indexOffset);
+            fileHeader.clear();
+            channel.position(0);
+            writeFully(fileHeader);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /***************************************************************************
+     * Sorts the entries by id with a bottom-up merge sort of their positions,
+     * which needs no boxing however many mazes there are
+     * @return the positions of the entries in order of id
+     */
+    private int[] sortedOrder() {
+        int[] order = new int[count];
+        int[] merged = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        for (int width = 1; width < count; width <<= 1) {
+            for (int left = 0; left < count; left += width << 1) {
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + (width << 1), count);
+                int a = left;
+                int b = middle;
+                for (int i = left; i < right; i++) {
+                    if (b >= right || (a < middle
+                            && ids[order[a]] <= ids[order[b]])) {
+                        merged[i] = order[a++];
+                    } else {
+                        merged[i] = order[b++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
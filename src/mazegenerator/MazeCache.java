@@ -0,0 +1,400 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps seeded mazes so a maze asked for again is copied instead of carved
+ * again. A seeded maze is fully determined by its size, tile size, seed,
+ * random number generator and carving algorithm, which together are the key.
+ * <p>
+ * The memory tier holds only the path bits, start and end of each maze, and
+ * evicts the least recently used mazes once it holds more bytes than its
+ * limit. The optional disk tier saves every maze put in the cache as a .maze
+ * file in a directory, so mazes survive evictions and restarts. Unseeded
+ * mazes are never cached. Mazes are generated outside the cache's lock, so
+ * threads asking for the same missing maze at once may each generate it.
+ * @author Julian
+ */
+public class MazeCache {
+
+    // Names the directory of the disk tier used by create(long)
+    public static final String DIRECTORY_PROPERTY = "mazegenerator.cacheDir";
+
+    // Bytes counted for an entry on top of its path bits
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final File directory;
+    private long bytes;
+
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong hits;
+    private final AtomicLong diskHits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+
+    /***************************************************************************
+     * Creates a cache kept only in memory
+     * @param maxBytes The number of bytes the memory tier may hold
+     */
+    public MazeCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /***************************************************************************
+     * Creates a cache with a disk tier
+     * @param maxBytes The number of bytes the memory tier may hold
+     * @param directory The directory of the disk tier, or null for none
+     */
+    public MazeCache(long maxBytes, File directory) {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        bytes = 0;
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+
+        hits = new AtomicLong();
+        diskHits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+    }
+
+    /***************************************************************************
+     * Creates a cache with a disk tier in the directory named by the
+     * mazegenerator.cacheDir system property, if it is set
+     * @param maxBytes The number of bytes the memory tier may hold
+     * @return the new cache
+     */
+    public static MazeCache create(long maxBytes) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        return new MazeCache(maxBytes,
+                directory == null || directory.isEmpty()
+                        ? null : new File(directory));
+    }
+
+    /***************************************************************************
+     * Generates a maze unless an identical one is cached, in which case the
+     * cached maze is copied into it. A maze that is generated is then cached.
+     * @param maze The maze to fill in, which must not have been generated
+     */
+    public void generateMaze(Maze maze) {
+        generateMaze(maze, GenerationMonitor.NONE);
+    }
+
+    /***************************************************************************
+     * Generates a maze unless an identical one is cached, reporting progress
+     * if it has to be generated. See generateMaze(Maze).
+     * @param maze The maze to fill in, which must not have been generated
+     * @param monitor The monitor to report generation progress to
+     * @throws java.util.concurrent.CancellationException if the monitor is
+     * cancelled during generation
+     */
+    public void generateMaze(Maze maze, GenerationMonitor monitor) {
+        if (!load(maze)) {
+            maze.generateMaze(monitor);
+            put(maze);
+        }
+    }
+
+    /***************************************************************************
+     * Fills in a maze from the cache, looking in memory and then on disk
+     * @param maze The maze to fill in, which must not have been generated
+     * @return True if the maze was cached, false if it must be generated
+     */
+    public boolean load(Maze maze) {
+        Key key = Key.of(maze);
+        if (key == null) {
+            return false;
+        }
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            entry = readFile(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            diskHits.incrementAndGet();
+            add(key, entry);
+        }
+
+        maze.getGrid().readPath(LongBuffer.wrap(entry.path));
+        maze.setEnds(entry.start, entry.end);
+        return true;
+    }
+
+    /***************************************************************************
+     * Caches a generated maze. Unseeded mazes are ignored.
+     * @param maze The maze to cache
+     */
+    public void put(Maze maze) {
+        Key key = Key.of(maze);
+        if (key == null || maze.getStart() < 0) {
+            return;
+        }
+
+        // The path bits are only copied if the memory tier can hold them
+        MazeGrid grid = maze.getGrid();
+        if (Entry.size(grid.getPathWords()) <= maxBytes) {
+            long[] path = new long[grid.getPathWords()];
+            grid.writePath(LongBuffer.wrap(path));
+            add(key, new Entry(path, maze.getStart(), maze.getEnd()));
+        }
+        writeFile(key, maze);
+    }
+
+    /***************************************************************************
+     * Adds an entry to the memory tier, evicting the least recently used
+     * entries until it fits. An entry larger than the whole tier is not kept.
+     */
+    private synchronized void add(Key key, Entry entry) {
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            bytes -= old.size();
+        }
+        bytes += entry.size();
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /***************************************************************************
+     * Reads a maze from the disk tier
+     * @param key The key of the maze
+     * @return the maze's entry, or null if it is not on disk
+     */
+    private Entry readFile(Key key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, key.fileName());
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Maze saved = MazeFile.read(file);
+            if (!key.equals(new Key(saved, key.algorithmName))) {
+                return null;
+            }
+            MazeGrid grid = saved.getGrid();
+            long[] path = new long[grid.getPathWords()];
+            grid.writePath(LongBuffer.wrap(path));
+            return new Entry(path, saved.getStart(), saved.getEnd());
+        } catch (IOException ex) {
+            System.err.println("There was an error reading a cached maze: "
+                    + ex.getMessage());
+            return null;
+        }
+    }
+
+    /***************************************************************************
+     * Saves a maze to the disk tier, unless it is already there. The file is
+     * written under a temporary name and then renamed, so other threads and
+     * processes never read it half written.
+     */
+    private void writeFile(Key key, Maze maze) {
+        if (directory == null) {
+            return;
+        }
+        File file = new File(directory, key.fileName());
+        if (file.isFile()) {
+            return;
+        }
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException(directory.getPath());
+            }
+            File temp = File.createTempFile("maze", ".tmp", directory);
+            try {
+                MazeFile.write(maze, temp);
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException ex) {
+            System.err.println("There was an error writing a cached maze: "
+                    + ex.getMessage());
+        }
+    }
+
+    /***************************************************************************
+     * Removes every maze from the memory tier. The disk tier is kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes found in the memory tier
+     * @return the number of memory hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes found in the disk tier after missing the
+     * memory tier
+     * @return the number of disk hits
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of seeded mazes that were not cached
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes evicted from the memory tier
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /***************************************************************************
+     * Returns the number of bytes held by the memory tier
+     * @return the number of bytes held by the memory tier
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes in the memory tier
+     * @return the number of mazes in the memory tier
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "MazeCache[hits=" + getHits() + ", diskHits=" + getDiskHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+                + ", mazes=" + size() + ", bytes=" + getBytes() + "]";
+    }
+
+
+    /**
+     * Everything that determines a seeded maze.
+     */
+    private static final class Key {
+        final int width;
+        final int height;
+        final int tileSize;
+        final long seed;
+        final RandomAlgorithm random;
+        final String algorithmName;
+
+        Key(Maze maze, String algorithmName) {
+            width = maze.getMazeWidth();
+            height = maze.getMazeHeight();
+            tileSize = maze.mazeTileSize;
+            seed = maze.getSeed();
+            random = maze.getRandomAlgorithm();
+            this.algorithmName = algorithmName;
+        }
+
+        /**
+         * Returns the key of a maze, or null if the maze is not seeded and so
+         * cannot be cached.
+         */
+        static Key of(Maze maze) {
+            if (!maze.usesSeed() || maze.getRandomAlgorithm() == null) {
+                return null;
+            }
+            return new Key(maze, maze.getMazeAlgorithm().getName());
+        }
+
+        String fileName() {
+            return String.format(Locale.ROOT, "%dx%d-%d-%s-%s-%d.%s",
+                    width, height, tileSize,
+                    random.name().toLowerCase(Locale.ROOT),
+                    algorithmName.toLowerCase(Locale.ROOT)
+                            .replaceAll("[^a-z0-9]+", "-"),
+                    seed, MazeFile.EXTENSION);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && height == other.height
+                    && tileSize == other.tileSize && seed == other.seed
+                    && random == other.random
+                    && algorithmName.equals(other.algorithmName);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = width;
+            hash = 31 * hash + height;
+            hash = 31 * hash + tileSize;
+            hash = 31 * hash + Long.hashCode(seed);
+            hash = 31 * hash + random.hashCode();
+            return 31 * hash + algorithmName.hashCode();
+        }
+    }
+
+    /**
+     * The bit-packed form of a cached maze.
+     */
+    private static final class Entry {
+        final long[] path;
+        final int start;
+        final int end;
+
+        Entry(long[] path, int start, int end) {
+            this.path = path;
+            this.start = start;
+            this.end = end;
+        }
+
+        long size() {
+            return size(path.length);
+        }
+
+        static long size(int pathWords) {
+            return (long) pathWords * Long.BYTES + ENTRY_OVERHEAD;
+        }
+    }
+}
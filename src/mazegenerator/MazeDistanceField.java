@@ -0,0 +1,147 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The number of steps from one tile of a maze to every path tile reachable
+ * from it. Distances are kept in 16 bits per tile when the farthest tile is
+ * close enough, otherwise in 32.
+ * @author Julian
+ */
+public class MazeDistanceField {
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int source;
+
+    // Distance + 1 per tile, 0 if unreached; null when wide is used
+    private final char[] compact;
+    // Distance per tile, -1 if unreached; null when compact is used
+    private final int[] wide;
+
+    private final int maxDistance;
+    private final int farthest;
+    private final int reachedTiles;
+    private final long elapsedNanos;
+
+
+    MazeDistanceField(MazeGrid grid, int source, char[] compact, int[] wide,
+            int maxDistance, int farthest, int reachedTiles,
+            long elapsedNanos) {
+        this.mazeWidth = grid.getWidth();
+        this.mazeHeight = grid.getHeight();
+        this.source = source;
+        this.compact = compact;
+        this.wide = wide;
+        this.maxDistance = maxDistance;
+        this.farthest = farthest;
+        this.reachedTiles = reachedTiles;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /***************************************************************************
+     * Returns the distance to a tile
+     * @param index The row-major index of the tile
+     * @return the number of steps from the source tile, or -1 if the tile is
+     * a wall or cannot be reached
+     */
+    public int getDistance(int index) {
+        return compact != null ? compact[index] - 1 : wide[index];
+    }
+
+    /***************************************************************************
+     * Returns the distance to a tile
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return the number of steps from the source tile, or -1 if the tile is
+     * a wall or cannot be reached
+     */
+    public int getDistance(int x, int y) {
+        return getDistance(y * mazeWidth + x);
+    }
+
+    /***************************************************************************
+     * Copies the distances of a tile row
+     * @param y The y value of the row
+     * @param row Receives the distance of tile x at row[x], or -1; must hold
+     * at least width values
+     */
+    void copyRow(int y, int[] row) {
+        int index = y * mazeWidth;
+        if (compact != null) {
+            for (int x = 0; x < mazeWidth; x++) {
+                row[x] = compact[index + x] - 1;
+            }
+        } else {
+            System.arraycopy(wide, index, row, 0, mazeWidth);
+        }
+    }
+
+    /***************************************************************************
+     * Returns the tile the distances are measured from
+     * @return the index of the source tile
+     */
+    public int getSource() {
+        return source;
+    }
+
+    /***************************************************************************
+     * Returns the distance to the tile farthest from the source
+     * @return the largest distance
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /***************************************************************************
+     * Returns a tile farthest from the source, a natural place for a goal
+     * @return the index of a tile at the largest distance
+     */
+    public int getFarthestTile() {
+        return farthest;
+    }
+
+    /***************************************************************************
+     * Returns the number of tiles reachable from the source, including it
+     * @return the number of reached tiles
+     */
+    public int getReachedTiles() {
+        return reachedTiles;
+    }
+
+    /***************************************************************************
+     * Returns whether the distances are kept in 16 bits per tile
+     * @return True if the field is compact, false if it uses 32 bits per tile
+     */
+    public boolean isCompact() {
+        return compact != null;
+    }
+
+    /***************************************************************************
+     * Returns how long the distances took to find
+     * @return the search time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /***************************************************************************
+     * Returns the width of the maze in tiles
+     * @return the width of the maze in tiles
+     */
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+
+    /***************************************************************************
+     * Returns the height of the maze in tiles
+     * @return the height of the maze in tiles
+     */
+    public int getMazeHeight() {
+        return mazeHeight;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and loads mazes in the binary .maze format through memory mapped
+ * files, so no image has to be encoded or decoded.
+ * <p>
+ * The file is little-endian: a 64 byte header followed by the path bits, one
+ * bit per tile, 64 tiles per long in row-major order. That is the layout of
+ * MazeGrid, so the body is copied in and out in a single bulk transfer.
+ * <pre>
+ *  0  magic "MAZE"        4  format version
+ *  8  width in tiles     12  height in tiles
+ * 16  tile size          20  flags (bit 0: seeded)
+ * 24  seed (long)        32  random algorithm, its RandomAlgorithm code
+ *                            or 0 if unknown
+ * 36  start tile index   40  end tile index (-1 if none)
+ * 44  carving algorithm, its code + 1 or 0 if unknown
+ * 48  reserved (zero)    64  path bits
+ * </pre>
+ * The carving algorithm code is the algorithm's place in CARVERS. A seeded
+ * maze carved with an algorithm not in that list cannot be generated again,
+ * so it is loaded as unseeded. Version 1 files have no carving algorithm and
+ * were carved depth-first.
+ * @author Julian
+ */
+public class MazeFile {
+    
+    public static final String EXTENSION = "maze";
+    
+    private static final int MAGIC = 'M' | 'A' << 8 | 'Z' << 16 | 'E' << 24;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    
+    private static final int FLAG_SEEDED = 0x1;
+    
+    // Carving algorithms by code; only ever appended to, as saved files and
+    // archives refer to them by their place here
+    static final MazeAlgorithm[] CARVERS = {
+        new DepthFirstAlgorithm(),
+        new BinaryTreeAlgorithm(),
+        new SidewinderAlgorithm(),
+        new KruskalAlgorithm(),
+        new PrimAlgorithm(),
+        new WilsonAlgorithm(),
+        new GrowingTreeAlgorithm(GrowingTreeAlgorithm.Selection.NEWEST),
+        new GrowingTreeAlgorithm(GrowingTreeAlgorithm.Selection.OLDEST),
+        new GrowingTreeAlgorithm(GrowingTreeAlgorithm.Selection.RANDOM),
+        new GrowingTreeAlgorithm(
+                GrowingTreeAlgorithm.Selection.NEWEST_OR_RANDOM)
+    };
+    
+    // Bytes of path words buffered at a time when writing to a stream
+    private static final int STREAM_BUFFER_SIZE = 1 << 13;
+    
+    private MazeFile() {
+    }
+    
+    /***************************************************************************
+     * Saves a maze to a file, replacing anything already in it
+     * @param maze The maze to save
+     * @param file The file to save to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Maze maze, File file) throws IOException {
+        MazeGrid grid = maze.getGrid();
+        long size = HEADER_SIZE + (long) grid.getPathWords() * Long.BYTES;
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            putHeader(buffer, maze);
+            buffer.position(HEADER_SIZE);
+            grid.writePath(buffer.asLongBuffer());
+            buffer.force();
+        }
+    }
+    
+    /***************************************************************************
+     * Writes a maze to a stream in the same format, a few kilobytes at a time,
+     * and closes the stream
+     * @param maze The maze to write
+     * @param out The stream to write to
+     * @throws IOException if the maze cannot be written
+     */
+    public static void write(Maze maze, OutputStream out) throws IOException {
+        try (OutputStream stream = out) {
+            MazeGrid grid = maze.getGrid();
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(buffer, maze);
+            buffer.position(HEADER_SIZE);
+            
+            int tiles = grid.size();
+            for (int index = 0; index < tiles; index += 64) {
+                if (!buffer.hasRemaining()) {
+                    stream.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                buffer.putLong(grid.getPathBits(index,
+                        Math.min(64, tiles - index)));
+            }
+            stream.write(buffer.array(), 0, buffer.position());
+        }
+    }
+    
+    private static void putHeader(ByteBuffer buffer, Maze maze) {
+        RandomAlgorithm algorithm = maze.getRandomAlgorithm();
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(maze.getMazeWidth())
+                .putInt(maze.getMazeHeight())
+                .putInt(maze.mazeTileSize)
+                .putInt(maze.usesSeed() ? FLAG_SEEDED : 0)
+                .putLong(maze.getSeed())
+                .putInt(algorithm == null ? 0 : algorithm.getCode())
+                .putInt(maze.getStart())
+                .putInt(maze.getEnd())
+                .putInt(carverCode(maze.getMazeAlgorithm()));
+    }
+    
+    /***************************************************************************
+     * Returns the code saved for a carving algorithm
+     * @param mazeAlgorithm The algorithm a maze was carved with
+     * @return its place in CARVERS plus 1, or 0 if it is not there
+     */
+    static int carverCode(MazeAlgorithm mazeAlgorithm) {
+        for (int i = 0; i < CARVERS.length; i++) {
+            if (CARVERS[i].getName().equals(mazeAlgorithm.getName())) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+    
+    /***************************************************************************
+     * Loads a maze from a file. Only the header is read before the grid is
+     * allocated; the body is then paged in by the bulk copy into the grid.
+     * @param file The file to load
+     * @return the saved maze, with its start and end tiles
+     * @throws IOException if the file cannot be read or is not a maze file
+     */
+    public static Maze read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a maze file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a maze file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported maze file version "
+                        + version + ": " + file);
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int tileSize = buffer.getInt();
+            int flags = buffer.getInt();
+            long seed = buffer.getLong();
+            int algorithmCode = buffer.getInt();
+            int start = buffer.getInt();
+            int end = buffer.getInt();
+            int carverCode = version == 1 ? 1 : buffer.getInt();
+            RandomAlgorithm algorithm = RandomAlgorithm.fromCode(algorithmCode);
+            
+            long tiles = (long) width * height;
+            if (width <= 0 || height <= 0 || tileSize <= 0
+                    || tiles > Integer.MAX_VALUE
+                    || algorithmCode != 0 && algorithm == null
+                    || carverCode < 0 || carverCode > CARVERS.length
+                    || start < -1 || start >= tiles
+                    || end < -1 || end >= tiles) {
+                throw new IOException("Corrupt maze file header: " + file);
+            }
+            long words = (tiles + 63) >>> 6;
+            if (fileSize != HEADER_SIZE + words * Long.BYTES) {
+                throw new IOException("Maze file is " + fileSize
+                        + " bytes, expected "
+                        + (HEADER_SIZE + words * Long.BYTES) + ": " + file);
+            }
+            
+            Maze maze;
+            if (algorithm == null) {
+                maze = new Maze(width, height, tileSize,
+                        RandomAlgorithm.LEGACY.newRandom());
+            } else {
+                maze = new Maze(width, height, tileSize,
+                        (flags & FLAG_SEEDED) != 0 && carverCode != 0, seed,
+                        algorithm);
+            }
+            if (carverCode != 0) {
+                maze.setMazeAlgorithm(CARVERS[carverCode - 1]);
+            }
+            
+            buffer.position(HEADER_SIZE);
+            maze.getGrid().readPath(buffer.asLongBuffer());
+            maze.setEnds(start, end);
+            return maze;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for one maze generation, carrying its
+ * GenerationMetrics. When the event is not enabled in the recording, only
+ * the shouldCommit check is paid.
+ * @author Julian
+ */
+@Name("mazegenerator.MazeGeneration")
+@Label("Maze Generation")
+@Category("Maze Generator")
+@Description("Generation of one maze, with the work the DFS did")
+class MazeGenerationEvent extends jdk.jfr.Event {
+    
+    @Label("Algorithm")
+    @Description("The name of the algorithm that carved the maze")
+    String algorithm;
+    
+    @Label("Width")
+    int width;
+    
+    @Label("Height")
+    int height;
+    
+    @Label("Seeded")
+    boolean seeded;
+    
+    @Label("Seed")
+    long seed;
+    
+    @Label("Random Algorithm")
+    String randomAlgorithm;
+    
+    @Label("Cells Carved")
+    long cellsCarved;
+    
+    @Label("Peak Stack Depth")
+    int peakStackDepth;
+    
+    @Label("Random Draws")
+    long randomDraws;
+    
+    @Label("Wasted Draws")
+    @Description("Directions drawn that the tile had already checked")
+    long wastedDraws;
+    
+    @Label("Rejected Out Of Bounds")
+    long rejectedOutOfBounds;
+    
+    @Label("Rejected Already Path")
+    long rejectedAlreadyPath;
+    
+    @Label("Rejected Conflict")
+    long rejectedConflict;
+    
+    @Label("Start Retries")
+    long startRetries;
+    
+    @Label("End Retries")
+    long endRetries;
+}
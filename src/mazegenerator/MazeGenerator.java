@@ -5,19 +5,30 @@
  */
 package mazegenerator;
 
+import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 
@@ -29,13 +40,37 @@ public class MazeGenerator extends JFrame {
 
     private static final int DEFAULT_MAZE_SIZE = 100;
     private static final int DEFAULT_MAZE_TILE_SIZE = 5;
+    // How often the screen catches up with a maze being generated
+    private static final int REFRESH_MILLIS = 33;
+    // Bytes of path bits kept for mazes asked for again
+    private static final long CACHE_BYTES = 64L << 20;
+    // Width and height in tiles of the window shown of an infinite maze
+    private static final int WORLD_SPAN = 1 << 20;
     
     public static MazePanel mazePanel;
     
+    private final JScrollPane scrollPane;
+    private final JPanel statusBar;
+    private final JProgressBar progressBar;
+    
+    private final MazeCache mazeCache;
+    
+    private JMenu fileMenu;
+    private JMenu solveMenu;
+    private JMenuItem saveItem;
+    private JCheckBoxMenuItem liveView;
+    
+    // The generation in progress, or null when idle
+    private GenerationMonitor generation;
+    
     private int mazeSizeX;
     private int mazeSizeY;
     
     private Maze maze;
+    // A maze no longer shown, reset and carved again for the next new maze
+    private Maze spare;
+    // The infinite maze on screen instead of maze, or null
+    private ChunkedMaze world;
     
     public MazeGenerator(String[] args) {
         mazeSizeX = DEFAULT_MAZE_SIZE;
@@ -49,10 +84,29 @@ public class MazeGenerator extends JFrame {
         maze.generateMaze();
         
         mazePanel = new MazePanel(maze);
+        scrollPane = new JScrollPane(mazePanel);
+        mazeCache = MazeCache.create(CACHE_BYTES);
+        
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (generation != null) {
+                    generation.cancel();
+                }
+            }
+        });
+        statusBar = new JPanel(new BorderLayout());
+        statusBar.add(progressBar, BorderLayout.CENTER);
+        statusBar.add(cancel, BorderLayout.EAST);
+        statusBar.setVisible(false);
         
         addJMenuBar();
         this.setTitle("Maze Generator");
-        this.add(mazePanel);
+        this.add(scrollPane);
+        this.add(statusBar, BorderLayout.SOUTH);
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         this.pack();
     }
@@ -64,6 +118,42 @@ public class MazeGenerator extends JFrame {
      */
     public static void main(String[] args) {
         
+        // for headless batch generation
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchGenerator.runFromCommandLine(args));
+        }
+        
+        // for streaming a single maze straight to a file
+        if (args.length > 0 && args[0].equals("--stream")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(StreamingMazeGenerator.runFromCommandLine(args));
+        }
+        
+        // for serving mazes over HTTP
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(MazeServer.runFromCommandLine(args));
+        }
+        
+        // for writing a region of an infinite maze to a file
+        if (args.length > 0 && args[0].equals("--region")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(ChunkedMaze.runFromCommandLine(args));
+        }
+
+        // for mazes too large for the heap
+        if (args.length > 0 && args[0].equals("--large")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(LargeMaze.runFromCommandLine(args));
+        }
+
+        // for finding a seed whose maze has a target difficulty
+        if (args.length > 0 && args[0].equals("--search")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(MazeSearch.runFromCommandLine(args));
+        }
+
         // for GUI
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
@@ -141,18 +231,200 @@ public class MazeGenerator extends JFrame {
         renderNewMaze(mazeWidth, mazeHeight, tileSize, usesSeed, seed);
     }
     
+    /***************************************************************************
+     * Generates a new maze on a background thread. While it runs, a progress
+     * bar and a cancel button are shown, and with the live view on the maze
+     * is drawn as it is carved. A cancelled maze is discarded and the previous
+     * maze is shown again. Seeded mazes made before are copied from the cache.
+     * The maze replaced last time is reset and reused when it has the same
+     * size, and so is the panel, so regenerating over and over allocates
+     * almost nothing.
+     * @param mazeWidth The width of the maze in tiles
+     * @param mazeHeight The height of the maze in tiles
+     * @param tileSize The size of a tile in pixels
+     * @param usesSeed Whether the maze uses the given seed
+     * @param seed The seed of the maze
+     */
     private void renderNewMaze(int mazeWidth, int mazeHeight, int tileSize, boolean usesSeed, long seed) {
         // Handle rendering the new maze
-        this.remove(mazePanel);
+        final Maze previous = maze;
+        final Maze newMaze = takeSpare(mazeWidth, mazeHeight, tileSize,
+                usesSeed, seed);
+        final GenerationMonitor monitor = new GenerationMonitor();
+        final boolean live = liveView.isSelected();
+        final int width = mazeWidth;
         
-        maze = new Maze(mazeWidth, mazeHeight, tileSize, usesSeed, seed);
-        maze.generateMaze();
+        if (live) {
+            showMaze(newMaze);
+        }
+        setGeneration(monitor);
+        
+        // Repaints are coalesced here rather than requested per carved tile;
+        // each tick only redraws the rows carved since the last one.
+        final Timer refresh = new Timer(REFRESH_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                progressBar.setValue((int) (monitor.getProgress() * 100));
+                int[] dirty = monitor.takeDirtyRange();
+                if (live && dirty != null) {
+                    mazePanel.invalidateRows(dirty[0] / width, dirty[1] / width);
+                }
+            }
+        });
+        
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                mazeCache.generateMaze(newMaze, monitor);
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                refresh.stop();
+                setGeneration(null);
+                try {
+                    get();
+                    if (live) {
+                        mazePanel.invalidateAll();
+                    } else {
+                        showMaze(newMaze);
+                    }
+                    spare = previous;
+                } catch (ExecutionException ex) {
+                    if (!(ex.getCause() instanceof CancellationException)) {
+                        System.err.println("There was an error generating the"
+                                + " maze.");
+                    }
+                    if (live) {
+                        showMaze(previous);
+                    }
+                    spare = newMaze;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }.execute();
+        refresh.start();
+    }
+    
+    /***************************************************************************
+     * Returns a maze to generate into: the spare maze reset with a new seed
+     * if it can make the same maze a new Maze would, otherwise a new Maze
+     * @param mazeWidth The width of the maze in tiles
+     * @param mazeHeight The height of the maze in tiles
+     * @param tileSize The size of a tile in pixels
+     * @param usesSeed Whether the maze uses the given seed
+     * @param seed The seed of the maze
+     * @return a maze of walls ready to generate
+     */
+    private Maze takeSpare(int mazeWidth, int mazeHeight, int tileSize,
+            boolean usesSeed, long seed) {
+        Maze reused = spare;
+        spare = null;
+        if (reused != null && reused != maze
+                && reused.canReset(mazeWidth, mazeHeight)
+                && reused.getRandomAlgorithm() == RandomAlgorithm.LEGACY
+                && reused.getMazeAlgorithm() instanceof DepthFirstAlgorithm) {
+            reused.reset(tileSize, usesSeed, seed);
+            return reused;
+        }
+        return new Maze(mazeWidth, mazeHeight, tileSize, usesSeed, seed);
+    }
+    
+    /***************************************************************************
+     * Shows or hides the progress of a generation, disabling the menus that
+     * need a finished maze while one is being generated
+     * @param monitor The generation in progress, or null when it has ended
+     */
+    private void setGeneration(GenerationMonitor monitor) {
+        generation = monitor;
+        boolean idle = monitor == null;
+        fileMenu.setEnabled(idle);
+        solveMenu.setEnabled(idle && world == null);
+        progressBar.setValue(0);
+        statusBar.setVisible(!idle);
+        this.validate();
+    }
+    
+    /***************************************************************************
+     * Replaces the maze on screen
+     * @param newMaze The maze to show
+     */
+    private void showMaze(Maze newMaze) {
+        maze = newMaze;
+        saveItem.setEnabled(true);
+        solveMenu.setEnabled(generation == null);
+        if (world == null && mazePanel.canShow(newMaze)) {
+            mazePanel.setMaze(newMaze);
+            return;
+        }
+        world = null;
         mazePanel = new MazePanel(maze);
         
-        this.add(mazePanel);
+        scrollPane.setViewportView(mazePanel);
         this.pack();
     }
     
+    /***************************************************************************
+     * Prompts for a seed and shows a window of the infinite maze it makes,
+     * centered on the origin. If the prompt is cancelled, the current maze is
+     * kept.
+     */
+    private void newWorld() {
+        long seed = 0;
+        boolean validSeed = false;
+        while (!validSeed) {
+            String input = JOptionPane.showInputDialog(null,
+                    "Enter a seed", "Infinite Maze",
+                    JOptionPane.QUESTION_MESSAGE);
+            if (input == null) return;
+            try {
+                seed = Long.parseLong(input);
+                validSeed = true;
+            } catch (NumberFormatException e) {
+                // do nothing
+            }
+        }
+        
+        world = new ChunkedMaze(seed);
+        mazePanel = new MazePanel(world, -WORLD_SPAN / 2, -WORLD_SPAN / 2,
+                WORLD_SPAN, WORLD_SPAN, DEFAULT_MAZE_TILE_SIZE);
+        // Infinite mazes can only be browsed
+        saveItem.setEnabled(false);
+        solveMenu.setEnabled(false);
+        
+        scrollPane.setViewportView(mazePanel);
+        this.pack();
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                mazePanel.centerOn(WORLD_SPAN / 2, WORLD_SPAN / 2);
+            }
+        });
+    }
+    
+    /***************************************************************************
+     * Provides a JFileChooser to pick a maze file to open. If no file is
+     * selected, the current maze is kept.
+     */
+    private void open() {
+        JFileChooser jfc = new JFileChooser();
+        jfc.setFileFilter(new FileNameExtensionFilter("Maze (*.maze)",
+                MazeFile.EXTENSION));
+        
+        if (jfc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            File file = jfc.getSelectedFile();
+            try {
+                showMaze(MazeFile.read(file));
+            } catch (IOException ex) {
+                System.err.println("There was an error reading the maze from"
+                        + " a file.");
+                JOptionPane.showMessageDialog(this, ex.getMessage(),
+                        "Open", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     /***************************************************************************
      * Provides a JFileChooser to pick a file to save to. If no file is selected,
      * the program will not save.
@@ -163,6 +435,12 @@ public class MazeGenerator extends JFrame {
         
         FileNameExtensionFilter fef = new FileNameExtensionFilter("Portable "
                                     +" Network Graphics (*.png)", "png");
+        FileNameExtensionFilter mazeFilter = new FileNameExtensionFilter(
+                "Maze (*.maze)", MazeFile.EXTENSION);
+        FileNameExtensionFilter svgFilter = new FileNameExtensionFilter(
+                "Scalable Vector Graphics (*.svg)", "svg");
+        jfc.addChoosableFileFilter(mazeFilter);
+        jfc.addChoosableFileFilter(svgFilter);
         jfc.setFileFilter(fef);
         
         jfc.setApproveButtonText("Save");
@@ -174,14 +452,29 @@ public class MazeGenerator extends JFrame {
 
         if(jfc.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
             file = jfc.getSelectedFile();
-            // If the file isn't the appropriate filetype, prompt again to 
-            // select a file after dumping a warning.
-            if(!file.getPath().endsWith(".png")) {
-                file = new File(file.getPath() + ".png");
+            // The extension picks the format, then the selected filter
+            String extension = "png";
+            if (file.getPath().endsWith("." + MazeFile.EXTENSION)) {
+                extension = MazeFile.EXTENSION;
+            } else if (file.getPath().endsWith(".svg")) {
+                extension = "svg";
+            } else if (!file.getPath().endsWith(".png")) {
+                if (jfc.getFileFilter() == mazeFilter) {
+                    extension = MazeFile.EXTENSION;
+                } else if (jfc.getFileFilter() == svgFilter) {
+                    extension = "svg";
+                }
+                file = new File(file.getPath() + "." + extension);
             }
             frame.setVisible(false);
             frame.setEnabled(false);
-            exportMazeAsPNG(file);
+            if (extension.equals(MazeFile.EXTENSION)) {
+                saveMazeFile(file);
+            } else if (extension.equals("svg")) {
+                exportMazeAsSVG(file);
+            } else {
+                exportMazeAsPNG(file);
+            }
         } else {
             frame.setVisible(false);
             frame.setEnabled(false);
@@ -193,12 +486,42 @@ public class MazeGenerator extends JFrame {
      * @param file The file to export to.
      */
     private void exportMazeAsPNG(File file) {
-        BufferedImage mazeImage = mazePanel.getBufferedImage();
-        mazePanel.paint(mazeImage.createGraphics());
+        // The stream is closed here too, in case the writer fails before it
+        // takes ownership of it
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(file))) {
+            PngMazeWriter.write(maze, out, mazePanel.getSolution(),
+                    mazePanel.getDistanceField());
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("There was an error writing the image to a"
+                    + " file: " + ex.getMessage());
+        }
+    }
+
+    /***************************************************************************
+     * Export the current maze as an SVG file. Only the walls are written; a
+     * solution on screen is left out.
+     * @param file The file to export to.
+     */
+    private void exportMazeAsSVG(File file) {
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(file))) {
+            SvgMazeWriter.write(maze, out);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("There was an error writing the image to a"
+                    + " file: " + ex.getMessage());
+        }
+    }
+
+    /***************************************************************************
+     * Save the current maze in the binary maze format.
+     * @param file The file to save to.
+     */
+    private void saveMazeFile(File file) {
         try {
-            ImageIO.write(mazeImage, "png", file);
+            MazeFile.write(maze, file);
         } catch (IOException ex) {
-            System.err.println("There was an error writing the image to a"
+            System.err.println("There was an error writing the maze to a"
                     + " file.");
         }
     }
@@ -212,6 +535,7 @@ public class MazeGenerator extends JFrame {
         
         JMenu file = new JMenu("File");
         jmb.add(file);
+        fileMenu = file;
         
         JMenuItem fileNew = new JMenuItem("New...");
         file.add(fileNew);
@@ -222,14 +546,114 @@ public class MazeGenerator extends JFrame {
             }
         });
         
+        JMenuItem open = new JMenuItem("Open...");
+        file.add(open);
+        open.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                open();
+            }
+        });
+        
+        JMenuItem infinite = new JMenuItem("Infinite Maze...");
+        file.add(infinite);
+        infinite.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                newWorld();
+            }
+        });
+        
         JMenuItem save = new JMenuItem("Save...");
         file.add(save);
+        saveItem = save;
         save.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 save();
             }
         });
+        
+        JMenu view = new JMenu("View");
+        jmb.add(view);
+        
+        JMenuItem zoomIn = new JMenuItem("Zoom In");
+        view.add(zoomIn);
+        zoomIn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.zoomIn();
+            }
+        });
+        
+        JMenuItem zoomOut = new JMenuItem("Zoom Out");
+        view.add(zoomOut);
+        zoomOut.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.zoomOut();
+            }
+        });
+        
+        JMenuItem actualSize = new JMenuItem("Actual Size");
+        view.add(actualSize);
+        actualSize.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.actualSize();
+            }
+        });
+        
+        view.addSeparator();
+        
+        liveView = new JCheckBoxMenuItem("Live Generation View", true);
+        view.add(liveView);
+        
+        JMenu solve = new JMenu("Solve");
+        jmb.add(solve);
+        solveMenu = solve;
+        
+        for (final SolverAlgorithm algorithm : SolverAlgorithm.values()) {
+            JMenuItem solveWith = new JMenuItem(algorithm.getDisplayName());
+            solve.add(solveWith);
+            solveWith.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    mazePanel.setSolution(maze.solve(algorithm));
+                }
+            });
+        }
+        
+        solve.addSeparator();
+        
+        JMenuItem hideSolution = new JMenuItem("Hide Solution");
+        solve.add(hideSolution);
+        hideSolution.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.setSolution(null);
+            }
+        });
+        
+        solve.addSeparator();
+        
+        JMenuItem showDistances = new JMenuItem("Show Distance Heat Map");
+        solve.add(showDistances);
+        showDistances.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.setDistanceField(maze.distanceField());
+            }
+        });
+        
+        JMenuItem hideDistances = new JMenuItem("Hide Distance Heat Map");
+        solve.add(hideDistances);
+        hideDistances.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mazePanel.setDistanceField(null);
+            }
+        });
     }
 
     
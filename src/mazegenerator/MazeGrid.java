@@ -0,0 +1,307 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Bit-packed tile storage for a maze. Tiles are addressed by a row-major
+ * index (y * width + x). Whether a tile is a path is kept as one bit per tile,
+ * and the four directions the generator has already checked are kept as four
+ * bits per tile, so no object is allocated per tile.
+ * @author Julian
+ */
+public class MazeGrid implements PathGrid {
+
+    public static final int CHECKED_NONE = 0x0;
+    public static final int CHECKED_ALL = 0xF;
+
+    private static final VarHandle WORDS =
+            MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int width;
+    private final int height;
+
+    // One bit per tile, 64 tiles per long
+    private final long[] path;
+
+    // Four bits per tile (one per direction), 16 tiles per long
+    private final long[] checked;
+
+
+    public MazeGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Maze dimensions must be"
+                    + " positive: " + width + "x" + height);
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze is too large for an"
+                    + " int-indexed grid: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+
+        long tiles = (long) width * height;
+        path = new long[(int) ((tiles + 63) >>> 6)];
+        checked = new long[(int) ((tiles + 15) >>> 4)];
+    }
+
+    /***************************************************************************
+     * Returns the index of a tile
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return the row-major index of the tile
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /***************************************************************************
+     * Returns the x value of a tile index
+     * @param index The row-major index of the tile
+     * @return the x value of the tile
+     */
+    public int xOf(int index) {
+        return index % width;
+    }
+
+    /***************************************************************************
+     * Returns the y value of a tile index
+     * @param index The row-major index of the tile
+     * @return the y value of the tile
+     */
+    public int yOf(int index) {
+        return index / width;
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param index The row-major index of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    public boolean isPath(int index) {
+        return (path[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    @Override
+    public boolean isPath(int x, int y) {
+        return isPath(index(x, y));
+    }
+
+    /***************************************************************************
+     * Sets whether a tile is a path
+     * @param index The row-major index of the tile
+     * @param isPath True to make the tile a path, false to make it a wall
+     */
+    public void setPath(int index, boolean isPath) {
+        if (isPath) {
+            path[index >>> 6] |= (1L << index);
+        } else {
+            path[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /***************************************************************************
+     * Sets whether a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @param isPath True to make the tile a path, false to make it a wall
+     */
+    @Override
+    public void setPath(int x, int y, boolean isPath) {
+        setPath(index(x, y), isPath);
+    }
+
+    /***************************************************************************
+     * Returns the path bits of up to 64 consecutive tiles
+     * @param index The row-major index of the first tile
+     * @param count The number of tiles (1 to 64)
+     * @return a mask with bit n set if tile index + n is a path
+     */
+    public long getPathBits(int index, int count) {
+        int word = index >>> 6;
+        int offset = index & 63;
+        long bits = path[word] >>> offset;
+        if (offset + count > 64) {
+            bits |= path[word + 1] << (64 - offset);
+        }
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /***************************************************************************
+     * Copies the path bits of a row of tiles
+     * @param y The y value of the row
+     * @param row Receives bit x of the row (bit x % 64 of row[x / 64]) set if
+     * tile x is a path; must hold at least width bits
+     */
+    @Override
+    public void copyRow(int y, long[] row) {
+        int index = index(0, y);
+        for (int x = 0; x < width; x += 64) {
+            row[x >>> 6] = getPathBits(index + x, Math.min(64, width - x));
+        }
+    }
+
+    /***************************************************************************
+     * Makes paths of up to 64 consecutive tiles. Each word is updated
+     * atomically, so threads may call this on disjoint tiles at the same time
+     * even when their tiles share a word.
+     * @param index The row-major index of the first tile
+     * @param bits A mask with bit n set if tile index + n becomes a path
+     * @param count The number of tiles (1 to 64)
+     */
+    public void orPathBits(int index, long bits, int count) {
+        if (bits == 0) {
+            return;
+        }
+        int word = index >>> 6;
+        int offset = index & 63;
+        WORDS.getAndBitwiseOr(path, word, bits << offset);
+        if (offset != 0 && offset + count > 64) {
+            WORDS.getAndBitwiseOr(path, word + 1, bits >>> (64 - offset));
+        }
+    }
+
+    /***************************************************************************
+     * Makes paths of up to 64 consecutive tiles of a row. See
+     * orPathBits(int, long, int).
+     * @param x The x value of the first tile
+     * @param y The y value of the row
+     * @param bits A mask with bit n set if tile x + n becomes a path
+     * @param count The number of tiles (1 to 64)
+     */
+    @Override
+    public void orPathBits(int x, int y, long bits, int count) {
+        orPathBits(index(x, y), bits, count);
+    }
+
+    /***************************************************************************
+     * Returns the number of longs holding the path bits
+     * @return the number of path words
+     */
+    int getPathWords() {
+        return path.length;
+    }
+
+    /***************************************************************************
+     * Reads every path bit from a buffer, 64 tiles per long in the same
+     * layout as getPathBits
+     * @param words The buffer to read getPathWords() longs from
+     */
+    void readPath(LongBuffer words) {
+        words.get(path);
+    }
+
+    /***************************************************************************
+     * Writes every path bit to a buffer, 64 tiles per long in the same
+     * layout as getPathBits
+     * @param words The buffer to write getPathWords() longs to
+     */
+    void writePath(LongBuffer words) {
+        words.put(path);
+    }
+
+    /***************************************************************************
+     * Turns every tile back into an unchecked wall
+     */
+    public void clear() {
+        Arrays.fill(path, 0L);
+        Arrays.fill(checked, 0L);
+    }
+
+    /***************************************************************************
+     * Returns the directions that have been checked from a tile
+     * @param index The row-major index of the tile
+     * @return a four bit mask with bit n set if direction n has been checked
+     */
+    public int getChecked(int index) {
+        return (int) (checked[index >>> 4] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    /***************************************************************************
+     * Marks a direction as checked from a tile
+     * @param index The row-major index of the tile
+     * @param direction The direction that has been checked (0 to 3)
+     */
+    public void setChecked(int index, int direction) {
+        checked[index >>> 4] |= 1L << (((index & 15) << 2) + direction);
+    }
+
+    /***************************************************************************
+     * Clears the checked direction of a tile
+     * @param index The row-major index of the tile
+     * @param direction The direction to clear (0 to 3)
+     */
+    public void clearChecked(int index, int direction) {
+        checked[index >>> 4] &= ~(1L << (((index & 15) << 2) + direction));
+    }
+
+    /***************************************************************************
+     * Returns the path bits of the 3x3 neighborhood around a tile. Bit
+     * (dy + 1) * 3 + (dx + 1) is set if the tile at (x + dx, y + dy) is a path.
+     * The tile must not be on the border of the grid.
+     * @param x The x value of the center tile
+     * @param y The y value of the center tile
+     * @return a nine bit mask of the neighborhood
+     */
+    public int neighborhood(int x, int y) {
+        int index = (y - 1) * width + (x - 1);
+        return rowOfThree(index)
+                | (rowOfThree(index + width) << 3)
+                | (rowOfThree(index + width + width) << 6);
+    }
+
+    /***************************************************************************
+     * Returns the path bits of three horizontally consecutive tiles
+     * @param index The index of the leftmost tile
+     * @return a three bit mask with bit 0 being the leftmost tile
+     */
+    private int rowOfThree(int index) {
+        int word = index >>> 6;
+        int offset = index & 63;
+        long bits = path[word] >>> offset;
+        if (offset > 61) {
+            bits |= path[word + 1] << (64 - offset);
+        }
+        return (int) bits & 0x7;
+    }
+
+    /***************************************************************************
+     * Returns the width of the grid in tiles
+     * @return the width of the grid in tiles
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /***************************************************************************
+     * Returns the height of the grid in tiles
+     * @return the height of the grid in tiles
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /***************************************************************************
+     * Returns the number of tiles in the grid
+     * @return the number of tiles in the grid
+     */
+    public int size() {
+        return width * height;
+    }
+}
@@ -9,77 +9,933 @@ package mazegenerator;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.LongPredicate;
+import javax.swing.AbstractAction;
+import javax.swing.ActionMap;
+import javax.swing.InputMap;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 /**
+ * Shows a maze as a virtual canvas that can be panned and zoomed. Only the
+ * blocks of the canvas that are visible are rendered, on demand, and kept in
+ * a cache capped by memory. Zoomed in, each tile covers a whole number of
+ * pixels; zoomed out, each pixel is a gray level averaging a square of tiles,
+ * built from the next closer level like a mipmap. Given a distance field,
+ * path tiles are instead colored by distance as a heat map.
+ * <p>
+ * Blocks are rendered on a background thread, so a far zoomed out block that
+ * takes seconds to build never holds up painting or scrolling. Until a block
+ * is ready, the closest zoomed out level that is cached is drawn scaled up
+ * in its place, and the block alone is repainted once it has been rendered.
+ * <p>
+ * A Maze holds at most 2^31 tiles, about 46000 x 46000, as MazeGrid indexes
+ * its tiles with an int. Larger worlds are browsed as a ChunkedMaze.
+ * <p>
+ * The panel can also show a window of a ChunkedMaze, rendering each block
+ * from the chunks it covers; the window is zoomed out only a few levels so a
+ * block never covers more of the world than is cheap to generate.
+ * <p>
+ * Drag to pan, use the scroll wheel to scroll and Ctrl + scroll wheel or
+ * the plus and minus keys to zoom.
  * @author Julian
  */
-class MazePanel extends JPanel {
-    
-    private final BufferedImage bi;
-    
-    private Maze maze;
-    
+class MazePanel extends JPanel implements Scrollable {
+
+    // Tiles per block side when zoomed in, pixels per block side zoomed out
+    private static final int BLOCK_SIZE = 128;
+
+    private static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    // Zoom levels cached when painting: the one shown and the next closer
+    private static final int CACHED_LEVELS = 2;
+
+    // Pixels per tile when zoomed in
+    private static final int[] ZOOM_IN_LEVELS = {
+        1, 2, 3, 4, 5, 6, 8, 10, 12, 16, 20, 24, 32
+    };
+
+    private static final Color SOLUTION_COLOR = Color.RED;
+
+    // The heat map runs from blue to red, so the solution is drawn in white
+    private static final Color HEAT_SOLUTION_COLOR = Color.WHITE;
+
+    // Zoomed out levels stop once the whole maze fits in this many pixels
+    private static final int OVERVIEW_SIZE = 512;
+
+    // Zoomed out levels of a ChunkedMaze window
+    private static final int WORLD_ZOOM_OUT = 2;
+
+    // Renders the blocks of every panel, one at a time
+    private static final ExecutorService RENDERER =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MazePanel-renderer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // The whole maze, kept to be drawn over when the maze changes
+    private BufferedImage bi;
+    private boolean biCurrent;
+
+    private volatile Maze maze;
+
+    // The infinite maze shown instead of a maze, or null
+    private final ChunkedMaze world;
+    // The tile of the world at the top left corner of the canvas
+    private final long worldX;
+    private final long worldY;
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int tileSize;
+
+    private final ImageBlockCache cache;
+
+    // Pixels per tile when positive, or -k for 2^k tiles per pixel
+    private final int[] zoomLevels;
+    private volatile int zoomIndex;
+
+    // Keys of the blocks handed to the renderer and not yet done with; only
+    // used on the event dispatch thread
+    private final HashSet<Long> pending;
+
+    // Set while the panel is not in a window, so its blocks are not rendered
+    private volatile boolean detached;
+
+    private final Dimension viewportSize;
+
+    // Drawn over the maze blocks, or null
+    private MazeSolution solution;
+
+    // The solution's tiles in ascending order, so the ones in a row of the
+    // clip are found by binary search; null when there is no solution
+    private int[] solutionTiles;
+
+    // Colors the maze blocks as a heat map when not null
+    private volatile MazeDistanceField distances;
+
     public MazePanel(Maze maze) {
-        this.maze = maze; 
-        bi = renderMazeImage();
+        this(maze, DEFAULT_CACHE_BYTES);
+    }
+
+    public MazePanel(Maze maze, long cacheBytes) {
+        this(maze, null, 0, 0, maze.getMazeWidth(), maze.getMazeHeight(),
+                maze.mazeTileSize, cacheBytes);
+    }
+
+    /***************************************************************************
+     * Creates a panel showing a rectangular window of an infinite maze
+     * @param world The infinite maze
+     * @param worldX The x value of the tile at the left edge of the window
+     * @param worldY The y value of the tile at the top edge of the window
+     * @param width The width of the window in tiles
+     * @param height The height of the window in tiles
+     * @param tileSize The size of a tile in pixels at actual size
+     */
+    public MazePanel(ChunkedMaze world, long worldX, long worldY, int width,
+            int height, int tileSize) {
+        this(null, world, worldX, worldY, width, height, tileSize,
+                DEFAULT_CACHE_BYTES);
+    }
+
+    private MazePanel(Maze maze, ChunkedMaze world, long worldX, long worldY,
+            int width, int height, int tileSize, long cacheBytes) {
+        this.maze = maze;
+        this.world = world;
+        this.worldX = worldX;
+        this.worldY = worldY;
+        mazeWidth = width;
+        mazeHeight = height;
+        this.tileSize = tileSize;
+        cache = new ImageBlockCache(cacheBytes);
+        pending = new HashSet<>();
+        zoomLevels = zoomLevels(width, height, tileSize,
+                world == null ? Integer.MAX_VALUE : WORLD_ZOOM_OUT);
+        zoomIndex = Arrays.binarySearch(zoomLevels, tileSize);
+
+        if (GraphicsEnvironment.isHeadless()) {
+            viewportSize = new Dimension(1024, 768);
+        } else {
+            Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getMaximumWindowBounds();
+            viewportSize = new Dimension(screen.width * 4 / 5,
+                    screen.height * 4 / 5);
+        }
+
         this.setFocusable(true);
-        this.setPreferredSize(new Dimension(maze.getMazeSizeX(),
-                maze.getMazeSizeY()));
-    }
-    
-    /***************************************************************************
-     * Renders the mage to a BufferedImage object and returns it.
-     * @return a BufferedImage of the maze
-     */
-    private BufferedImage renderMazeImage() {
-        BufferedImage bi = new BufferedImage(maze.getMazeSizeX(), maze.getMazeSizeY(),
-            BufferedImage.TYPE_INT_ARGB);
-        Graphics g = bi.getGraphics();
-        for (int x = 0; x < maze.mazeTile.length; x++) {
-            for (int y = 0; y < maze.mazeTile[x].length; y++) {
-                if (maze.mazeTile[x][y].isPath) {
-                    g.setColor(Color.WHITE);
-                } else {
-                    g.setColor(Color.BLACK);
+        this.setPreferredSize(canvasSize());
+        addNavigation();
+    }
+
+    /***************************************************************************
+     * Returns the zoom levels for a maze, from farthest out to closest in.
+     * The maze's own tile size is always one of them.
+     * @param width The maze width in tiles
+     * @param height The maze height in tiles
+     * @param tileSize The size of a tile in pixels
+     * @param maxZoomedOut The most zoomed out levels to have
+     * @return the zoom levels in ascending order
+     */
+    private static int[] zoomLevels(int width, int height, int tileSize,
+            int maxZoomedOut) {
+        int largest = Math.max(width, height);
+        int zoomedOut = 0;
+        while ((largest >> zoomedOut) > OVERVIEW_SIZE
+                && zoomedOut < maxZoomedOut) {
+            zoomedOut++;
+        }
+
+        boolean hasTileSize = Arrays.binarySearch(ZOOM_IN_LEVELS,
+                tileSize) >= 0;
+        int[] levels = new int[zoomedOut + ZOOM_IN_LEVELS.length
+                + (hasTileSize ? 0 : 1)];
+        for (int k = zoomedOut; k > 0; k--) {
+            levels[zoomedOut - k] = -k;
+        }
+        System.arraycopy(ZOOM_IN_LEVELS, 0, levels, zoomedOut,
+                ZOOM_IN_LEVELS.length);
+        if (!hasTileSize) {
+            levels[levels.length - 1] = tileSize;
+        }
+        Arrays.sort(levels);
+        return levels;
+    }
+
+    /***************************************************************************
+     * Sets up dragging to pan, Ctrl + scroll wheel to zoom and zoom keys
+     */
+    private void addNavigation() {
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point dragStart;
+            private Point viewStart;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                JViewport viewport = getViewport();
+                if (viewport != null) {
+                    dragStart = e.getLocationOnScreen();
+                    viewStart = viewport.getViewPosition();
                 }
-                g.fillRect(x*maze.mazeTileSize, y*maze.mazeTileSize, 
-                        maze.mazeTileSize, maze.mazeTileSize);
             }
-        }
-        return bi;
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null) {
+                    Point now = e.getLocationOnScreen();
+                    setViewPosition(viewStart.x - (now.x - dragStart.x),
+                            viewStart.y - (now.y - dragStart.y));
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+                    setZoomIndex(zoomIndex - e.getWheelRotation(),
+                            e.getPoint());
+                } else if (getParent() != null) {
+                    // Let the scroll pane scroll as usual
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(
+                            MazePanel.this, e, getParent()));
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+
+        InputMap keys = getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = getActionMap();
+        keys.put(KeyStroke.getKeyStroke("PLUS"), "zoomIn");
+        keys.put(KeyStroke.getKeyStroke("EQUALS"), "zoomIn");
+        keys.put(KeyStroke.getKeyStroke("ADD"), "zoomIn");
+        keys.put(KeyStroke.getKeyStroke("MINUS"), "zoomOut");
+        keys.put(KeyStroke.getKeyStroke("SUBTRACT"), "zoomOut");
+        keys.put(KeyStroke.getKeyStroke("0"), "actualSize");
+        actions.put("zoomIn", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                zoomIn();
+            }
+        });
+        actions.put("zoomOut", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                zoomOut();
+            }
+        });
+        actions.put("actualSize", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                actualSize();
+            }
+        });
     }
-    
+
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        g.drawImage(bi, 0, 0, this);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getSize());
+        }
+        int zoom = zoomLevels[zoomIndex];
+        int blockPixels = zoom > 0 ? BLOCK_SIZE * zoom : BLOCK_SIZE;
+        Dimension canvas = canvasSize();
+
+        int firstX = Math.max(0, clip.x / blockPixels);
+        int firstY = Math.max(0, clip.y / blockPixels);
+        int lastX = (Math.min(clip.x + clip.width, canvas.width) - 1)
+                / blockPixels;
+        int lastY = (Math.min(clip.y + clip.height, canvas.height) - 1)
+                / blockPixels;
+        for (int blockY = firstY; blockY <= lastY; blockY++) {
+            for (int blockX = firstX; blockX <= lastX; blockX++) {
+                BufferedImage block = cache.get(
+                        ImageBlockCache.key(zoom, blockX, blockY));
+                if (block != null) {
+                    g.drawImage(block, blockX * blockPixels,
+                            blockY * blockPixels, this);
+                } else {
+                    requestBlock(zoom, blockX, blockY);
+                    paintStandIn(g, blockX, blockY);
+                }
+            }
+        }
+
+        if (solution != null) {
+            paintSolution(g, clip, zoom);
+        }
+    }
+
+    /***************************************************************************
+     * Draws the tiles of the solution that fall inside the clip. Only the
+     * rows of tiles under the clip are visited, each from a binary search to
+     * its first tile inside the clip, so a long solution costs nothing where
+     * it is out of view.
+     * @param g The graphics to draw with
+     * @param clip The area being painted
+     * @param zoom The current zoom level
+     */
+    private void paintSolution(Graphics g, Rectangle clip, int zoom) {
+        int size = zoom > 0 ? zoom : 1;
+        long left = Math.max(0, clip.x);
+        long top = Math.max(0, clip.y);
+        long right = (long) clip.x + clip.width;
+        long bottom = (long) clip.y + clip.height;
+        long firstX;
+        long lastX;
+        long firstY;
+        long lastY;
+        if (zoom > 0) {
+            firstX = left / zoom;
+            lastX = (right - 1) / zoom;
+            firstY = top / zoom;
+            lastY = (bottom - 1) / zoom;
+        } else {
+            firstX = left << -zoom;
+            lastX = (right << -zoom) - 1;
+            firstY = top << -zoom;
+            lastY = (bottom << -zoom) - 1;
+        }
+        lastX = Math.min(lastX, mazeWidth - 1);
+        lastY = Math.min(lastY, mazeHeight - 1);
+        if (firstX > lastX || firstY > lastY) {
+            return;
+        }
+
+        g.setColor(distances == null ? SOLUTION_COLOR : HEAT_SOLUTION_COLOR);
+        int[] tiles = solutionTiles;
+        for (long y = firstY; y <= lastY; y++) {
+            int rowStart = (int) (y * mazeWidth);
+            int step = Arrays.binarySearch(tiles, rowStart + (int) firstX);
+            if (step < 0) {
+                step = -step - 1;
+            }
+            int rowEnd = rowStart + (int) lastX;
+            for (; step < tiles.length && tiles[step] <= rowEnd; step++) {
+                long x = tiles[step] - rowStart;
+                if (zoom > 0) {
+                    g.fillRect((int) (x * zoom), (int) (y * zoom), size,
+                            size);
+                } else {
+                    g.fillRect((int) (x >> -zoom), (int) (y >> -zoom), size,
+                            size);
+                }
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Has the renderer render a block of the canvas that is not cached,
+     * unless it has been asked already
+     * @param zoom The zoom level of the block
+     * @param blockX The column of the block
+     * @param blockY The row of the block
+     */
+    private void requestBlock(int zoom, int blockX, int blockY) {
+        if (pending.add(ImageBlockCache.key(zoom, blockX, blockY))) {
+            RENDERER.execute(new BlockJob(zoom, blockX, blockY));
+        }
+    }
+
+    /***************************************************************************
+     * Draws the area of a block that is being rendered from the closest
+     * zoomed out level that has it cached, scaled up. If no level has it the
+     * background is left showing. Closer levels are not scaled down in its
+     * place, as scaling down many blocks costs more than waiting for the
+     * block.
+     * @param g The graphics to draw with
+     * @param blockX The column of the block at the current zoom level
+     * @param blockY The row of the block at the current zoom level
+     */
+    private void paintStandIn(Graphics g, int blockX, int blockY) {
+        long tilesPerBlock = tilesPerBlock(zoomLevels[zoomIndex]);
+        long x0 = blockX * tilesPerBlock;
+        long y0 = blockY * tilesPerBlock;
+        long x1 = Math.min(x0 + tilesPerBlock, mazeWidth);
+        long y1 = Math.min(y0 + tilesPerBlock, mazeHeight);
+        for (int i = zoomIndex - 1; i >= 0; i--) {
+            if (paintLevel(g, zoomLevels[i], x0, y0, x1, y1)) {
+                return;
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Draws a rectangle of tiles from the block of a zoomed out level that
+     * covers it, scaled to the current zoom level
+     * @param g The graphics to draw with
+     * @param level The zoomed out level to draw from
+     * @param x0 The x value of the first tile column
+     * @param y0 The y value of the first tile row
+     * @param x1 The x value of the column past the last
+     * @param y1 The y value of the row past the last
+     * @return True if the block was cached and drawn, otherwise false
+     */
+    private boolean paintLevel(Graphics g, int level, long x0, long y0,
+            long x1, long y1) {
+        int zoom = zoomLevels[zoomIndex];
+        long tilesPerBlock = tilesPerBlock(level);
+        long blockX = x0 / tilesPerBlock;
+        long blockY = y0 / tilesPerBlock;
+        BufferedImage block = cache.get(ImageBlockCache.key(level,
+                (int) blockX, (int) blockY));
+        if (block == null) {
+            return false;
+        }
+        long left = x0 - blockX * tilesPerBlock;
+        long top = y0 - blockY * tilesPerBlock;
+        g.drawImage(block, (int) pixels(x0, zoom), (int) pixels(y0, zoom),
+                (int) pixels(x1, zoom), (int) pixels(y1, zoom),
+                (int) pixels(left, level), (int) pixels(top, level),
+                (int) pixels(left + x1 - x0, level),
+                (int) pixels(top + y1 - y0, level), null);
+        return true;
+    }
+
+    /***************************************************************************
+     * Returns the number of tiles on a side of a block
+     * @param zoom The zoom level of the block
+     * @return the number of tiles per block side
+     */
+    private static long tilesPerBlock(int zoom) {
+        return zoom > 0 ? BLOCK_SIZE : (long) BLOCK_SIZE << -zoom;
+    }
+
+    /***************************************************************************
+     * Converts a distance in tiles to pixels, rounding up when zoomed out
+     * @param tiles The distance in tiles
+     * @param zoom The zoom level
+     * @return the distance in pixels
+     */
+    private static long pixels(long tiles, int zoom) {
+        return zoom > 0 ? tiles * zoom
+                : (tiles + (1L << -zoom) - 1) >> -zoom;
+    }
+
+    /***************************************************************************
+     * Repaints the area of a block of the canvas
+     * @param zoom The zoom level of the block
+     * @param blockX The column of the block
+     * @param blockY The row of the block
+     */
+    private void repaintBlock(int zoom, int blockX, int blockY) {
+        if (zoom != zoomLevels[zoomIndex]) {
+            return;
+        }
+        int blockPixels = zoom > 0 ? BLOCK_SIZE * zoom : BLOCK_SIZE;
+        repaint((int) Math.min(Integer.MAX_VALUE, (long) blockX * blockPixels),
+                (int) Math.min(Integer.MAX_VALUE, (long) blockY * blockPixels),
+                blockPixels, blockPixels);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        detached = false;
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        detached = true;
+    }
+
+
+    /**
+     * Renders one block of the canvas on the renderer thread and caches it,
+     * then repaints the block on the event dispatch thread. The maze, heat
+     * map and cache generation are read once when the job starts, so a block
+     * rendered while they change is not cached.
+     */
+    private final class BlockJob implements Runnable {
+        private final int zoom;
+        private final int blockX;
+        private final int blockY;
+
+        private int generation;
+        private Maze source;
+        private MazeDistanceField heat;
+
+        BlockJob(int zoom, int blockX, int blockY) {
+            this.zoom = zoom;
+            this.blockX = blockX;
+            this.blockY = blockY;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Blocks of a zoom level or panel no longer shown are skipped
+                if (!detached && zoom == zoomLevels[zoomIndex]) {
+                    generation = cache.getGeneration();
+                    source = maze;
+                    heat = distances;
+                    getBlock(zoom, blockX, blockY, CACHED_LEVELS);
+                }
+            } finally {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.remove(ImageBlockCache.key(zoom, blockX,
+                                blockY));
+                        repaintBlock(zoom, blockX, blockY);
+                    }
+                });
+            }
+        }
+
+        /***********************************************************************
+         * Returns a block of the canvas, rendering it if it is not cached. Far
+         * out, a block is built from hundreds of blocks closer in; caching all
+         * of those would evict the blocks on screen before the block is done,
+         * so only the levels nearest the one shown are kept.
+         * @param zoom The zoom level of the block
+         * @param blockX The column of the block
+         * @param blockY The row of the block
+         * @param cachedLevels How many levels, starting with this block's, to
+         * cache the blocks of that have to be rendered
+         * @return the block, or null if it lies past the edge of the maze
+         */
+        private BufferedImage getBlock(int zoom, int blockX, int blockY,
+                int cachedLevels) {
+            long key = ImageBlockCache.key(zoom, blockX, blockY);
+            BufferedImage block = cache.get(key);
+            if (block == null) {
+                block = renderBlock(zoom, blockX, blockY, cachedLevels - 1);
+                if (block != null && cachedLevels > 0) {
+                    cache.put(key, block, generation);
+                }
+            }
+            return block;
+        }
+
+        /***********************************************************************
+         * Renders a block of the canvas. Zoomed out blocks past the first
+         * level are combined from four blocks of the level closer in.
+         * @param zoom The zoom level of the block
+         * @param blockX The column of the block
+         * @param blockY The row of the block
+         * @param cachedLevels How many levels closer in to cache the blocks
+         * of that have to be rendered
+         * @return the block, or null if it lies past the edge of the maze
+         */
+        private BufferedImage renderBlock(int zoom, int blockX, int blockY,
+                int cachedLevels) {
+            int tilesPerBlock = (int) tilesPerBlock(zoom);
+            long x0 = (long) blockX * tilesPerBlock;
+            long y0 = (long) blockY * tilesPerBlock;
+            if (x0 >= mazeWidth || y0 >= mazeHeight) {
+                return null;
+            }
+            int tilesX = (int) Math.min(tilesPerBlock, mazeWidth - x0);
+            int tilesY = (int) Math.min(tilesPerBlock, mazeHeight - y0);
+
+            if (zoom >= -1) {
+                MazeGrid grid;
+                if (world == null) {
+                    grid = source.getGrid();
+                } else {
+                    grid = world.region(worldX + x0, worldY + y0, tilesX,
+                            tilesY);
+                    x0 = 0;
+                    y0 = 0;
+                }
+                if (heat != null) {
+                    return zoom > 0 ? MazeRenderer.renderHeatBlock(grid,
+                            heat, (int) x0, (int) y0, tilesX, tilesY, zoom,
+                            cache)
+                            : MazeRenderer.renderHeatHalfSize(grid, heat,
+                                    (int) x0, (int) y0, tilesX, tilesY,
+                                    cache);
+                }
+                if (zoom > 0) {
+                    return MazeRenderer.renderBlock(grid, (int) x0, (int) y0,
+                            tilesX, tilesY, zoom, cache);
+                }
+                return MazeRenderer.renderHalfSize(grid, (int) x0, (int) y0,
+                        tilesX, tilesY, cache);
+            }
+
+            BufferedImage[] closer = new BufferedImage[4];
+            for (int i = 0; i < 4; i++) {
+                closer[i] = getBlock(zoom + 1, blockX * 2 + (i & 1),
+                        blockY * 2 + (i >> 1), cachedLevels);
+            }
+            int tilesPerPixel = 1 << -zoom;
+            int width = (tilesX + tilesPerPixel - 1) / tilesPerPixel;
+            int height = (tilesY + tilesPerPixel - 1) / tilesPerPixel;
+            if (heat != null) {
+                return MazeRenderer.downsampleHeat(closer, BLOCK_SIZE, width,
+                        height, cache);
+            }
+            return MazeRenderer.downsample(closer, BLOCK_SIZE, width, height,
+                    cache);
+        }
+    }
+
+    /***************************************************************************
+     * Returns the size of the whole canvas at the current zoom level
+     * @return the size of the canvas in pixels
+     */
+    private Dimension canvasSize() {
+        int zoom = zoomLevels[zoomIndex];
+        if (zoom > 0) {
+            return new Dimension(
+                    (int) Math.min(Integer.MAX_VALUE, (long) mazeWidth * zoom),
+                    (int) Math.min(Integer.MAX_VALUE,
+                            (long) mazeHeight * zoom));
+        }
+        int tilesPerPixel = 1 << -zoom;
+        return new Dimension(
+                (mazeWidth + tilesPerPixel - 1) / tilesPerPixel,
+                (mazeHeight + tilesPerPixel - 1) / tilesPerPixel);
+    }
+
+    /***************************************************************************
+     * Returns the number of canvas pixels per tile at the current zoom level
+     * @return the number of pixels per tile, below 1 when zoomed out
+     */
+    private double scale() {
+        int zoom = zoomLevels[zoomIndex];
+        return zoom > 0 ? zoom : 1.0 / (1 << -zoom);
+    }
+
+    /***************************************************************************
+     * Changes the zoom level, keeping the same point of the maze under the
+     * anchor.
+     * @param index The index of the new zoom level
+     * @param anchor The point to keep still, or null for the visible center
+     */
+    private void setZoomIndex(int index, Point anchor) {
+        index = Math.max(0, Math.min(zoomLevels.length - 1, index));
+        if (index == zoomIndex) {
+            return;
+        }
+        Rectangle visible = getVisibleRect();
+        if (anchor == null) {
+            anchor = new Point(visible.x + visible.width / 2,
+                    visible.y + visible.height / 2);
+        }
+        double tileX = anchor.x / scale();
+        double tileY = anchor.y / scale();
+
+        zoomIndex = index;
+        Dimension canvas = canvasSize();
+        setPreferredSize(canvas);
+        setSize(canvas);
+        setViewPosition((int) (tileX * scale()) - (anchor.x - visible.x),
+                (int) (tileY * scale()) - (anchor.y - visible.y));
+        revalidate();
+        repaint();
+    }
+
+    /***************************************************************************
+     * Scrolls the enclosing viewport, keeping the view inside the canvas
+     * @param x The new x value of the top left corner of the view
+     * @param y The new y value of the top left corner of the view
+     */
+    private void setViewPosition(int x, int y) {
+        JViewport viewport = getViewport();
+        if (viewport == null) {
+            return;
+        }
+        Dimension extent = viewport.getExtentSize();
+        x = Math.max(0, Math.min(x, getWidth() - extent.width));
+        y = Math.max(0, Math.min(y, getHeight() - extent.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+
+    private JViewport getViewport() {
+        return (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class,
+                this);
+    }
+
+    /***************************************************************************
+     * Zooms in one level around the center of the view
+     */
+    public void zoomIn() {
+        setZoomIndex(zoomIndex + 1, null);
+    }
+
+    /***************************************************************************
+     * Zooms out one level around the center of the view
+     */
+    public void zoomOut() {
+        setZoomIndex(zoomIndex - 1, null);
+    }
+
+    /***************************************************************************
+     * Zooms to the maze's own tile size around the center of the view
+     */
+    public void actualSize() {
+        setZoomIndex(Arrays.binarySearch(zoomLevels, tileSize), null);
+    }
+
+    /***************************************************************************
+     * Scrolls so a tile is at the center of the view
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     */
+    public void centerOn(int x, int y) {
+        Rectangle visible = getVisibleRect();
+        setViewPosition((int) (x * scale()) - visible.width / 2,
+                (int) (y * scale()) - visible.height / 2);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension canvas = getPreferredSize();
+        return new Dimension(Math.min(canvas.width, viewportSize.width),
+                Math.min(canvas.height, viewportSize.height));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        return Math.max(16, zoomLevels[zoomIndex]);
     }
-    
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect,
+            int orientation, int direction) {
+        return Math.max(16, (orientation == SwingConstants.VERTICAL
+                ? visibleRect.height : visibleRect.width) - 16);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /***************************************************************************
+     * Throws away everything rendered from a range of tile rows, at every
+     * zoom level, and repaints them. Called when those rows of the maze have
+     * changed, such as while the maze is being generated.
+     * @param firstRow The first tile row that changed
+     * @param lastRow The last tile row that changed
+     */
+    public void invalidateRows(final int firstRow, final int lastRow) {
+        cache.removeIf(new LongPredicate() {
+            @Override
+            public boolean test(long key) {
+                int zoom = ImageBlockCache.zoomOf(key);
+                long tilesPerBlock = tilesPerBlock(zoom);
+                long top = ImageBlockCache.blockYOf(key) * tilesPerBlock;
+                return top <= lastRow && top + tilesPerBlock > firstRow;
+            }
+        });
+        biCurrent = false;
+
+        int zoom = zoomLevels[zoomIndex];
+        long top;
+        long bottom;
+        if (zoom > 0) {
+            top = (long) firstRow * zoom;
+            bottom = (long) (lastRow + 1) * zoom;
+        } else {
+            top = firstRow >> -zoom;
+            bottom = (lastRow >> -zoom) + 1;
+        }
+        repaint(0, (int) Math.min(Integer.MAX_VALUE, top), getWidth(),
+                (int) Math.min(Integer.MAX_VALUE, bottom - top));
+    }
+
+    /***************************************************************************
+     * Throws away everything rendered and repaints the whole maze
+     */
+    public void invalidateAll() {
+        cache.clear();
+        biCurrent = false;
+        repaint();
+    }
+
+    /***************************************************************************
+     * Determines if the panel can show another maze in place of its own,
+     * keeping its zoom, scroll position and rendered images
+     * @param other The maze to show
+     * @return True if the panel shows a maze of the same size and tile size
+     */
+    public boolean canShow(Maze other) {
+        return world == null && other.getMazeWidth() == mazeWidth
+                && other.getMazeHeight() == mazeHeight
+                && other.mazeTileSize == tileSize;
+    }
+
+    /***************************************************************************
+     * Shows another maze of the same size in place of the current one. The
+     * solution and heat map are removed, and the images of the old maze are
+     * drawn over as the new maze is rendered instead of being allocated
+     * again.
+     * @param newMaze The maze to show
+     * @throws IllegalArgumentException if canShow(newMaze) is false
+     */
+    public void setMaze(Maze newMaze) {
+        if (!canShow(newMaze)) {
+            throw new IllegalArgumentException("The panel shows a "
+                    + mazeWidth + "x" + mazeHeight + " maze");
+        }
+        maze = newMaze;
+        solution = null;
+        solutionTiles = null;
+        distances = null;
+        invalidateAll();
+    }
+
+    /***************************************************************************
+     * Draws a solution over the maze, or removes it
+     * @param solution The solution to draw, or null to draw only the maze
+     */
+    public void setSolution(MazeSolution solution) {
+        this.solution = solution;
+        solutionTiles = null;
+        if (solution != null) {
+            solutionTiles = solution.getPath();
+            Arrays.sort(solutionTiles);
+        }
+        repaint();
+    }
+
+    /***************************************************************************
+     * Returns the solution drawn over the maze
+     * @return the solution, or null if there is none
+     */
+    public MazeSolution getSolution() {
+        return solution;
+    }
+
+    /***************************************************************************
+     * Colors the maze by distance as a heat map, or goes back to black and
+     * white. Everything rendered is thrown away, as the blocks change color.
+     * @param distances The distances to color path tiles by, or null to draw
+     * only the maze
+     * @throws UnsupportedOperationException if the panel shows an infinite
+     * maze
+     */
+    public void setDistanceField(MazeDistanceField distances) {
+        if (world != null && distances != null) {
+            throw new UnsupportedOperationException("An infinite maze has no"
+                    + " distance field");
+        }
+        this.distances = distances;
+        invalidateAll();
+    }
+
+    /***************************************************************************
+     * Returns the distances the maze is colored by
+     * @return the distance field, or null if the maze is black and white
+     */
+    public MazeDistanceField getDistanceField() {
+        return distances;
+    }
+
     /***************************************************************************
      * Returns the maze width in pixels
      * @return the maze width in pixels
      */
     public int getMazeWidth() {
-        return maze.getMazeSizeX();
+        return (int) Math.min(Integer.MAX_VALUE, (long) mazeWidth * tileSize);
     }
-    
+
     /***************************************************************************
      * Returns the maze height in pixels
      * @return the maze height in pixels
      */
     public int getMazeHeight() {
-        return maze.getMazeSizeY();
+        return (int) Math.min(Integer.MAX_VALUE, (long) mazeHeight * tileSize);
     }
-    
+
     /***************************************************************************
-     * Returns a freshly drawn buffered image of the maze. The buffered image
-     * must be re-drawn every time it is called for since after use, a buffered
-     * image 
-     * @return A freshly drawn buffered image
+     * Returns a buffered image of the whole maze at its own tile size. The
+     * image is rendered on the first call and shared afterwards, so it must
+     * not be drawn on. When the maze changes the same image is drawn over.
+     * @return The rendered buffered image
+     * @throws UnsupportedOperationException if the panel shows an infinite
+     * maze
      */
     public BufferedImage getBufferedImage() {
-        return renderMazeImage();
+        if (world != null) {
+            throw new UnsupportedOperationException("An infinite maze has no"
+                    + " whole image");
+        }
+        if (!biCurrent) {
+            bi = MazeRenderer.render(maze, bi);
+            biCurrent = true;
+        }
+        return bi;
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The source of random numbers for a single maze. An instance belongs to one
+ * maze and is only used by the thread generating it, so implementations need
+ * no synchronization.
+ * @author Julian
+ */
+public interface MazeRandom {
+    
+    /***************************************************************************
+     * Returns a uniformly distributed int
+     * @param bound The upper bound (exclusive), which must be positive
+     * @return a value between 0 (inclusive) and bound (exclusive)
+     */
+    int nextInt(int bound);
+    
+    /***************************************************************************
+     * Returns a uniformly distributed boolean
+     * @return true or false with equal probability
+     */
+    boolean nextBoolean();
+    
+    /***************************************************************************
+     * Returns a uniformly distributed long
+     * @return any long value with equal probability
+     */
+    long nextLong();
+    
+    /***************************************************************************
+     * Creates a new generator of the same algorithm, for carving part of a
+     * maze on another thread
+     * @param seed The seed of the new generator
+     * @return a new generator, independent of this one
+     */
+    MazeRandom withSeed(long seed);
+}
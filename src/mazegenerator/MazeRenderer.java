@@ -0,0 +1,434 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+/**
+ * Draws mazes to images. Holds no state, so it can be used from any thread,
+ * including without a display.
+ * @author Julian
+ */
+public class MazeRenderer {
+    
+    // Walls are index 0, paths are index 1
+    private static final IndexColorModel BLACK_AND_WHITE = new IndexColorModel(
+            1, 2, new byte[] {0, (byte) 0xFF}, new byte[] {0, (byte) 0xFF},
+            new byte[] {0, (byte) 0xFF});
+    
+    // Heat map palette indices: walls, the solution, paths that cannot be
+    // reached, then HEAT_STEPS colors from nearest to farthest
+    static final int HEAT_WALL = 0;
+    static final int HEAT_SOLUTION = 1;
+    static final int HEAT_UNREACHED = 2;
+    static final int HEAT_FIRST = 3;
+    static final int HEAT_STEPS = 256 - HEAT_FIRST;
+    
+    static final IndexColorModel HEAT_COLORS = heatColors();
+    
+    private MazeRenderer() {
+    }
+    
+    /***************************************************************************
+     * Renders the maze to a 1-bit BufferedImage object and returns it. Pixels
+     * are written straight into the image's data buffer: each tile row is
+     * expanded into one scanline, which is then copied for the rest of the
+     * tile's height.
+     * @param maze The maze to render
+     * @return a black and white BufferedImage of the maze
+     */
+    public static BufferedImage render(Maze maze) {
+        return render(maze, null);
+    }
+    
+    /***************************************************************************
+     * Renders the maze like render(Maze), into an image from before if it has
+     * the right size, so a maze shown over and over reuses one raster.
+     * @param maze The maze to render
+     * @param reuse An image made by this method before, or null
+     * @return reuse drawn over if it fits, otherwise a new image
+     */
+    public static BufferedImage render(Maze maze, BufferedImage reuse) {
+        int width = maze.getMazeSizeX();
+        int tileSize = maze.mazeTileSize;
+        BufferedImage bi = reuse;
+        if (bi == null || bi.getWidth() != width
+                || bi.getHeight() != maze.getMazeSizeY()
+                || bi.getType() != BufferedImage.TYPE_BYTE_BINARY) {
+            bi = new BufferedImage(width, maze.getMazeSizeY(),
+                    BufferedImage.TYPE_BYTE_BINARY, BLACK_AND_WHITE);
+        }
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        int stride = (width + 7) >>> 3;
+        
+        long[] row = new long[(maze.getMazeWidth() + 63) >>> 6];
+        MazeGrid grid = maze.getGrid();
+        for (int y = 0; y < maze.getMazeHeight(); y++) {
+            int offset = y * tileSize * stride;
+            grid.copyRow(y, row);
+            Scanlines.expand(row, maze.getMazeWidth(), tileSize, pixels,
+                    offset);
+            for (int i = 1; i < tileSize; i++) {
+                System.arraycopy(pixels, offset, pixels, offset + i * stride,
+                        stride);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Renders a rectangle of tiles to a 1-bit image at a whole number of
+     * pixels per tile.
+     * @param grid The grid of the maze
+     * @param x0 The x value of the first tile
+     * @param y0 The y value of the first tile
+     * @param tilesX The number of tiles across
+     * @param tilesY The number of tiles down
+     * @param pixelsPerTile The width and height of a tile in pixels
+     * @return a black and white image of the tiles
+     */
+    static BufferedImage renderBlock(MazeGrid grid, int x0, int y0,
+            int tilesX, int tilesY, int pixelsPerTile) {
+        return renderBlock(grid, x0, y0, tilesX, tilesY, pixelsPerTile, null);
+    }
+    
+    /***************************************************************************
+     * Renders a rectangle of tiles like renderBlock, drawing over a spare
+     * image if the cache has one.
+     * @param spares The cache to take a spare image from, or null
+     */
+    static BufferedImage renderBlock(MazeGrid grid, int x0, int y0,
+            int tilesX, int tilesY, int pixelsPerTile, ImageBlockCache spares) {
+        int width = tilesX * pixelsPerTile;
+        BufferedImage bi = blockImage(spares, width, tilesY * pixelsPerTile,
+                BufferedImage.TYPE_BYTE_BINARY);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        int stride = (width + 7) >>> 3;
+        
+        long[] row = new long[(tilesX + 63) >>> 6];
+        for (int y = 0; y < tilesY; y++) {
+            int index = grid.index(x0, y0 + y);
+            for (int x = 0; x < tilesX; x += 64) {
+                row[x >>> 6] = grid.getPathBits(index + x,
+                        Math.min(64, tilesX - x));
+            }
+            int offset = y * pixelsPerTile * stride;
+            Scanlines.expand(row, tilesX, pixelsPerTile, pixels, offset);
+            for (int i = 1; i < pixelsPerTile; i++) {
+                System.arraycopy(pixels, offset, pixels, offset + i * stride,
+                        stride);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Renders a rectangle of tiles to a grayscale image at half size, each
+     * pixel being as bright as the share of path tiles in its 2x2 tiles.
+     * @param grid The grid of the maze
+     * @param x0 The x value of the first tile
+     * @param y0 The y value of the first tile
+     * @param tilesX The number of tiles across
+     * @param tilesY The number of tiles down
+     * @param spares The cache to take a spare image from, or null
+     * @return a grayscale image of the tiles
+     */
+    static BufferedImage renderHalfSize(MazeGrid grid, int x0, int y0,
+            int tilesX, int tilesY, ImageBlockCache spares) {
+        int width = (tilesX + 1) >>> 1;
+        int height = (tilesY + 1) >>> 1;
+        BufferedImage bi = blockImage(spares, width, height,
+                BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        
+        for (int py = 0; py < height; py++) {
+            int rows = Math.min(2, tilesY - 2 * py);
+            for (int px = 0; px < width; px++) {
+                int columns = Math.min(2, tilesX - 2 * px);
+                int paths = 0;
+                for (int dy = 0; dy < rows; dy++) {
+                    paths += Long.bitCount(grid.getPathBits(grid.index(
+                            x0 + 2 * px, y0 + 2 * py + dy), columns));
+                }
+                pixels[py * width + px] =
+                        (byte) (paths * 255 / (rows * columns));
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Combines four grayscale blocks into one block at half their size, each
+     * pixel being the average of the 2x2 pixels it covers. The blocks are laid
+     * out as a 2x2 square of blockSize pixels each; blocks past the edge of
+     * the maze are null or smaller than blockSize.
+     * @param blocks The top left, top right, bottom left and bottom right
+     * blocks
+     * @param blockSize The full width and height of a block in pixels
+     * @param width The width of the combined block
+     * @param height The height of the combined block
+     * @param spares The cache to take a spare image from, or null
+     * @return a grayscale image of the blocks
+     */
+    static BufferedImage downsample(BufferedImage[] blocks, int blockSize,
+            int width, int height, ImageBlockCache spares) {
+        BufferedImage bi = blockImage(spares, width, height,
+                BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                int sum = 0;
+                int count = 0;
+                for (int d = 0; d < 4; d++) {
+                    int vx = 2 * px + (d & 1);
+                    int vy = 2 * py + (d >> 1);
+                    BufferedImage block = blocks[(vy / blockSize) * 2
+                            + vx / blockSize];
+                    int bx = vx % blockSize;
+                    int by = vy % blockSize;
+                    if (block != null && bx < block.getWidth()
+                            && by < block.getHeight()) {
+                        byte[] source = ((DataBufferByte) block.getRaster()
+                                .getDataBuffer()).getData();
+                        sum += source[by * block.getWidth() + bx] & 0xFF;
+                        count++;
+                    }
+                }
+                pixels[py * width + px] = (byte) (count == 0 ? 0 : sum / count);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Builds the heat map palette, running from blue for the nearest tiles
+     * through green and yellow to red for the farthest
+     * @return the heat map palette
+     */
+    private static IndexColorModel heatColors() {
+        byte[] red = new byte[256];
+        byte[] green = new byte[256];
+        byte[] blue = new byte[256];
+        red[HEAT_SOLUTION] = (byte) 0xFF;
+        green[HEAT_SOLUTION] = (byte) 0xFF;
+        blue[HEAT_SOLUTION] = (byte) 0xFF;
+        red[HEAT_UNREACHED] = 0x40;
+        green[HEAT_UNREACHED] = 0x40;
+        blue[HEAT_UNREACHED] = 0x40;
+        for (int i = 0; i < HEAT_STEPS; i++) {
+            float hue = (2f / 3) * (HEAT_STEPS - 1 - i) / (HEAT_STEPS - 1);
+            int rgb = Color.HSBtoRGB(hue, 1, 1);
+            red[HEAT_FIRST + i] = (byte) (rgb >> 16);
+            green[HEAT_FIRST + i] = (byte) (rgb >> 8);
+            blue[HEAT_FIRST + i] = (byte) rgb;
+        }
+        return new IndexColorModel(8, 256, red, green, blue);
+    }
+    
+    /***************************************************************************
+     * Returns the heat map palette index of a tile
+     * @param isPath True if the tile is a path
+     * @param distance The distance to the tile, or -1 if it is not reached
+     * @param maxDistance The largest distance in the field
+     * @return the palette index of the tile
+     */
+    static int heatIndex(boolean isPath, int distance, int maxDistance) {
+        if (!isPath) {
+            return HEAT_WALL;
+        }
+        if (distance < 0) {
+            return HEAT_UNREACHED;
+        }
+        return HEAT_FIRST + (maxDistance == 0 ? 0
+                : (int) ((long) distance * (HEAT_STEPS - 1) / maxDistance));
+    }
+    
+    /***************************************************************************
+     * Renders a rectangle of tiles to a heat map image at a whole number of
+     * pixels per tile, each path tile colored by its distance.
+     * @param grid The grid of the maze
+     * @param distances The distances to color the tiles by
+     * @param x0 The x value of the first tile
+     * @param y0 The y value of the first tile
+     * @param tilesX The number of tiles across
+     * @param tilesY The number of tiles down
+     * @param pixelsPerTile The width and height of a tile in pixels
+     * @param spares The cache to take a spare image from, or null
+     * @return an image of the tiles in the heat map palette
+     */
+    static BufferedImage renderHeatBlock(MazeGrid grid,
+            MazeDistanceField distances, int x0, int y0, int tilesX,
+            int tilesY, int pixelsPerTile, ImageBlockCache spares) {
+        int width = tilesX * pixelsPerTile;
+        BufferedImage bi = blockImage(spares, width, tilesY * pixelsPerTile,
+                BufferedImage.TYPE_BYTE_INDEXED);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        int max = distances.getMaxDistance();
+        
+        for (int y = 0; y < tilesY; y++) {
+            int offset = y * pixelsPerTile * width;
+            int index = grid.index(x0, y0 + y);
+            for (int x = 0; x < tilesX; x++) {
+                byte color = (byte) heatIndex(grid.isPath(index + x),
+                        distances.getDistance(index + x), max);
+                Arrays.fill(pixels, offset + x * pixelsPerTile,
+                        offset + (x + 1) * pixelsPerTile, color);
+            }
+            for (int i = 1; i < pixelsPerTile; i++) {
+                System.arraycopy(pixels, offset, pixels, offset + i * width,
+                        width);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Renders a rectangle of tiles to a heat map image at half size, each
+     * pixel taking the average color of the reached tiles in its 2x2 tiles.
+     * @param grid The grid of the maze
+     * @param distances The distances to color the tiles by
+     * @param x0 The x value of the first tile
+     * @param y0 The y value of the first tile
+     * @param tilesX The number of tiles across
+     * @param tilesY The number of tiles down
+     * @param spares The cache to take a spare image from, or null
+     * @return an image of the tiles in the heat map palette
+     */
+    static BufferedImage renderHeatHalfSize(MazeGrid grid,
+            MazeDistanceField distances, int x0, int y0, int tilesX,
+            int tilesY, ImageBlockCache spares) {
+        int width = (tilesX + 1) >>> 1;
+        int height = (tilesY + 1) >>> 1;
+        BufferedImage bi = blockImage(spares, width, height,
+                BufferedImage.TYPE_BYTE_INDEXED);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        int max = distances.getMaxDistance();
+        int[] colors = new int[4];
+        
+        for (int py = 0; py < height; py++) {
+            int rows = Math.min(2, tilesY - 2 * py);
+            for (int px = 0; px < width; px++) {
+                int columns = Math.min(2, tilesX - 2 * px);
+                int count = 0;
+                for (int dy = 0; dy < rows; dy++) {
+                    int index = grid.index(x0 + 2 * px, y0 + 2 * py + dy);
+                    for (int dx = 0; dx < columns; dx++) {
+                        colors[count++] = heatIndex(grid.isPath(index + dx),
+                                distances.getDistance(index + dx), max);
+                    }
+                }
+                pixels[py * width + px] = (byte) mixHeat(colors, count);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Combines four heat map blocks into one block at half their size, the
+     * same way downsample does for grayscale blocks.
+     * @param blocks The top left, top right, bottom left and bottom right
+     * blocks
+     * @param blockSize The full width and height of a block in pixels
+     * @param width The width of the combined block
+     * @param height The height of the combined block
+     * @param spares The cache to take a spare image from, or null
+     * @return an image of the blocks in the heat map palette
+     */
+    static BufferedImage downsampleHeat(BufferedImage[] blocks,
+            int blockSize, int width, int height, ImageBlockCache spares) {
+        BufferedImage bi = blockImage(spares, width, height,
+                BufferedImage.TYPE_BYTE_INDEXED);
+        byte[] pixels = ((DataBufferByte) bi.getRaster().getDataBuffer())
+                .getData();
+        int[] colors = new int[4];
+        
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                int count = 0;
+                for (int d = 0; d < 4; d++) {
+                    int vx = 2 * px + (d & 1);
+                    int vy = 2 * py + (d >> 1);
+                    BufferedImage block = blocks[(vy / blockSize) * 2
+                            + vx / blockSize];
+                    int bx = vx % blockSize;
+                    int by = vy % blockSize;
+                    if (block != null && bx < block.getWidth()
+                            && by < block.getHeight()) {
+                        byte[] source = ((DataBufferByte) block.getRaster()
+                                .getDataBuffer()).getData();
+                        colors[count++] =
+                                source[by * block.getWidth() + bx] & 0xFF;
+                    }
+                }
+                pixels[py * width + px] = (byte) mixHeat(colors, count);
+            }
+        }
+        return bi;
+    }
+    
+    /***************************************************************************
+     * Mixes heat map colors for a pixel covering several: the average of the
+     * distance colors if there are any, otherwise unreached if any path is,
+     * otherwise a wall. Walls between paths are left out so a zoomed out heat
+     * map shows distances rather than how dense the paths are.
+     * @param colors The palette indices to mix
+     * @param count The number of indices
+     * @return the mixed palette index
+     */
+    private static int mixHeat(int[] colors, int count) {
+        int sum = 0;
+        int heat = 0;
+        int mixed = HEAT_WALL;
+        for (int i = 0; i < count; i++) {
+            if (colors[i] >= HEAT_FIRST) {
+                sum += colors[i];
+                heat++;
+            } else if (colors[i] != HEAT_WALL) {
+                mixed = HEAT_UNREACHED;
+            }
+        }
+        return heat > 0 ? sum / heat : mixed;
+    }
+    
+    /***************************************************************************
+     * Returns an image to draw a block into: a spare image of the right size
+     * and type if the cache has one, otherwise a new image
+     * @param spares The cache to take a spare image from, or null
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param type TYPE_BYTE_BINARY for black and white, TYPE_BYTE_GRAY, or
+     * TYPE_BYTE_INDEXED for the heat map palette
+     * @return an image whose old pixels must all be drawn over
+     */
+    private static BufferedImage blockImage(ImageBlockCache spares, int width,
+            int height, int type) {
+        BufferedImage bi = spares == null ? null
+                : spares.takeSpare(width, height, type);
+        if (bi != null) {
+            return bi;
+        }
+        switch (type) {
+            case BufferedImage.TYPE_BYTE_BINARY:
+                return new BufferedImage(width, height, type, BLACK_AND_WHITE);
+            case BufferedImage.TYPE_BYTE_INDEXED:
+                return new BufferedImage(width, height, type, HEAT_COLORS);
+            default:
+                return new BufferedImage(width, height, type);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.IOException;
+
+/**
+ * Receives the tile rows of a maze one at a time, from top to bottom.
+ * @author Julian
+ */
+public interface MazeRowConsumer {
+    
+    /***************************************************************************
+     * Accepts the next row of the maze. The row array may be reused for the
+     * next row, so it must not be kept after this returns.
+     * @param y The y value of the row
+     * @param row Bit x of the row (bit x % 64 of row[x / 64]) is set if tile
+     * x is a path
+     * @throws IOException if the row cannot be written
+     */
+    void acceptRow(int y, long[] row) throws IOException;
+}
@@ -0,0 +1,543 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches a range of seeds for a maze whose difficulty falls within a
+ * MazeTarget. Worker threads claim seeds in order and each generates its
+ * candidates into one reused maze.
+ * <p>
+ * A candidate is measured in stages, cheapest first, and given up on as soon
+ * as it cannot be on target. The degrees of its path tiles are counted row by
+ * row with bitwise adders, stopping once there are too many dead ends. The
+ * solution is then found with a breadth-first search from the start that
+ * stops once it is longer than the target allows, before which the distance
+ * between the start and end alone may already rule the candidate out.
+ * <p>
+ * When looking for the first seed on target, a match also stops every
+ * candidate with a higher seed, including ones still being carved, so the
+ * result is the lowest matching seed however many threads there are.
+ * @author Julian
+ */
+public class MazeSearch {
+
+    private static final String USAGE = "Usage: --search <width> <height>"
+            + " <firstSeed> <lastSeed> [solution=<min>:<max>]"
+            + " [deadEnds=<min>:<max>] [branching=<min>:<max>] [best]"
+            + " [legacy|splittable|xoshiro256]";
+
+    // Rows of degrees counted between checks for a lower matching seed
+    private static final int ROWS_PER_CHECK = 64;
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int tileSize;
+    private final RandomAlgorithm algorithm;
+    private final MazeTarget target;
+    private final int threads;
+
+    private MazeAlgorithm mazeAlgorithm;
+
+
+    /***************************************************************************
+     * Creates a search for mazes of one size
+     * @param mazeWidth The maze width in tiles
+     * @param mazeHeight The maze height in tiles
+     * @param tileSize The size of a tile in pixels, for the maze found
+     * @param algorithm The random number generator algorithm to seed
+     * @param target The ranges to look for, which must not change while a
+     * search is running
+     * @param threads The number of threads to search on
+     */
+    public MazeSearch(int mazeWidth, int mazeHeight, int tileSize,
+            RandomAlgorithm algorithm, MazeTarget target, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be positive: "
+                    + threads);
+        }
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.tileSize = tileSize;
+        this.algorithm = algorithm;
+        this.target = target;
+        this.threads = threads;
+        mazeAlgorithm = new DepthFirstAlgorithm();
+    }
+
+
+    /***************************************************************************
+     * Runs a search from command line arguments and prints the maze found.
+     * @param args The command line arguments, starting with "--search"
+     * @return the process exit code: 0 if a maze was found, 1 if none was
+     */
+    public static int runFromCommandLine(String[] args) {
+        if (args.length < 5) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        MazeSearch search;
+        long firstSeed;
+        long lastSeed;
+        boolean best = false;
+        MazeTarget target = new MazeTarget();
+        try {
+            int width = Integer.parseInt(args[1]);
+            int height = Integer.parseInt(args[2]);
+            firstSeed = Long.parseLong(args[3]);
+            lastSeed = Long.parseLong(args[4]);
+            RandomAlgorithm algorithm = RandomAlgorithm.LEGACY;
+            for (int i = 5; i < args.length; i++) {
+                String arg = args[i];
+                int equals = arg.indexOf('=');
+                int colon = arg.indexOf(':');
+                if (arg.equals("best")) {
+                    best = true;
+                } else if (equals < 0) {
+                    algorithm = RandomAlgorithm.valueOf(
+                            arg.toUpperCase(Locale.ROOT));
+                } else if (colon < equals) {
+                    System.err.println(USAGE);
+                    return 2;
+                } else {
+                    String name = arg.substring(0, equals);
+                    String min = arg.substring(equals + 1, colon);
+                    String max = arg.substring(colon + 1);
+                    if (name.equals("solution")) {
+                        target.setSolutionLength(Integer.parseInt(min),
+                                Integer.parseInt(max));
+                    } else if (name.equals("deadEnds")) {
+                        target.setDeadEnds(Long.parseLong(min),
+                                Long.parseLong(max));
+                    } else if (name.equals("branching")) {
+                        target.setBranchingFactor(Double.parseDouble(min),
+                                Double.parseDouble(max));
+                    } else {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                }
+            }
+            if (width <= 10 || height <= 10 || lastSeed < firstSeed) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            search = new MazeSearch(width, height, 1, algorithm, target,
+                    Runtime.getRuntime().availableProcessors());
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        MazeSearchResult result;
+        try {
+            result = best ? search.findBest(firstSeed, lastSeed)
+                    : search.findFirst(firstSeed, lastSeed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+
+        System.out.println("Target: " + target);
+        System.out.println(result);
+        if (!result.isFound()) {
+            System.err.println("No maze in seeds " + firstSeed + " to "
+                    + lastSeed + " is on target.");
+            return 1;
+        }
+        System.out.println(result.getAnalysis());
+        return 0;
+    }
+
+    /***************************************************************************
+     * Finds the lowest seed in a range whose maze is on target
+     * @param firstSeed The first seed to try
+     * @param lastSeed The last seed to try
+     * @return the result, which holds no maze if none was on target
+     * @throws InterruptedException if interrupted while waiting for the
+     * threads, which then stop soon after
+     */
+    public MazeSearchResult findFirst(long firstSeed, long lastSeed)
+            throws InterruptedException {
+        return new Run(firstSeed, lastSeed, false).search();
+    }
+
+    /***************************************************************************
+     * Tries every seed in a range and finds the maze that lies closest to the
+     * middle of the target, as MazeTarget.score measures it. Ties go to the
+     * lowest seed.
+     * @param firstSeed The first seed to try
+     * @param lastSeed The last seed to try
+     * @return the result, which holds no maze if none was on target
+     * @throws InterruptedException if interrupted while waiting for the
+     * threads, which then stop soon after
+     */
+    public MazeSearchResult findBest(long firstSeed, long lastSeed)
+            throws InterruptedException {
+        return new Run(firstSeed, lastSeed, true).search();
+    }
+
+    /***************************************************************************
+     * Sets the algorithm candidates are carved with
+     * @param mazeAlgorithm The algorithm, which is shared by every thread
+     */
+    public void setMazeAlgorithm(MazeAlgorithm mazeAlgorithm) {
+        this.mazeAlgorithm = mazeAlgorithm;
+    }
+
+    /***************************************************************************
+     * Returns the algorithm candidates are carved with
+     * @return the maze algorithm
+     */
+    public MazeAlgorithm getMazeAlgorithm() {
+        return mazeAlgorithm;
+    }
+
+
+    /**
+     * One search over a range of seeds, shared by its threads.
+     */
+    private class Run {
+
+        private final long firstSeed;
+        private final long lastSeed;
+        private final boolean findBest;
+        private final MazeAlgorithm carver;
+
+        private final AtomicLong nextSeed;
+
+        // No candidate above this seed can win; lowered by findFirst matches
+        // and to Long.MIN_VALUE to stop the search
+        private final AtomicLong bound;
+
+        private final AtomicLong candidates = new AtomicLong();
+        private final AtomicLong matches = new AtomicLong();
+        private final AtomicLong abandoned = new AtomicLong();
+
+        // The candidate chosen so far, guarded by this
+        private boolean found;
+        private long bestSeed;
+        private double bestScore;
+
+        private volatile RuntimeException failure;
+
+        Run(long firstSeed, long lastSeed, boolean findBest) {
+            this.firstSeed = firstSeed;
+            this.lastSeed = lastSeed;
+            this.findBest = findBest;
+            carver = mazeAlgorithm;
+            nextSeed = new AtomicLong(firstSeed);
+            bound = new AtomicLong(Long.MAX_VALUE);
+        }
+
+        /***********************************************************************
+         * Runs the threads, waits for them and generates the chosen maze again
+         */
+        MazeSearchResult search() throws InterruptedException {
+            long startTime = System.nanoTime();
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }, "search-" + i);
+                workers[i].start();
+            }
+            try {
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+            } catch (InterruptedException e) {
+                bound.set(Long.MIN_VALUE);
+                throw e;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            Maze maze = null;
+            MazeAnalysis analysis = null;
+            double score = Double.NaN;
+            if (found) {
+                maze = new Maze(mazeWidth, mazeHeight, tileSize, true,
+                        bestSeed, algorithm);
+                maze.setMazeAlgorithm(carver);
+                maze.generateMaze();
+                analysis = maze.analyze();
+                score = bestScore;
+            }
+            return new MazeSearchResult(maze, analysis, score,
+                    candidates.get(), matches.get(), abandoned.get(),
+                    System.nanoTime() - startTime);
+        }
+
+        /***********************************************************************
+         * Claims and measures seeds until the range is used up or no seed left
+         * can win
+         */
+        private void work() {
+            Candidate candidate = new Candidate(this);
+            long tried = 0;
+            try {
+                long seed;
+                // A range ending at Long.MAX_VALUE wraps the counter around
+                // to Long.MIN_VALUE, below the first seed
+                while ((seed = nextSeed.getAndIncrement()) <= lastSeed
+                        && seed >= firstSeed
+                        && seed <= bound.get()) {
+                    tried++;
+                    if (candidate.measure(seed)) {
+                        matches.incrementAndGet();
+                        offer(seed, target.score(candidate.solutionLength,
+                                candidate.deadEnds, candidate.branchingFactor));
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                bound.set(Long.MIN_VALUE);
+            } finally {
+                candidates.addAndGet(tried);
+                abandoned.addAndGet(candidate.abandoned);
+            }
+        }
+
+        /***********************************************************************
+         * Keeps a candidate on target if it beats the one chosen so far
+         */
+        private synchronized void offer(long seed, double score) {
+            boolean better = !found || (findBest
+                    ? score < bestScore || (score == bestScore
+                            && seed < bestSeed)
+                    : seed < bestSeed);
+            if (better) {
+                found = true;
+                bestSeed = seed;
+                bestScore = score;
+                if (!findBest) {
+                    bound.set(seed);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Generates and measures the candidates of one thread, reusing its maze
+     * and buffers for every seed.
+     */
+    private class Candidate {
+
+        private final Run run;
+        private final Maze maze;
+        private final MazeGrid grid;
+        private final int words;
+
+        private long[] below;
+        private long[] row;
+        private long[] above;
+        // The bits of the neighbor counts of a word
+        private final long[] count = new long[3];
+        private final long[] visited;
+        private final IntQueue queue = new IntQueue();
+
+        // The measurements of the last candidate on target
+        int solutionLength;
+        long deadEnds;
+        double branchingFactor;
+
+        long abandoned;
+
+        Candidate(Run run) {
+            this.run = run;
+            maze = new Maze(mazeWidth, mazeHeight, tileSize, true, 0,
+                    algorithm);
+            maze.setMazeAlgorithm(run.carver);
+            grid = maze.getGrid();
+            words = (mazeWidth + 63) >>> 6;
+            below = new long[words];
+            row = new long[words];
+            above = new long[words];
+            visited = new long[(grid.size() + 63) >>> 6];
+        }
+
+        /***********************************************************************
+         * Generates the maze of a seed and measures it against the target
+         * @return True if the maze is on target, otherwise false
+         */
+        boolean measure(final long seed) {
+            maze.reset(tileSize, true, seed);
+            try {
+                maze.generateMaze(new GenerationMonitor() {
+                    @Override
+                    void checkCancelled() {
+                        if (seed > run.bound.get()) {
+                            throw new CancellationException();
+                        }
+                    }
+                });
+            } catch (CancellationException e) {
+                abandoned++;
+                return false;
+            }
+
+            deadEnds = 0;
+            branchingFactor = 0;
+            if (target.needsDegrees()) {
+                if (!countDegrees(seed)) {
+                    abandoned++;
+                    return false;
+                }
+                if (deadEnds < target.minDeadEnds
+                        || deadEnds > target.maxDeadEnds
+                        || branchingFactor < target.minBranchingFactor
+                        || branchingFactor > target.maxBranchingFactor) {
+                    return false;
+                }
+            }
+
+            solutionLength = -1;
+            if (target.needsSolution()) {
+                solutionLength = solve(seed);
+                if (solutionLength < 0) {
+                    abandoned++;
+                    return false;
+                }
+            }
+            return target.matches(solutionLength, deadEnds, branchingFactor);
+        }
+
+        /***********************************************************************
+         * Counts the dead ends and junctions a row at a time, with
+         * MazeAnalyzer's bitwise adders
+         * @return False if the count was stopped because there were too many
+         * dead ends or a lower seed matched, otherwise true
+         */
+        private boolean countDegrees(long seed) {
+            long ends = 0;
+            long threes = 0;
+            long fours = 0;
+            // The start and end are not dead ends but may be counted as ones
+            long limit = target.maxDeadEnds == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : target.maxDeadEnds + 2;
+
+            Arrays.fill(below, 0);
+            grid.copyRow(0, row);
+            for (int y = 0; y < mazeHeight; y++) {
+                if (y + 1 < mazeHeight) {
+                    grid.copyRow(y + 1, above);
+                } else {
+                    Arrays.fill(above, 0);
+                }
+
+                for (int w = 0; w < words; w++) {
+                    long path = row[w];
+                    if (path == 0) {
+                        continue;
+                    }
+                    MazeAnalyzer.countNeighbors(below, row, above, w, count);
+                    long bit0 = count[0];
+                    long bit1 = count[1];
+                    long bit2 = count[2];
+
+                    ends += Long.bitCount(path & ~bit2 & ~bit1 & bit0);
+                    threes += Long.bitCount(path & bit1 & bit0);
+                    fours += Long.bitCount(path & bit2);
+                }
+                if (ends > limit) {
+                    return false;
+                }
+                if (y % ROWS_PER_CHECK == ROWS_PER_CHECK - 1
+                        && seed > run.bound.get()) {
+                    return false;
+                }
+
+                long[] swap = below;
+                below = row;
+                row = above;
+                above = swap;
+            }
+
+            int start = maze.getStart();
+            int end = maze.getEnd();
+            if (MazeAnalyzer.degree(grid, start) == 1) {
+                ends--;
+            }
+            if (end != start && MazeAnalyzer.degree(grid, end) == 1) {
+                ends--;
+            }
+            deadEnds = ends;
+            long junctions = threes + fours;
+            branchingFactor = junctions == 0 ? 0
+                    : (double) (2 * threes + 3 * fours) / junctions;
+            return true;
+        }
+
+        /***********************************************************************
+         * Finds the solution length with a breadth-first search, a level at a
+         * time, that stops once the path would be longer than the target
+         * @return the number of tiles on the solution, or -1 if it is longer
+         * than the target, there is none, or a lower seed matched
+         */
+        private int solve(long seed) {
+            int start = maze.getStart();
+            int end = maze.getEnd();
+            int max = target.maxSolutionLength;
+            int straight = Math.abs(grid.xOf(start) - grid.xOf(end))
+                    + Math.abs(grid.yOf(start) - grid.yOf(end)) + 1;
+            if (straight > max) {
+                return -1;
+            }
+
+            int size = grid.size();
+            Arrays.fill(visited, 0);
+            queue.clear();
+            queue.add(start);
+            visited[start >>> 6] |= 1L << start;
+            for (int length = 1; length <= max && !queue.isEmpty();
+                    length++) {
+                if (seed > run.bound.get()) {
+                    return -1;
+                }
+                for (int n = queue.size(); n > 0; n--) {
+                    int tile = queue.poll();
+                    if (tile == end) {
+                        return length;
+                    }
+                    int x = tile % mazeWidth;
+                    if (x > 0) {
+                        visit(tile - 1);
+                    }
+                    if (x + 1 < mazeWidth) {
+                        visit(tile + 1);
+                    }
+                    if (tile >= mazeWidth) {
+                        visit(tile - mazeWidth);
+                    }
+                    if (tile + mazeWidth < size) {
+                        visit(tile + mazeWidth);
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void visit(int tile) {
+            long bit = 1L << tile;
+            if ((visited[tile >>> 6] & bit) == 0 && grid.isPath(tile)) {
+                visited[tile >>> 6] |= bit;
+                queue.add(tile);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * What a MazeSearch found: the seed of the maze it chose, if any, with the
+ * maze and its analysis, and how much work the search did to find it.
+ * @author Julian
+ */
+public class MazeSearchResult {
+
+    private final Maze maze;
+    private final MazeAnalysis analysis;
+    private final double score;
+    private final long candidates;
+    private final long matches;
+    private final long abandoned;
+    private final long elapsedNanos;
+
+
+    MazeSearchResult(Maze maze, MazeAnalysis analysis, double score,
+            long candidates, long matches, long abandoned, long elapsedNanos) {
+        this.maze = maze;
+        this.analysis = analysis;
+        this.score = score;
+        this.candidates = candidates;
+        this.matches = matches;
+        this.abandoned = abandoned;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /***************************************************************************
+     * Determines if a maze on target was found
+     * @return True if a maze was found, otherwise false
+     */
+    public boolean isFound() {
+        return maze != null;
+    }
+
+    /***************************************************************************
+     * Returns the seed of the maze found
+     * @return the seed
+     * @throws IllegalStateException if no maze was found
+     */
+    public long getSeed() {
+        if (maze == null) {
+            throw new IllegalStateException("No maze was found");
+        }
+        return maze.getSeed();
+    }
+
+    /***************************************************************************
+     * Returns the maze found, generated again from its seed
+     * @return the maze, or null if none was found
+     */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /***************************************************************************
+     * Returns the full analysis of the maze found
+     * @return the analysis, or null if no maze was found
+     */
+    public MazeAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    /***************************************************************************
+     * Returns how far the maze found lies from the middle of the target. See
+     * MazeTarget.score.
+     * @return the score, or NaN if no maze was found
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /***************************************************************************
+     * Returns the number of mazes generated while searching
+     * @return the number of candidates
+     */
+    public long getCandidates() {
+        return candidates;
+    }
+
+    /***************************************************************************
+     * Returns the number of candidates found to be on target
+     * @return the number of matching candidates
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    /***************************************************************************
+     * Returns the number of candidates given up on before they were fully
+     * measured, because they could no longer be on target or a better
+     * candidate had already been found
+     * @return the number of abandoned candidates
+     */
+    public long getAbandoned() {
+        return abandoned;
+    }
+
+    /***************************************************************************
+     * Returns how long the search took, including generating the maze found
+     * again
+     * @return the search time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return (maze == null ? "notFound" : "seed=" + maze.getSeed())
+                + " candidates=" + candidates
+                + " matches=" + matches
+                + " abandoned=" + abandoned
+                + " elapsedMillis=" + elapsedNanos / 1000000;
+    }
+}
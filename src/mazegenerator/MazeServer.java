@@ -0,0 +1,380 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small HTTP service that generates mazes on request.
+ * <pre>
+ * GET /maze?w=&lt;width&gt;&amp;h=&lt;height&gt;[&amp;tile=&lt;size&gt;][&amp;seed=&lt;seed&gt;]
+ *          [&amp;format=png|bin|svg][&amp;random=legacy|splittable|xoshiro256]
+ * GET /stats
+ * </pre>
+ * The encoded maze is written straight to the socket as it is produced, so
+ * no image is held in memory. Requests over the size limits are refused.
+ * Requests are handled by a fixed number of threads, so at most that many
+ * mazes are generated and sent at once, and only a few requests per thread
+ * may wait for one; a request that finds them all waiting is answered with
+ * 503. Seeded mazes are served from a MazeCache. /stats reports latency
+ * percentiles of recent requests.
+ * @author Julian
+ */
+public class MazeServer {
+
+    private static final String USAGE = "Usage: --serve [port]";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_TILE_SIZE = 5;
+
+    // Admission limits
+    private static final int MAX_DIMENSION = 1 << 14;
+    private static final long MAX_TILES = 1L << 24;
+    private static final int MAX_TILE_SIZE = 64;
+    private static final long MAX_PIXELS = 1L << 30;
+    // Requests that may wait for each request thread
+    private static final int QUEUED_PER_THREAD = 4;
+
+    private static final int LATENCY_SAMPLES = 4096;
+    private static final long CACHE_BYTES = 64L << 20;
+    private static final int RESPONSE_BUFFER_SIZE = 1 << 16;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    // Set on the server's dispatcher thread while it refuses a request the
+    // request threads had no room for
+    private final ThreadLocal<Boolean> refusing;
+    private final MazeCache cache;
+    private final LatencyRecorder latency;
+    private final AtomicLong rejected;
+
+
+    /***************************************************************************
+     * Creates a server that is not yet accepting requests
+     * @param address The address to listen on
+     * @param maxConcurrent The number of mazes that may be in flight at once
+     * @param cache The cache to serve seeded mazes from
+     * @throws IOException if the address cannot be bound
+     */
+    public MazeServer(InetSocketAddress address, int maxConcurrent,
+            MazeCache cache) throws IOException {
+        this.cache = cache;
+        refusing = new ThreadLocal<>();
+        latency = new LatencyRecorder(LATENCY_SAMPLES);
+        rejected = new AtomicLong();
+
+        // Java 17 has no virtual threads, so each thread is an OS thread and
+        // their number is bounded along with the work. A request that does
+        // not fit in the queue is run on the dispatcher thread instead, which
+        // only answers it with 503 so the dispatcher is not held up.
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                        maxConcurrent * QUEUED_PER_THREAD),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable request,
+                            ThreadPoolExecutor pool) {
+                        refusing.set(Boolean.TRUE);
+                        try {
+                            request.run();
+                        } finally {
+                            refusing.remove();
+                        }
+                    }
+                });
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/maze", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleMaze(exchange);
+            }
+        });
+        server.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleStats(exchange);
+            }
+        });
+    }
+
+    /***************************************************************************
+     * Runs the server from command line arguments until the process ends.
+     * @param args The command line arguments, starting with "--serve"
+     * @return the process exit code if the server could not start
+     */
+    public static int runFromCommandLine(String[] args) {
+        int port = DEFAULT_PORT;
+        try {
+            if (args.length == 2) {
+                port = Integer.parseInt(args[1]);
+            } else if (args.length != 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        MazeServer mazeServer;
+        try {
+            mazeServer = new MazeServer(new InetSocketAddress(port),
+                    Runtime.getRuntime().availableProcessors(),
+                    MazeCache.create(CACHE_BYTES));
+        } catch (IOException e) {
+            System.err.println("There was an error listening on port " + port
+                    + ": " + e.getMessage());
+            return 1;
+        }
+        mazeServer.start();
+        System.out.println("Serving mazes on port "
+                + mazeServer.getPort());
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mazeServer.stop(0);
+        return 0;
+    }
+
+    /***************************************************************************
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /***************************************************************************
+     * Stops accepting requests and shuts the request threads down
+     * @param delaySeconds The longest to wait for requests to finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /***************************************************************************
+     * Returns the port the server is listening on
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /***************************************************************************
+     * Returns the latencies of recent requests
+     * @return the latency recorder of this server
+     */
+    LatencyRecorder getLatency() {
+        return latency;
+    }
+
+    /***************************************************************************
+     * Returns the number of requests refused because the server was busy
+     * @return the number of requests refused
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /***************************************************************************
+     * Generates a maze and streams it to the client
+     * @param exchange The request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleMaze(HttpExchange exchange) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            if (refusing.get() != null) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many mazes in flight");
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+
+            Map<String, String> query = parseQuery(
+                    exchange.getRequestURI().getRawQuery());
+            int width;
+            int height;
+            int tileSize;
+            boolean usesSeed;
+            long seed;
+            RandomAlgorithm algorithm;
+            String format;
+            try {
+                width = Integer.parseInt(require(query, "w"));
+                height = Integer.parseInt(require(query, "h"));
+                tileSize = Integer.parseInt(query.getOrDefault("tile",
+                        String.valueOf(DEFAULT_TILE_SIZE)));
+                usesSeed = query.containsKey("seed");
+                seed = usesSeed ? Long.parseLong(query.get("seed")) : 0;
+                algorithm = RandomAlgorithm.valueOf(query.getOrDefault(
+                        "random", "legacy").toUpperCase(Locale.ROOT));
+                format = query.getOrDefault("format", "png");
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "Bad parameter: " + e.getMessage());
+                return;
+            }
+
+            String limit = checkLimits(width, height, tileSize, format);
+            if (limit != null) {
+                sendError(exchange, 400, limit);
+                return;
+            }
+
+            Maze maze = new Maze(width, height, tileSize, usesSeed, seed,
+                    algorithm);
+            cache.generateMaze(maze);
+            sendMaze(exchange, maze, format);
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    /***************************************************************************
+     * Checks a request against the admission limits
+     * @return a description of the limit broken, or null if there is none
+     */
+    private static String checkLimits(int width, int height, int tileSize,
+            String format) {
+        if (width <= 10 || height <= 10 || width > MAX_DIMENSION
+                || height > MAX_DIMENSION) {
+            return "Width and height must be from 11 to " + MAX_DIMENSION;
+        }
+        if ((long) width * height > MAX_TILES) {
+            return "A maze may have at most " + MAX_TILES + " tiles";
+        }
+        if (tileSize <= 0 || tileSize > MAX_TILE_SIZE) {
+            return "Tile size must be from 1 to " + MAX_TILE_SIZE;
+        }
+        if (format.equals("png")) {
+            if ((long) width * height * tileSize * tileSize > MAX_PIXELS) {
+                return "An image may have at most " + MAX_PIXELS + " pixels";
+            }
+        } else if (!format.equals("bin") && !format.equals("svg")) {
+            return "Format must be png, bin or svg";
+        }
+        return null;
+    }
+
+    /***************************************************************************
+     * Streams an encoded maze as the response body. The length is not known
+     * ahead, so the response is sent with chunked encoding.
+     */
+    private static void sendMaze(HttpExchange exchange, Maze maze,
+            String format) throws IOException {
+        String contentType;
+        switch (format) {
+            case "bin":
+                contentType = "application/octet-stream";
+                exchange.getResponseHeaders().set("Content-Disposition",
+                        "attachment; filename=\"maze." + MazeFile.EXTENSION
+                        + "\"");
+                break;
+            case "svg":
+                contentType = "image/svg+xml";
+                break;
+            default:
+                contentType = "image/png";
+                break;
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream out = new BufferedOutputStream(
+                exchange.getResponseBody(), RESPONSE_BUFFER_SIZE);
+        switch (format) {
+            case "bin":
+                MazeFile.write(maze, out);
+                break;
+            case "svg":
+                SvgMazeWriter.write(maze, out);
+                break;
+            default:
+                PngMazeWriter.write(maze, out);
+                break;
+        }
+    }
+
+    /***************************************************************************
+     * Reports the latency of recent requests and the state of the cache
+     * @param exchange The request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            String stats = "latency " + latency + "\n"
+                    + "rejected " + rejected.get() + "\n"
+                    + "cache " + cache + "\n";
+            byte[] body = stats.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status,
+            String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String require(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals),
+                        StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1),
+                        StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The path through a maze from its start tile to its end tile, as tile
+ * indices, along with a bitset of the same tiles for drawing overlays.
+ * @author Julian
+ */
+public class MazeSolution {
+    
+    private final SolverAlgorithm algorithm;
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int[] path;
+    private final long[] onPath;
+    private final int visited;
+    
+    
+    MazeSolution(SolverAlgorithm algorithm, MazeGrid grid, int[] path,
+            int visited) {
+        this.algorithm = algorithm;
+        this.mazeWidth = grid.getWidth();
+        this.mazeHeight = grid.getHeight();
+        this.path = path;
+        this.visited = visited;
+        
+        onPath = new long[(grid.size() + 63) >>> 6];
+        for (int tile : path) {
+            onPath[tile >>> 6] |= 1L << tile;
+        }
+    }
+    
+    /***************************************************************************
+     * Returns the algorithm that found the path
+     * @return the algorithm that found the path
+     */
+    public SolverAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles on the path, including the start and end
+     * @return the number of tiles on the path
+     */
+    public int length() {
+        return path.length;
+    }
+    
+    /***************************************************************************
+     * Returns a tile on the path
+     * @param step The position on the path, where 0 is the start tile
+     * @return the index of the tile
+     */
+    public int getTile(int step) {
+        return path[step];
+    }
+    
+    /***************************************************************************
+     * Returns the tiles on the path from the start tile to the end tile
+     * @return a new array of tile indices
+     */
+    public int[] getPath() {
+        return path.clone();
+    }
+    
+    /***************************************************************************
+     * Returns the number of tiles the algorithm looked at to find the path
+     * @return the number of tiles visited
+     */
+    public int getVisited() {
+        return visited;
+    }
+    
+    /***************************************************************************
+     * Determines if a tile is on the path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is on the path
+     */
+    public boolean isOnPath(int x, int y) {
+        int index = y * mazeWidth + x;
+        return (onPath[index >>> 6] & (1L << index)) != 0;
+    }
+    
+    /***************************************************************************
+     * Copies the path bits of a tile row, one bit per tile from bit 0 of the
+     * first word, in the same layout as MazeGrid.copyRow
+     * @param y The y value of the row
+     * @param row The array to copy into, at least (width + 63) / 64 long
+     */
+    void copyRow(int y, long[] row) {
+        int index = y * mazeWidth;
+        for (int word = 0; word << 6 < mazeWidth; word++) {
+            int from = index + (word << 6);
+            int count = Math.min(64, mazeWidth - (word << 6));
+            int shift = from & 63;
+            long bits = onPath[from >>> 6] >>> shift;
+            if (shift != 0 && shift + count > 64) {
+                bits |= onPath[(from >>> 6) + 1] << (64 - shift);
+            }
+            row[word] = count == 64 ? bits : bits & ((1L << count) - 1);
+        }
+    }
+    
+    /***************************************************************************
+     * Returns the width of the solved maze in tiles
+     * @return the width of the solved maze in tiles
+     */
+    public int getMazeWidth() {
+        return mazeWidth;
+    }
+    
+    /***************************************************************************
+     * Returns the height of the solved maze in tiles
+     * @return the height of the solved maze in tiles
+     */
+    public int getMazeHeight() {
+        return mazeHeight;
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Finds the path between two tiles of a maze grid. Every search keeps its
+ * state in primitive arrays: a bitset of visited tiles, two bits per tile for
+ * the direction back to the tile it was reached from, and int or long queues
+ * of tile indices. No objects are created per tile.
+ * <p>
+ * The searches stop at the first time they reach a tile, which gives the
+ * shortest path in a perfect maze, where there is only one path between any
+ * two tiles.
+ * @author Julian
+ */
+class MazeSolver {
+    
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int UP = 2;
+    private static final int DOWN = 3;
+    
+    private MazeSolver() {
+    }
+    
+    /***************************************************************************
+     * Finds the path from one tile to another
+     * @param grid The maze grid
+     * @param start The index of the first tile of the path
+     * @param end The index of the last tile of the path
+     * @param algorithm The algorithm to search with
+     * @return the path, or null if the end cannot be reached from the start
+     */
+    static MazeSolution solve(MazeGrid grid, int start, int end,
+            SolverAlgorithm algorithm) {
+        switch (algorithm) {
+            case BFS:
+                return breadthFirst(grid, start, end);
+            case BIDIRECTIONAL_BFS:
+                return bidirectional(grid, start, end);
+            case A_STAR:
+                return aStar(grid, start, end);
+            case DEAD_END_FILLING:
+                return deadEndFilling(grid, start, end);
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: "
+                        + algorithm);
+        }
+    }
+    
+    /***************************************************************************
+     * Searches outward from the start one step at a time
+     */
+    private static MazeSolution breadthFirst(MazeGrid grid, int start,
+            int end) {
+        int width = grid.getWidth();
+        long[] visited = newBits(grid.size());
+        long[] from = newDirections(grid.size());
+        IntQueue queue = new IntQueue();
+        
+        setBit(visited, start);
+        queue.add(start);
+        int count = 1;
+        while (!queue.isEmpty()) {
+            int tile = queue.poll();
+            if (tile == end) {
+                return new MazeSolution(SolverAlgorithm.BFS, grid,
+                        trace(from, width, start, end), count);
+            }
+            int x = tile % width;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbor(grid, tile, x, direction);
+                if (next >= 0 && !getBit(visited, next)) {
+                    setBit(visited, next);
+                    setDirection(from, next, opposite(direction));
+                    queue.add(next);
+                    count++;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /***************************************************************************
+     * Searches outward from both ends, always growing the smaller frontier
+     * one full step, until the two searches touch
+     */
+    private static MazeSolution bidirectional(MazeGrid grid, int start,
+            int end) {
+        int width = grid.getWidth();
+        long[] visitedStart = newBits(grid.size());
+        long[] visitedEnd = newBits(grid.size());
+        long[] fromStart = newDirections(grid.size());
+        long[] fromEnd = newDirections(grid.size());
+        IntQueue queueStart = new IntQueue();
+        IntQueue queueEnd = new IntQueue();
+        
+        setBit(visitedStart, start);
+        setBit(visitedEnd, end);
+        queueStart.add(start);
+        queueEnd.add(end);
+        int count = start == end ? 1 : 2;
+        int meet = start == end ? start : -1;
+        
+        while (meet < 0 && !queueStart.isEmpty() && !queueEnd.isEmpty()) {
+            boolean forward = queueStart.size() <= queueEnd.size();
+            IntQueue queue = forward ? queueStart : queueEnd;
+            long[] visited = forward ? visitedStart : visitedEnd;
+            long[] other = forward ? visitedEnd : visitedStart;
+            long[] from = forward ? fromStart : fromEnd;
+            
+            for (int n = queue.size(); n > 0 && meet < 0; n--) {
+                int tile = queue.poll();
+                int x = tile % width;
+                for (int direction = 0; direction < 4; direction++) {
+                    int next = neighbor(grid, tile, x, direction);
+                    if (next < 0 || getBit(visited, next)) {
+                        continue;
+                    }
+                    setBit(visited, next);
+                    setDirection(from, next, opposite(direction));
+                    if (getBit(other, next)) {
+                        meet = next;
+                        break;
+                    }
+                    queue.add(next);
+                    count++;
+                }
+            }
+        }
+        if (meet < 0) {
+            return null;
+        }
+        
+        int[] first = trace(fromStart, width, start, meet);
+        int[] second = trace(fromEnd, width, end, meet);
+        int[] path = new int[first.length + second.length - 1];
+        System.arraycopy(first, 0, path, 0, first.length);
+        for (int i = 0; i < second.length - 1; i++) {
+            path[first.length + i] = second[second.length - 2 - i];
+        }
+        return new MazeSolution(SolverAlgorithm.BIDIRECTIONAL_BFS, grid, path,
+                count);
+    }
+    
+    /***************************************************************************
+     * Searches the tiles closest to the end first. Heap entries hold the
+     * estimated path length in their high 32 bits and the tile in the low 32
+     * bits, so the steps taken so far are recovered from the estimate.
+     */
+    private static MazeSolution aStar(MazeGrid grid, int start, int end) {
+        int width = grid.getWidth();
+        int xEnd = end % width;
+        int yEnd = end / width;
+        long[] visited = newBits(grid.size());
+        long[] from = newDirections(grid.size());
+        LongHeap heap = new LongHeap();
+        
+        setBit(visited, start);
+        heap.add((long) distance(start, width, xEnd, yEnd) << 32 | start);
+        int count = 1;
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int tile = (int) entry;
+            if (tile == end) {
+                return new MazeSolution(SolverAlgorithm.A_STAR, grid,
+                        trace(from, width, start, end), count);
+            }
+            int x = tile % width;
+            int steps = (int) (entry >>> 32)
+                    - distance(tile, width, xEnd, yEnd);
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbor(grid, tile, x, direction);
+                if (next >= 0 && !getBit(visited, next)) {
+                    setBit(visited, next);
+                    setDirection(from, next, opposite(direction));
+                    int estimate = steps + 1 + distance(next, width, xEnd,
+                            yEnd);
+                    heap.add((long) estimate << 32 | next);
+                    count++;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /***************************************************************************
+     * Walls off every dead end, following each corridor back until it reaches
+     * a junction, so only the path between the start and end is left open.
+     * The path is then walked from the start.
+     */
+    private static MazeSolution deadEndFilling(MazeGrid grid, int start,
+            int end) {
+        int width = grid.getWidth();
+        long[] filled = newBits(grid.size());
+        int count = 0;
+        
+        for (int tile = 0; tile < grid.size(); tile++) {
+            int current = tile;
+            while (current >= 0 && current != start && current != end
+                    && grid.isPath(current) && !getBit(filled, current)) {
+                int x = current % width;
+                int open = -1;
+                int exits = 0;
+                for (int direction = 0; direction < 4; direction++) {
+                    int next = neighbor(grid, current, x, direction);
+                    if (next >= 0 && !getBit(filled, next)) {
+                        open = next;
+                        exits++;
+                    }
+                }
+                if (exits > 1) {
+                    break;
+                }
+                setBit(filled, current);
+                count++;
+                current = open;
+            }
+        }
+        
+        IntStack path = new IntStack();
+        int previous = -1;
+        int current = start;
+        while (current >= 0) {
+            path.push(current);
+            count++;
+            if (current == end) {
+                return new MazeSolution(SolverAlgorithm.DEAD_END_FILLING, grid,
+                        path.toArray(), count);
+            }
+            int x = current % width;
+            int following = -1;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbor(grid, current, x, direction);
+                if (next >= 0 && next != previous && !getBit(filled, next)) {
+                    following = next;
+                    break;
+                }
+            }
+            previous = current;
+            current = following;
+        }
+        return null;
+    }
+    
+    /***************************************************************************
+     * Follows the stored directions back from a tile to the start of the
+     * search
+     * @return the tiles from the start of the search to the tile
+     */
+    private static int[] trace(long[] from, int width, int start, int tile) {
+        int length = 1;
+        for (int t = tile; t != start;
+                t = step(t, width, getDirection(from, t))) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int i = length - 1, t = tile; i >= 0;
+                t = step(t, width, getDirection(from, t)), i--) {
+            path[i] = t;
+        }
+        return path;
+    }
+    
+    /***************************************************************************
+     * Returns the path tile next to a tile
+     * @return the index of the neighbor, or -1 if it is off the grid or a wall
+     */
+    private static int neighbor(MazeGrid grid, int tile, int x,
+            int direction) {
+        int next;
+        switch (direction) {
+            case LEFT:
+                if (x == 0) {
+                    return -1;
+                }
+                next = tile - 1;
+                break;
+            case RIGHT:
+                if (x == grid.getWidth() - 1) {
+                    return -1;
+                }
+                next = tile + 1;
+                break;
+            case UP:
+                next = tile + grid.getWidth();
+                if (next >= grid.size()) {
+                    return -1;
+                }
+                break;
+            default:
+                next = tile - grid.getWidth();
+                if (next < 0) {
+                    return -1;
+                }
+                break;
+        }
+        return grid.isPath(next) ? next : -1;
+    }
+    
+    private static int step(int tile, int width, int direction) {
+        switch (direction) {
+            case LEFT:
+                return tile - 1;
+            case RIGHT:
+                return tile + 1;
+            case UP:
+                return tile + width;
+            default:
+                return tile - width;
+        }
+    }
+    
+    private static int opposite(int direction) {
+        return direction ^ 1;
+    }
+    
+    private static int distance(int tile, int width, int xEnd, int yEnd) {
+        return Math.abs(tile % width - xEnd) + Math.abs(tile / width - yEnd);
+    }
+    
+    private static long[] newBits(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+    
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+    
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+    
+    private static long[] newDirections(int size) {
+        return new long[(size + 31) >>> 5];
+    }
+    
+    private static int getDirection(long[] directions, int index) {
+        return (int) (directions[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+    
+    private static void setDirection(long[] directions, int index,
+            int direction) {
+        int shift = (index & 31) << 1;
+        directions[index >>> 5] = directions[index >>> 5] & ~(3L << shift)
+                | (long) direction << shift;
+    }
+}
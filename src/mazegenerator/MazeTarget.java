@@ -0,0 +1,165 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The band of difficulty a maze search is looking for: a range of solution
+ * lengths, of dead end counts and of branching factors, as MazeAnalysis
+ * measures them. A range that has not been set lets every maze through.
+ * @author Julian
+ */
+public class MazeTarget {
+
+    int minSolutionLength = 0;
+    int maxSolutionLength = Integer.MAX_VALUE;
+    long minDeadEnds = 0;
+    long maxDeadEnds = Long.MAX_VALUE;
+    double minBranchingFactor = 0;
+    double maxBranchingFactor = Double.MAX_VALUE;
+    private boolean solutionLengthSet;
+    private boolean deadEndsSet;
+    private boolean branchingFactorSet;
+
+
+    /***************************************************************************
+     * Sets the range of solution lengths to look for
+     * @param min The shortest solution in tiles, including the start and end
+     * @param max The longest solution in tiles
+     */
+    public void setSolutionLength(int min, int max) {
+        checkRange(min, max);
+        minSolutionLength = min;
+        maxSolutionLength = max;
+        solutionLengthSet = true;
+    }
+
+    /***************************************************************************
+     * Sets the range of dead end counts to look for
+     * @param min The fewest dead ends
+     * @param max The most dead ends
+     */
+    public void setDeadEnds(long min, long max) {
+        checkRange(min, max);
+        minDeadEnds = min;
+        maxDeadEnds = max;
+        deadEndsSet = true;
+    }
+
+    /***************************************************************************
+     * Sets the range of branching factors to look for
+     * @param min The lowest average number of ways onward from a junction
+     * @param max The highest average number of ways onward from a junction
+     */
+    public void setBranchingFactor(double min, double max) {
+        checkRange(min, max);
+        minBranchingFactor = min;
+        maxBranchingFactor = max;
+        branchingFactorSet = true;
+    }
+
+    private static void checkRange(double min, double max) {
+        if (!(min >= 0 && min <= max)) {
+            throw new IllegalArgumentException("Bad range: " + min + " to "
+                    + max);
+        }
+    }
+
+    /***************************************************************************
+     * Determines if a maze's measurements fall within every range
+     * @param solutionLength The solution length, or -1 if there is none
+     * @param deadEnds The number of dead ends
+     * @param branchingFactor The branching factor
+     * @return True if the maze is on target, otherwise false
+     */
+    public boolean matches(int solutionLength, long deadEnds,
+            double branchingFactor) {
+        return (!solutionLengthSet || (solutionLength >= minSolutionLength
+                    && solutionLength <= maxSolutionLength))
+                && deadEnds >= minDeadEnds && deadEnds <= maxDeadEnds
+                && branchingFactor >= minBranchingFactor
+                && branchingFactor <= maxBranchingFactor;
+    }
+
+    /***************************************************************************
+     * Determines if a maze's analysis falls within every range
+     * @param analysis The analysis of the maze
+     * @return True if the maze is on target, otherwise false
+     */
+    public boolean matches(MazeAnalysis analysis) {
+        return matches(analysis.getSolutionLength(), analysis.getDeadEnds(),
+                analysis.getBranchingFactor());
+    }
+
+    /***************************************************************************
+     * Scores how far a maze that is on target lies from the middle of the
+     * ranges. Each range that has been set adds the distance from its middle
+     * as a fraction of half its width, so a maze in the middle of every range
+     * scores 0 and one on the edge of a single range scores 1.
+     * @param solutionLength The solution length
+     * @param deadEnds The number of dead ends
+     * @param branchingFactor The branching factor
+     * @return the score, lower being closer to the middle
+     */
+    public double score(int solutionLength, long deadEnds,
+            double branchingFactor) {
+        double score = 0;
+        if (solutionLengthSet) {
+            score += offCenter(solutionLength, minSolutionLength,
+                    maxSolutionLength);
+        }
+        if (deadEndsSet) {
+            score += offCenter(deadEnds, minDeadEnds, maxDeadEnds);
+        }
+        if (branchingFactorSet) {
+            score += offCenter(branchingFactor, minBranchingFactor,
+                    maxBranchingFactor);
+        }
+        return score;
+    }
+
+    private static double offCenter(double value, double min, double max) {
+        double halfWidth = (max - min) / 2;
+        return halfWidth == 0 ? 0 : Math.abs(value - min - halfWidth)
+                / halfWidth;
+    }
+
+    /***************************************************************************
+     * Determines if only mazes with a solution can be on target
+     * @return True if a solution length range has been set
+     */
+    public boolean needsSolution() {
+        return solutionLengthSet;
+    }
+
+    /***************************************************************************
+     * Determines if the dead end or branching factor ranges have been set,
+     * which are measured from the degrees of the path tiles
+     * @return True if either range has been set
+     */
+    public boolean needsDegrees() {
+        return deadEndsSet || branchingFactorSet;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (solutionLengthSet) {
+            text.append("solutionLength=").append(minSolutionLength)
+                    .append(':').append(maxSolutionLength);
+        }
+        if (deadEndsSet) {
+            text.append(text.length() > 0 ? " " : "").append("deadEnds=")
+                    .append(minDeadEnds).append(':').append(maxDeadEnds);
+        }
+        if (branchingFactorSet) {
+            text.append(text.length() > 0 ? " " : "")
+                    .append("branchingFactor=").append(minBranchingFactor)
+                    .append(':').append(maxBranchingFactor);
+        }
+        return text.length() > 0 ? text.toString() : "any";
+    }
+}
@@ -7,26 +7,79 @@
 package mazegenerator;
 
 /**
+ * A view of a single tile of a maze. The tile's state lives in the maze's
+ * MazeGrid; reads and writes through this object go straight to the grid.
  * @author Julian
  */
 public class MazeTile {
-    public int xPos;
-    public int yPos;
-    public boolean checkedLeft;
-    public boolean checkedRight;
-    public boolean checkedUp;
-    public boolean checkedDown;
-    
-    public boolean isPath;
-    
-    public MazeTile(int x, int y) {
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int UP = 2;
+    private static final int DOWN = 3;
+
+    public final int xPos;
+    public final int yPos;
+
+    private final MazeGrid grid;
+    private final int index;
+
+    public MazeTile(MazeGrid grid, int x, int y) {
+        this.grid = grid;
         xPos = x;
         yPos = y;
-        checkedLeft = false;
-        checkedRight = false;
-        checkedUp = false;
-        checkedDown = false;
-        
-        isPath = false;
+        index = grid.index(x, y);
+    }
+
+    public boolean isPath() {
+        return grid.isPath(index);
+    }
+
+    public void setPath(boolean isPath) {
+        grid.setPath(index, isPath);
+    }
+
+    public boolean isCheckedLeft() {
+        return isChecked(LEFT);
+    }
+
+    public boolean isCheckedRight() {
+        return isChecked(RIGHT);
+    }
+
+    public boolean isCheckedUp() {
+        return isChecked(UP);
+    }
+
+    public boolean isCheckedDown() {
+        return isChecked(DOWN);
+    }
+
+    public void setCheckedLeft(boolean checked) {
+        setChecked(LEFT, checked);
+    }
+
+    public void setCheckedRight(boolean checked) {
+        setChecked(RIGHT, checked);
+    }
+
+    public void setCheckedUp(boolean checked) {
+        setChecked(UP, checked);
+    }
+
+    public void setCheckedDown(boolean checked) {
+        setChecked(DOWN, checked);
+    }
+
+    private boolean isChecked(int direction) {
+        return (grid.getChecked(index) & (1 << direction)) != 0;
+    }
+
+    private void setChecked(int direction, boolean checked) {
+        if (checked) {
+            grid.setChecked(index, direction);
+        } else {
+            grid.clearChecked(index, direction);
+        }
     }
 }
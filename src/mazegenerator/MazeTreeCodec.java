@@ -0,0 +1,424 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+
+/**
+ * Encodes the path tiles of a maze as the spanning tree a traversal from the
+ * start tile finds, instead of as one bit per tile.
+ * <p>
+ * The traversal takes tiles off a stack and looks at their neighbors in a
+ * fixed order. Each neighbor that is inside the maze and not yet decided is
+ * a candidate, and one symbol says whether it is a path; a path is pushed
+ * and explored later. The decoder runs the same traversal, reading the
+ * symbols instead of writing them, so only the symbols are stored. Walls
+ * that no path touches are never asked about, and no tile is asked about
+ * twice.
+ * <p>
+ * Symbols are written either as raw bits or through an adaptive binary
+ * range coder. The coder predicts each symbol from the parity of the
+ * candidate's coordinates, how many paths the tile being explored has led to
+ * so far and how many paths already border the candidate. Algorithms that
+ * carve between cells at odd coordinates make some of those contexts nearly
+ * certain, and in a maze where paths never touch except along the tree, a
+ * candidate that borders another path is almost always a wall and costs
+ * almost nothing.
+ * <p>
+ * Only mazes whose path tiles are all connected to the start can be
+ * encoded; every generation algorithm makes such mazes.
+ * @author Julian
+ */
+public class MazeTreeCodec {
+
+    /**
+     * How the traversal's symbols are stored. Archives refer to a coding by
+     * its code, so the codes must never change.
+     */
+    public enum Coding {
+        /** One bit per candidate tile */
+        RAW(0),
+        /** An adaptive binary range coder */
+        ARITHMETIC(1);
+
+        private final int code;
+
+        Coding(int code) {
+            this.code = code;
+        }
+
+        /***********************************************************************
+         * Returns the code archives refer to this coding by
+         * @return the code of this coding
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /***********************************************************************
+         * Looks up a coding by its code
+         * @param code The code of the coding
+         * @return the coding, or null if no coding has the code
+         */
+        public static Coding fromCode(int code) {
+            for (Coding coding : values()) {
+                if (coding.code == code) {
+                    return coding;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Parity of the candidate's x and y, times children found so far (0, 1,
+    // 2+), times paths bordering the candidate (0, 1, 2+)
+    private static final int CONTEXTS = 36;
+
+    private static final int[] DIRECTION_X = { -1, 1, 0, 0 };
+    private static final int[] DIRECTION_Y = { 0, 0, 1, -1 };
+
+    private MazeTreeCodec() {
+    }
+
+    /***************************************************************************
+     * Encodes the path tiles of a generated maze, starting from its start
+     * tile
+     * @param maze The maze to encode
+     * @param coding How to store the symbols
+     * @return the encoded tree
+     * @throws IllegalArgumentException if some path tile is not connected to
+     * the start tile
+     */
+    public static byte[] encode(Maze maze, Coding coding) {
+        return encode(maze.getGrid(), maze.getStart(), coding);
+    }
+
+    /***************************************************************************
+     * Encodes the path tiles of a grid
+     * @param grid The grid to encode
+     * @param root The index of a path tile to start from
+     * @param coding How to store the symbols
+     * @return the encoded tree
+     * @throws IllegalArgumentException if some path tile is not connected to
+     * the root
+     */
+    public static byte[] encode(MazeGrid grid, int root, Coding coding) {
+        if (root < 0 || root >= grid.size() || !grid.isPath(root)) {
+            throw new IllegalArgumentException("The root must be a path: "
+                    + root);
+        }
+        SymbolEncoder coder = coding == Coding.RAW
+                ? new RawEncoder() : new RangeEncoder();
+        long paths = traverse(grid, root, coder);
+
+        long total = 0;
+        int words = (grid.size() + 63) >>> 6;
+        for (int i = 0; i < words; i++) {
+            total += Long.bitCount(grid.getPathBits(i << 6,
+                    Math.min(64, grid.size() - (i << 6))));
+        }
+        if (total != paths) {
+            throw new IllegalArgumentException((total - paths) + " path"
+                    + " tiles are not connected to the root");
+        }
+        return coder.finish();
+    }
+
+    /***************************************************************************
+     * Decodes a tree into an empty grid of the size it was encoded from
+     * @param data The encoded tree
+     * @param grid The grid to make the paths in, which must be all walls
+     * @param root The index of the tile the encoding started from
+     * @param coding How the symbols were stored
+     */
+    public static void decode(byte[] data, MazeGrid grid, int root,
+            Coding coding) {
+        if (root < 0 || root >= grid.size()) {
+            throw new IllegalArgumentException("Root out of range: " + root);
+        }
+        grid.setPath(root, true);
+        traverse(grid, root, coding == Coding.RAW
+                ? new RawDecoder(data) : new RangeDecoder(data));
+    }
+
+    /***************************************************************************
+     * Runs the traversal both the encoder and the decoder use. When encoding,
+     * the grid holds every path and the coder records whether each candidate
+     * is one; when decoding, the coder supplies that answer and the grid is
+     * filled in as the traversal goes.
+     * @return the number of path tiles reached, including the root
+     */
+    private static long traverse(MazeGrid grid, int root, SymbolCoder coder) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        long[] decided = new long[(grid.size() + 63) >>> 6];
+        IntStack stack = new IntStack();
+
+        decided[root >>> 6] |= 1L << root;
+        stack.push(root);
+        long paths = 1;
+        while (!stack.isEmpty()) {
+            int tile = stack.pop();
+            int x = tile % width;
+            int y = tile / width;
+            int children = 0;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DIRECTION_X[d];
+                int ny = y + DIRECTION_Y[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if ((decided[next >>> 6] & (1L << next)) != 0) {
+                    continue;
+                }
+                decided[next >>> 6] |= 1L << next;
+
+                int context = ((nx & 1) << 1 | (ny & 1)) * 9
+                        + Math.min(children, 2) * 3
+                        + Math.min(2, knownPaths(grid, decided, nx, ny, tile));
+                boolean path = coder.code(context, grid.isPath(next));
+                if (path) {
+                    grid.setPath(next, true);
+                    stack.push(next);
+                    children++;
+                    paths++;
+                }
+            }
+        }
+        return paths;
+    }
+
+    /***************************************************************************
+     * Counts the decided paths next to a tile, other than the tile it is
+     * reached from. Both sides of the codec know exactly these tiles.
+     */
+    private static int knownPaths(MazeGrid grid, long[] decided, int x, int y,
+            int from) {
+        int count = 0;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DIRECTION_X[d];
+            int ny = y + DIRECTION_Y[d];
+            if (nx < 0 || ny < 0 || nx >= grid.getWidth()
+                    || ny >= grid.getHeight()) {
+                continue;
+            }
+            int index = grid.index(nx, ny);
+            if (index != from && (decided[index >>> 6] & (1L << index)) != 0
+                    && grid.isPath(index)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Writes or reads one symbol of the traversal.
+     */
+    private interface SymbolCoder {
+
+        /**
+         * Codes whether a candidate is a path. An encoder stores the answer
+         * and returns it; a decoder ignores it and returns the stored one.
+         */
+        boolean code(int context, boolean path);
+    }
+
+    /**
+     * A SymbolCoder that stores the symbols it is given.
+     */
+    private interface SymbolEncoder extends SymbolCoder {
+
+        /**
+         * Returns everything written.
+         */
+        byte[] finish();
+    }
+
+    /**
+     * A growable array of bytes.
+     */
+    private static class ByteSink {
+        byte[] bytes = new byte[256];
+        int size;
+
+        void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size << 1);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    /**
+     * Stores symbols as bits, most significant bit first.
+     */
+    private static class RawEncoder implements SymbolEncoder {
+        private final ByteSink out = new ByteSink();
+        private int current;
+        private int count;
+
+        @Override
+        public boolean code(int context, boolean path) {
+            current = (current << 1) | (path ? 1 : 0);
+            if (++count == 8) {
+                out.write(current);
+                current = 0;
+                count = 0;
+            }
+            return path;
+        }
+
+        @Override
+        public byte[] finish() {
+            if (count > 0) {
+                out.write(current << (8 - count));
+            }
+            return out.toArray();
+        }
+    }
+
+    /**
+     * Reads symbols stored by RawEncoder.
+     */
+    private static class RawDecoder implements SymbolCoder {
+        private final byte[] data;
+        private long position;
+
+        RawDecoder(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public boolean code(int context, boolean path) {
+            int index = (int) (position >>> 3);
+            int shift = 7 - (int) (position & 7);
+            position++;
+            return index < data.length && ((data[index] >> shift) & 1) != 0;
+        }
+    }
+
+    // Range coder probabilities are out of 2^11 and adapt by 1/32
+    private static final int PROBABILITY_BITS = 11;
+    private static final int ADAPT_SHIFT = 5;
+    private static final int TOP = 1 << 24;
+
+    /**
+     * An adaptive binary range encoder with one probability per context, in
+     * the style of LZMA's.
+     */
+    private static class RangeEncoder implements SymbolEncoder {
+        private final ByteSink out = new ByteSink();
+        private final int[] probabilities = initialProbabilities();
+        private long low;
+        private int range = -1;
+        private int cache;
+        private long cacheSize = 1;
+
+        @Override
+        public boolean code(int context, boolean path) {
+            int probability = probabilities[context];
+            int bound = (range >>> PROBABILITY_BITS) * probability;
+            if (!path) {
+                range = bound;
+                probabilities[context] = probability
+                        + (((1 << PROBABILITY_BITS) - probability)
+                        >>> ADAPT_SHIFT);
+            } else {
+                low += bound & 0xFFFFFFFFL;
+                range -= bound;
+                probabilities[context] = probability
+                        - (probability >>> ADAPT_SHIFT);
+            }
+            while (Integer.compareUnsigned(range, TOP) < 0) {
+                range <<= 8;
+                shiftLow();
+            }
+            return path;
+        }
+
+        private void shiftLow() {
+            int high = (int) (low >>> 32);
+            if (high != 0 || low < 0xFF000000L) {
+                int temp = cache;
+                do {
+                    out.write(temp + high);
+                    temp = 0xFF;
+                } while (--cacheSize != 0);
+                cache = (int) (low >>> 24) & 0xFF;
+            }
+            cacheSize++;
+            low = (low & 0x00FFFFFFL) << 8;
+        }
+
+        @Override
+        public byte[] finish() {
+            for (int i = 0; i < 5; i++) {
+                shiftLow();
+            }
+            return out.toArray();
+        }
+    }
+
+    /**
+     * Reads symbols stored by RangeEncoder.
+     */
+    private static class RangeDecoder implements SymbolCoder {
+        private final byte[] data;
+        private final int[] probabilities = initialProbabilities();
+        private int position;
+        private int range = -1;
+        private int code;
+
+        RangeDecoder(byte[] data) {
+            this.data = data;
+            for (int i = 0; i < 5; i++) {
+                code = (code << 8) | next();
+            }
+        }
+
+        private int next() {
+            return position < data.length ? data[position++] & 0xFF : 0;
+        }
+
+        @Override
+        public boolean code(int context, boolean path) {
+            int probability = probabilities[context];
+            int bound = (range >>> PROBABILITY_BITS) * probability;
+            boolean decoded;
+            if (Integer.compareUnsigned(code, bound) < 0) {
+                range = bound;
+                probabilities[context] = probability
+                        + (((1 << PROBABILITY_BITS) - probability)
+                        >>> ADAPT_SHIFT);
+                decoded = false;
+            } else {
+                code -= bound;
+                range -= bound;
+                probabilities[context] = probability
+                        - (probability >>> ADAPT_SHIFT);
+                decoded = true;
+            }
+            while (Integer.compareUnsigned(range, TOP) < 0) {
+                range <<= 8;
+                code = (code << 8) | next();
+            }
+            return decoded;
+        }
+    }
+
+    private static int[] initialProbabilities() {
+        int[] probabilities = new int[CONTEXTS];
+        Arrays.fill(probabilities, 1 << (PROBABILITY_BITS - 1));
+        return probabilities;
+    }
+}
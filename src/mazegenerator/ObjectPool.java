@@ -0,0 +1,102 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable objects shared by threads. Objects are created
+ * on demand until the pool has made its capacity of them; after that, a
+ * thread asking for one waits until another thread gives one back. Besides
+ * saving the allocations, the bound caps how many objects can be in use at
+ * once, and so how much memory they hold.
+ * @author Julian
+ */
+class ObjectPool<T> {
+
+    private final int capacity;
+    private final Supplier<T> factory;
+    private final ArrayDeque<T> idle;
+    private int created;
+
+
+    /***************************************************************************
+     * Creates an empty pool
+     * @param capacity The most objects the pool will ever create
+     * @param factory Creates a new object when none is idle
+     */
+    public ObjectPool(int capacity, Supplier<T> factory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: "
+                    + capacity);
+        }
+        this.capacity = capacity;
+        this.factory = factory;
+        idle = new ArrayDeque<>(capacity);
+    }
+
+    /***************************************************************************
+     * Takes an idle object, creates one if there is none and the pool is not
+     * full, or otherwise waits for one to be given back
+     * @return an object that is the caller's until it gives it back
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        synchronized (idle) {
+            while (idle.isEmpty() && created == capacity) {
+                idle.wait();
+            }
+            if (!idle.isEmpty()) {
+                return idle.pop();
+            }
+            created++;
+        }
+        boolean made = false;
+        try {
+            T object = factory.get();
+            made = true;
+            return object;
+        } finally {
+            if (!made) {
+                synchronized (idle) {
+                    created--;
+                    idle.notify();
+                }
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Gives back an object taken from the pool, for another thread to use
+     * @param object The object, which the caller must no longer use
+     */
+    public void give(T object) {
+        synchronized (idle) {
+            idle.push(object);
+            idle.notify();
+        }
+    }
+
+    /***************************************************************************
+     * Returns the number of objects the pool has created
+     * @return the number of objects created, at most the capacity
+     */
+    public int getCreated() {
+        synchronized (idle) {
+            return created;
+        }
+    }
+
+    /***************************************************************************
+     * Returns the most objects the pool will create
+     * @return the capacity of the pool
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
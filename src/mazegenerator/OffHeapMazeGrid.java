@@ -0,0 +1,319 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The path bits of a grid of tiles kept outside the Java heap, indexed by
+ * long so a grid may have far more than 2^31 tiles. The bits have the same
+ * layout as MazeGrid's, one bit per tile and 64 tiles per little-endian
+ * long in row-major order, split over buffers of at most a gigabyte each.
+ * <p>
+ * The buffers are either direct buffers, which count against the JVM's
+ * direct memory limit, or mappings of a temporary file, which only the
+ * file system limits and which the operating system pages to disk as
+ * needed. Neither adds to the work of the garbage collector. The file is
+ * deleted when the grid is closed.
+ * @author Julian
+ */
+public class OffHeapMazeGrid implements PathGrid, Closeable {
+
+    // Words per buffer, 2^27 longs or 1 GB
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final VarHandle WORDS = MethodHandles
+            .byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int width;
+    private final int height;
+    private final long size;
+    private final ByteBuffer[] segments;
+    private final FileChannel channel;
+
+
+    /***************************************************************************
+     * Creates a grid of walls in direct memory
+     * @param width The width of the grid in tiles
+     * @param height The height of the grid in tiles
+     */
+    public OffHeapMazeGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        size = checkSize(width, height);
+        channel = null;
+
+        long words = (size + 63) >>> 6;
+        segments = new ByteBuffer[(int) ((words + SEGMENT_MASK)
+                >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentBytes(words, i));
+        }
+    }
+
+    /***************************************************************************
+     * Creates a grid of walls in a temporary file mapped into memory
+     * @param width The width of the grid in tiles
+     * @param height The height of the grid in tiles
+     * @param directory The directory to create the file in
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public OffHeapMazeGrid(int width, int height, File directory)
+            throws IOException {
+        this.width = width;
+        this.height = height;
+        size = checkSize(width, height);
+
+        long words = (size + 63) >>> 6;
+        Path file = Files.createTempFile(directory.toPath(), "maze", ".grid");
+        channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            segments = new ByteBuffer[(int) ((words + SEGMENT_MASK)
+                    >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) i << (SEGMENT_SHIFT + 3),
+                        segmentBytes(words, i));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long checkSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Maze dimensions must be"
+                    + " positive: " + width + "x" + height);
+        }
+        return (long) width * height;
+    }
+
+    private static int segmentBytes(long words, int segment) {
+        return (int) (Math.min(words - ((long) segment << SEGMENT_SHIFT),
+                1L << SEGMENT_SHIFT) << 3);
+    }
+
+    /***************************************************************************
+     * Returns the index of a tile
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return the row-major index of the tile
+     */
+    public long index(int x, int y) {
+        return (long) y * width + x;
+    }
+
+    /***************************************************************************
+     * Returns the x value of a tile
+     * @param index The row-major index of the tile
+     * @return the column of the tile
+     */
+    public int xOf(long index) {
+        return (int) (index % width);
+    }
+
+    /***************************************************************************
+     * Returns the y value of a tile
+     * @param index The row-major index of the tile
+     * @return the row of the tile
+     */
+    public int yOf(long index) {
+        return (int) (index / width);
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param index The row-major index of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    public boolean isPath(long index) {
+        return (getWord(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /***************************************************************************
+     * Determines if a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @return True if the tile is a path, otherwise false
+     */
+    @Override
+    public boolean isPath(int x, int y) {
+        return isPath(index(x, y));
+    }
+
+    /***************************************************************************
+     * Sets whether a tile is a path. Unlike orPathBits, this is not safe to
+     * call from several threads on tiles that share a word.
+     * @param index The row-major index of the tile
+     * @param isPath True to make the tile a path, false to make it a wall
+     */
+    public void setPath(long index, boolean isPath) {
+        long word = index >>> 6;
+        long bits = getWord(word);
+        setWord(word, isPath ? bits | (1L << index) : bits & ~(1L << index));
+    }
+
+    /***************************************************************************
+     * Sets whether a tile is a path
+     * @param x The x value of the tile
+     * @param y The y value of the tile
+     * @param isPath True to make the tile a path, false to make it a wall
+     */
+    @Override
+    public void setPath(int x, int y, boolean isPath) {
+        setPath(index(x, y), isPath);
+    }
+
+    /***************************************************************************
+     * Returns the path bits of up to 64 consecutive tiles
+     * @param index The row-major index of the first tile
+     * @param count The number of tiles (1 to 64)
+     * @return a mask with bit n set if tile index + n is a path
+     */
+    public long getPathBits(long index, int count) {
+        long word = index >>> 6;
+        int offset = (int) (index & 63);
+        long bits = getWord(word) >>> offset;
+        if (offset + count > 64) {
+            bits |= getWord(word + 1) << (64 - offset);
+        }
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /***************************************************************************
+     * Copies the path bits of a row of tiles
+     * @param y The y value of the row
+     * @param row Receives bit x of the row (bit x % 64 of row[x / 64]) set if
+     * tile x is a path; must hold at least width bits
+     */
+    @Override
+    public void copyRow(int y, long[] row) {
+        long index = index(0, y);
+        for (int x = 0; x < width; x += 64) {
+            row[x >>> 6] = getPathBits(index + x, Math.min(64, width - x));
+        }
+    }
+
+    /***************************************************************************
+     * Makes paths of up to 64 consecutive tiles. Each word is updated
+     * atomically, so threads may call this on disjoint tiles at the same time
+     * even when their tiles share a word.
+     * @param index The row-major index of the first tile
+     * @param bits A mask with bit n set if tile index + n becomes a path
+     * @param count The number of tiles (1 to 64)
+     */
+    public void orPathBits(long index, long bits, int count) {
+        if (bits == 0) {
+            return;
+        }
+        long word = index >>> 6;
+        int offset = (int) (index & 63);
+        orWord(word, bits << offset);
+        if (offset != 0 && offset + count > 64) {
+            orWord(word + 1, bits >>> (64 - offset));
+        }
+    }
+
+    /***************************************************************************
+     * Makes paths of up to 64 consecutive tiles of a row. See
+     * orPathBits(long, long, int).
+     * @param x The x value of the first tile
+     * @param y The y value of the row
+     * @param bits A mask with bit n set if tile x + n becomes a path
+     * @param count The number of tiles (1 to 64)
+     */
+    @Override
+    public void orPathBits(int x, int y, long bits, int count) {
+        orPathBits(index(x, y), bits, count);
+    }
+
+    /***************************************************************************
+     * Makes every tile a wall
+     */
+    public void clear() {
+        for (ByteBuffer segment : segments) {
+            for (int i = 0; i < segment.capacity(); i += Long.BYTES) {
+                WORDS.set(segment, i, 0L);
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Returns the width of the grid
+     * @return the width of the grid in tiles
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /***************************************************************************
+     * Returns the height of the grid
+     * @return the height of the grid in tiles
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /***************************************************************************
+     * Returns the number of tiles in the grid
+     * @return width * height
+     */
+    public long size() {
+        return size;
+    }
+
+    /***************************************************************************
+     * Returns whether the grid is held in a mapped file
+     * @return True if the grid is mapped, false if it is in direct memory
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    /***************************************************************************
+     * Closes and deletes the file behind a mapped grid. The memory itself is
+     * released once the grid is no longer reachable; the grid must not be
+     * used after it is closed.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private long getWord(long word) {
+        return (long) WORDS.get(segments[(int) (word >>> SEGMENT_SHIFT)],
+                (int) (word & SEGMENT_MASK) << 3);
+    }
+
+    private void setWord(long word, long bits) {
+        WORDS.set(segments[(int) (word >>> SEGMENT_SHIFT)],
+                (int) (word & SEGMENT_MASK) << 3, bits);
+    }
+
+    private void orWord(long word, long bits) {
+        WORDS.getAndBitwiseOr(segments[(int) (word >>> SEGMENT_SHIFT)],
+                (int) (word & SEGMENT_MASK) << 3, bits);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Carves a maze as a grid of regions on a ForkJoinPool. The edge of the maze
+ * is split into rows and columns of regions separated by single wall lines.
+ * Each region is carved as a small maze of its own, with its own generator
+ * seeded from the maze's generator and the region's index, into a private
+ * grid that is then copied into the maze. Once every region is carved, the
+ * regions are joined by opening one wall tile between a random spanning tree
+ * of neighboring region pairs.
+ * <p>
+ * An opened tile always has path tiles on both sides and wall tiles along
+ * the wall line, so the joined maze keeps one tile wide corridors, and since
+ * the regions are joined as a tree the maze stays free of loops.
+ * @author Julian
+ */
+class ParallelMazeCarver {
+
+    public static final int MIN_REGION_SIZE = 8;
+
+    // Regions carved by one task before it stops splitting
+    private static final int REGIONS_PER_TASK = 1;
+
+    private final PathGrid grid;
+    private final MazeRandom rand;
+    private final GenerationMetrics counts;
+
+    // Counters of each region, added to counts in region order
+    private GenerationMetrics[] regionCounts;
+
+    // Inclusive tile bounds of each column and row of regions
+    private final int[] columnStart;
+    private final int[] columnEnd;
+    private final int[] rowStart;
+    private final int[] rowEnd;
+
+    private long baseSeed;
+
+
+    public ParallelMazeCarver(PathGrid grid, MazeRandom rand, int regionSize,
+            GenerationMetrics counts) {
+        this.grid = grid;
+        this.rand = rand;
+        this.counts = counts;
+
+        int columns = Math.max(1, (grid.getWidth() - 1) / regionSize);
+        int rows = Math.max(1, (grid.getHeight() - 1) / regionSize);
+        columnStart = new int[columns];
+        columnEnd = new int[columns];
+        rowStart = new int[rows];
+        rowEnd = new int[rows];
+        split(grid.getWidth(), columnStart, columnEnd);
+        split(grid.getHeight(), rowStart, rowEnd);
+    }
+
+    /***************************************************************************
+     * Splits the inside of one dimension of the maze evenly into regions with
+     * a wall line between each pair.
+     * @param length The width or height of the maze
+     * @param start Receives the first tile of each region
+     * @param end Receives the last tile of each region
+     */
+    private static void split(int length, int[] start, int[] end) {
+        int regions = start.length;
+        int tiles = (length - 2) - (regions - 1);
+        for (int i = 0; i < regions; i++) {
+            start[i] = 1 + i + (int) ((long) tiles * i / regions);
+            end[i] = i + (int) ((long) tiles * (i + 1) / regions);
+        }
+    }
+
+    /***************************************************************************
+     * Carves every region and joins them.
+     * @param pool The pool to carve regions on
+     * @return True if every region could be joined, otherwise false
+     */
+    public boolean carve(ForkJoinPool pool) {
+        baseSeed = rand.nextLong();
+        counts.randomDraws++;
+        int regions = columnStart.length * rowStart.length;
+        regionCounts = new GenerationMetrics[regions];
+        pool.invoke(new RegionTask(0, regions));
+        for (GenerationMetrics region : regionCounts) {
+            counts.add(region);
+        }
+        regionCounts = null;
+        return join();
+    }
+
+    /***************************************************************************
+     * Carves one region into a grid of its own, framed by walls, and copies
+     * its tiles into the maze.
+     * @param region The index of the region, row by row
+     */
+    private void carveRegion(int region) {
+        int column = region % columnStart.length;
+        int row = region / columnStart.length;
+        int x0 = columnStart[column];
+        int y0 = rowStart[row];
+        int width = columnEnd[column] - x0 + 1;
+        int height = rowEnd[row] - y0 + 1;
+
+        MazeRandom regionRand = rand.withSeed(Xoshiro256MazeRandom.splitMix64(
+                baseSeed + (region + 1) * 0x9E3779B97F4A7C15L));
+        MazeGrid local = new MazeGrid(width + 2, height + 2);
+        GenerationMetrics localCounts = new GenerationMetrics();
+        localCounts.randomDraws = 2;
+        Maze.carve(local, regionRand, new IntStack(),
+                regionRand.nextInt(width) + 1, regionRand.nextInt(height) + 1,
+                localCounts, GenerationMonitor.NONE);
+        regionCounts[region] = localCounts;
+
+        for (int y = 0; y < height; y++) {
+            int from = local.index(1, y + 1);
+            for (int x = 0; x < width; x += 64) {
+                int count = Math.min(64, width - x);
+                grid.orPathBits(x0 + x, y0 + y,
+                        local.getPathBits(from + x, count), count);
+            }
+        }
+    }
+
+    /***************************************************************************
+     * Joins regions by a random spanning tree of the wall lines between them,
+     * using Kruskal's algorithm over shuffled region pairs.
+     * @return True if all regions were joined, otherwise false
+     */
+    private boolean join() {
+        int columns = columnStart.length;
+        int regions = columns * rowStart.length;
+
+        // Pair 2 * r joins region r to its right, 2 * r + 1 to the one below
+        int[] pairs = new int[regions * 2];
+        int pairCount = 0;
+        for (int r = 0; r < regions; r++) {
+            if (r % columns < columns - 1) {
+                pairs[pairCount++] = r * 2;
+            }
+            if (r / columns < rowStart.length - 1) {
+                pairs[pairCount++] = r * 2 + 1;
+            }
+        }
+        for (int i = pairCount - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            counts.randomDraws++;
+            int swap = pairs[i];
+            pairs[i] = pairs[j];
+            pairs[j] = swap;
+        }
+
+        int[] parent = new int[regions];
+        for (int r = 0; r < regions; r++) {
+            parent[r] = r;
+        }
+
+        int joined = 1;
+        for (int i = 0; i < pairCount && joined < regions; i++) {
+            int region = pairs[i] >> 1;
+            boolean below = (pairs[i] & 1) != 0;
+            int other = below ? region + columns : region + 1;
+            int a = find(parent, region);
+            int b = find(parent, other);
+            if (a != b && openWall(region, below)) {
+                parent[a] = b;
+                joined++;
+            }
+        }
+        return joined == regions;
+    }
+
+    /***************************************************************************
+     * Opens a random wall tile between a region and its neighbor that has a
+     * path tile on both sides.
+     * @param region The index of the region
+     * @param below True to open towards the region below, false for the right
+     * @return True if a tile was opened, false if no tile can be
+     */
+    private boolean openWall(int region, boolean below) {
+        int column = region % columnStart.length;
+        int row = region / columnStart.length;
+
+        // The wall line runs from first to last along one axis at a fixed
+        // position on the other; the tiles across it are at +/- 1
+        int first;
+        int last;
+        int wall;
+        if (below) {
+            wall = rowEnd[row] + 1;
+            first = columnStart[column];
+            last = columnEnd[column];
+        } else {
+            wall = columnEnd[column] + 1;
+            first = rowStart[row];
+            last = rowEnd[row];
+        }
+
+        int candidates = 0;
+        for (int along = first; along <= last; along++) {
+            if (canOpen(below, along, wall)) {
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            return false;
+        }
+
+        int chosen = rand.nextInt(candidates);
+        counts.randomDraws++;
+        counts.cellsCarved++;
+        for (int along = first; along <= last; along++) {
+            if (canOpen(below, along, wall) && chosen-- == 0) {
+                if (below) {
+                    grid.setPath(along, wall, true);
+                } else {
+                    grid.setPath(wall, along, true);
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    /***************************************************************************
+     * Checks whether a tile of a wall line has a path tile on both sides
+     * @param below True if the wall line is horizontal, false if vertical
+     * @param along The position of the tile along the wall line
+     * @param wall The position of the wall line
+     * @return True if opening the tile would join the two sides
+     */
+    private boolean canOpen(boolean below, int along, int wall) {
+        if (below) {
+            return grid.isPath(along, wall - 1) && grid.isPath(along, wall + 1);
+        }
+        return grid.isPath(wall - 1, along) && grid.isPath(wall + 1, along);
+    }
+
+    private static int find(int[] parent, int region) {
+        while (parent[region] != region) {
+            parent[region] = parent[parent[region]];
+            region = parent[region];
+        }
+        return region;
+    }
+
+
+    /**
+     * Carves a range of regions, splitting it in half until it is small.
+     */
+    private class RegionTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        RegionTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= REGIONS_PER_TASK) {
+                for (int region = from; region < to; region++) {
+                    carveRegion(region);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RegionTask(from, middle),
+                        new RegionTask(middle, to));
+            }
+        }
+    }
+}
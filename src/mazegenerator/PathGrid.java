@@ -0,0 +1,52 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The path bits of a grid of tiles, addressed by x and y so that grids too
+ * large for an int index can be carved the same way as MazeGrid.
+ * @author Julian
+ */
+interface PathGrid {
+
+    /**
+     * Returns the width of the grid in tiles.
+     */
+    int getWidth();
+
+    /**
+     * Returns the height of the grid in tiles.
+     */
+    int getHeight();
+
+    /**
+     * Determines if a tile is a path.
+     */
+    boolean isPath(int x, int y);
+
+    /**
+     * Sets whether a tile is a path.
+     */
+    void setPath(int x, int y, boolean isPath);
+
+    /**
+     * Makes paths of up to 64 consecutive tiles of a row. Each word is
+     * updated atomically, so threads may call this on disjoint tiles at the
+     * same time even when their tiles share a word.
+     * @param x The x value of the first tile
+     * @param y The y value of the row
+     * @param bits A mask with bit n set if tile x + n becomes a path
+     * @param count The number of tiles (1 to 64)
+     */
+    void orPathBits(int x, int y, long bits, int count);
+
+    /**
+     * Copies the path bits of a row of tiles, bit x % 64 of row[x / 64] for
+     * tile x.
+     */
+    void copyRow(int y, long[] row);
+}
@@ -0,0 +1,357 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a maze as a 1-bit grayscale PNG, one tile row at a time. Each tile
+ * row is expanded into a single scanline which is compressed mazeTileSize
+ * times, so memory use depends only on the maze width, never on its height.
+ * Path tiles are white and walls are black. When a solution is given, the
+ * image is written with a three color palette instead and the solution is
+ * drawn in red. When a distance field is given, the image is written as a
+ * heat map with one palette byte per pixel, path tiles colored from blue
+ * near the source to red far from it and any solution drawn in white.
+ * @author Julian
+ */
+public class PngMazeWriter implements MazeRowConsumer, Closeable {
+
+    private static final byte[] SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+
+    // Black walls, white paths and a red solution
+    private static final byte[] PALETTE = {
+        0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0
+    };
+
+    // Size of the compressed data held back before writing an IDAT chunk
+    private static final int IDAT_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final int mazeTileSize;
+    private final MazeSolution solution;
+    private final MazeDistanceField distances;
+
+    // Filter type byte followed by the packed pixels of one scanline
+    private final byte[] scanline;
+    
+    // Overlay bits of the current row when there is a solution
+    private final long[] overlay;
+
+    // Distances of the current row's tiles in a heat map
+    private final int[] distanceRow;
+
+    private final DeflaterOutputStream pixels;
+
+    private int nextRow;
+    private boolean closed;
+
+
+    public PngMazeWriter(OutputStream out, int mazeWidth, int mazeHeight,
+            int mazeTileSize) throws IOException {
+        this(out, mazeWidth, mazeHeight, mazeTileSize, null);
+    }
+    
+    public PngMazeWriter(OutputStream out, int mazeWidth, int mazeHeight,
+            int mazeTileSize, MazeSolution solution) throws IOException {
+        this(out, mazeWidth, mazeHeight, mazeTileSize, solution, null);
+    }
+
+    public PngMazeWriter(OutputStream out, int mazeWidth, int mazeHeight,
+            int mazeTileSize, MazeSolution solution,
+            MazeDistanceField distances) throws IOException {
+        this(out, mazeWidth, mazeHeight, mazeTileSize, solution, distances,
+                null);
+    }
+
+    /***************************************************************************
+     * Creates a writer that compresses with the caller's Deflater, which is
+     * reset first and left open, so one Deflater can write many images
+     * @param deflater The Deflater to compress with, or null for a new one
+     */
+    PngMazeWriter(OutputStream out, int mazeWidth, int mazeHeight,
+            int mazeTileSize, MazeSolution solution,
+            MazeDistanceField distances, Deflater deflater)
+            throws IOException {
+        long imageWidth = (long) mazeWidth * mazeTileSize;
+        long imageHeight = (long) mazeHeight * mazeTileSize;
+        if (mazeWidth <= 0 || mazeHeight <= 0 || mazeTileSize <= 0
+                || imageWidth > Integer.MAX_VALUE
+                || imageHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported image size: "
+                    + imageWidth + "x" + imageHeight);
+        }
+        if (solution != null && (solution.getMazeWidth() != mazeWidth
+                || solution.getMazeHeight() != mazeHeight)) {
+            throw new IllegalArgumentException("The solution is for a "
+                    + solution.getMazeWidth() + "x"
+                    + solution.getMazeHeight() + " maze");
+        }
+        if (distances != null && (distances.getMazeWidth() != mazeWidth
+                || distances.getMazeHeight() != mazeHeight)) {
+            throw new IllegalArgumentException("The distances are for a "
+                    + distances.getMazeWidth() + "x"
+                    + distances.getMazeHeight() + " maze");
+        }
+        this.out = out;
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.mazeTileSize = mazeTileSize;
+        this.solution = solution;
+        this.distances = distances;
+
+        int bitDepth = distances != null ? 8 : solution == null ? 1 : 2;
+        boolean indexed = distances != null || solution != null;
+        scanline = new byte[1 + (int) ((imageWidth * bitDepth + 7) >>> 3)];
+        overlay = solution == null ? null : new long[(mazeWidth + 63) >>> 6];
+        distanceRow = distances == null ? null : new int[mazeWidth];
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, (int) imageWidth);
+        putInt(header, 4, (int) imageHeight);
+        header[8] = (byte) bitDepth;
+        header[9] = (byte) (indexed ? 3 : 0); // palette or grayscale
+        header[10] = 0; // deflate
+        header[11] = 0; // adaptive filtering
+        header[12] = 0; // not interlaced
+        writeChunk("IHDR", header, header.length);
+        if (distances != null) {
+            byte[] palette = heatPalette();
+            writeChunk("PLTE", palette, palette.length);
+        } else if (solution != null) {
+            writeChunk("PLTE", PALETTE, PALETTE.length);
+        }
+
+        if (deflater == null) {
+            pixels = new DeflaterOutputStream(new ChunkOutputStream());
+        } else {
+            deflater.reset();
+            pixels = new DeflaterOutputStream(new ChunkOutputStream(),
+                    deflater);
+        }
+    }
+
+    /***************************************************************************
+     * Writes a whole maze as a PNG and closes the stream
+     * @param maze The maze to write
+     * @param out The stream to write to
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Maze maze, OutputStream out) throws IOException {
+        write(maze, out, null);
+    }
+    
+    /***************************************************************************
+     * Writes a whole maze as a PNG with its solution drawn over it, and
+     * closes the stream
+     * @param maze The maze to write
+     * @param out The stream to write to
+     * @param solution The solution to draw, or null to draw only the maze
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Maze maze, OutputStream out,
+            MazeSolution solution) throws IOException {
+        write(maze, out, solution, null);
+    }
+
+    /***************************************************************************
+     * Writes a whole maze as a PNG heat map of distances, with its solution
+     * drawn over it, and closes the stream
+     * @param maze The maze to write
+     * @param out The stream to write to
+     * @param solution The solution to draw, or null for none
+     * @param distances The distances to color path tiles by, or null to draw
+     * only the maze
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Maze maze, OutputStream out,
+            MazeSolution solution, MazeDistanceField distances)
+            throws IOException {
+        try (PngMazeWriter png = new PngMazeWriter(out, maze.getMazeWidth(),
+                maze.getMazeHeight(), maze.mazeTileSize, solution,
+                distances)) {
+            maze.writeRows(png);
+        }
+    }
+
+    /***************************************************************************
+     * Writes the next tile row of the maze as mazeTileSize scanlines
+     * @param y The y value of the row, which must follow the previous row
+     * @param row The path bits of the row
+     * @throws IOException if the row cannot be written
+     */
+    @Override
+    public void acceptRow(int y, long[] row) throws IOException {
+        if (y != nextRow || y >= mazeHeight) {
+            throw new IllegalStateException("Expected row " + nextRow
+                    + " but got row " + y);
+        }
+        if (distances != null) {
+            expandHeat(y, row);
+        } else if (solution == null) {
+            Scanlines.expand(row, mazeWidth, mazeTileSize, scanline, 1);
+        } else {
+            solution.copyRow(y, overlay);
+            Scanlines.expandIndexed(row, overlay, mazeWidth, mazeTileSize,
+                    scanline, 1);
+        }
+        for (int i = 0; i < mazeTileSize; i++) {
+            pixels.write(scanline);
+        }
+        nextRow++;
+    }
+
+    /***************************************************************************
+     * Finishes the image and closes the underlying stream.
+     * @throws IOException if the image cannot be finished, or if fewer rows
+     * than the maze height were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            pixels.close();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            out.close();
+        }
+        if (nextRow != mazeHeight) {
+            throw new IOException("Only " + nextRow + " of " + mazeHeight
+                    + " rows were written");
+        }
+    }
+
+    /***************************************************************************
+     * Fills the scanline with the heat map colors of a tile row, a byte per
+     * pixel
+     * @param y The y value of the row
+     * @param row The path bits of the row
+     */
+    private void expandHeat(int y, long[] row) {
+        distances.copyRow(y, distanceRow);
+        if (solution != null) {
+            solution.copyRow(y, overlay);
+        }
+        int max = distances.getMaxDistance();
+        for (int x = 0; x < mazeWidth; x++) {
+            int color;
+            if (overlay != null && (overlay[x >>> 6] & (1L << x)) != 0) {
+                color = MazeRenderer.HEAT_SOLUTION;
+            } else {
+                color = MazeRenderer.heatIndex((row[x >>> 6] & (1L << x)) != 0,
+                        distanceRow[x], max);
+            }
+            int from = 1 + x * mazeTileSize;
+            Arrays.fill(scanline, from, from + mazeTileSize, (byte) color);
+        }
+    }
+
+    /***************************************************************************
+     * Returns the heat map palette as PNG palette entries
+     * @return three bytes, red, green and blue, per palette entry
+     */
+    private static byte[] heatPalette() {
+        int size = MazeRenderer.HEAT_COLORS.getMapSize();
+        byte[] red = new byte[size];
+        byte[] green = new byte[size];
+        byte[] blue = new byte[size];
+        MazeRenderer.HEAT_COLORS.getReds(red);
+        MazeRenderer.HEAT_COLORS.getGreens(green);
+        MazeRenderer.HEAT_COLORS.getBlues(blue);
+        byte[] palette = new byte[size * 3];
+        for (int i = 0; i < size; i++) {
+            palette[3 * i] = red[i];
+            palette[3 * i + 1] = green[i];
+            palette[3 * i + 2] = blue[i];
+        }
+        return palette;
+    }
+
+    private void writeChunk(String type, byte[] data, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] number = new byte[4];
+
+        putInt(number, 0, length);
+        out.write(number);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(number, 0, (int) crc.getValue());
+        out.write(number);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+
+    /**
+     * Collects compressed pixel data and writes it out as IDAT chunks.
+     */
+    private class ChunkOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
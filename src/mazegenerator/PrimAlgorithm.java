@@ -0,0 +1,77 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Randomized Prim's algorithm: grows the maze from one cell by repeatedly
+ * taking a random cell from the frontier around it and joining it to a
+ * random neighbor already in the maze. The frontier is an int[] with
+ * swap-removal and a bitset marking its cells, so no objects are created per
+ * cell. The frontier stays near the perimeter of the grown area, far smaller
+ * than a depth first stack.
+ * @author Julian
+ */
+public class PrimAlgorithm extends CellMazeAlgorithm {
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        int cells = columns * rows;
+        int[] frontier = new int[cells];
+        long[] inFrontier = new long[(cells + 63) >>> 6];
+        int[] neighbors = new int[4];
+        int[] inMaze = new int[4];
+        int size = 0;
+        int peak = 0;
+        long draws = 1;
+        
+        int first = rand.nextInt(cells);
+        open(grid, columns, first, progress);
+        int n = neighbors(first, columns, rows, neighbors);
+        for (int i = 0; i < n; i++) {
+            frontier[size++] = neighbors[i];
+            inFrontier[neighbors[i] >>> 6] |= 1L << neighbors[i];
+        }
+        
+        while (size > 0) {
+            peak = Math.max(peak, size);
+            int pick = rand.nextInt(size);
+            int cell = frontier[pick];
+            frontier[pick] = frontier[--size];
+            draws++;
+            
+            n = neighbors(cell, columns, rows, neighbors);
+            int joined = 0;
+            for (int i = 0; i < n; i++) {
+                if (isOpen(grid, columns, neighbors[i])) {
+                    inMaze[joined++] = neighbors[i];
+                }
+            }
+            int target = joined == 1 ? 0 : rand.nextInt(joined);
+            if (joined > 1) {
+                draws++;
+            }
+            join(grid, columns, cell, inMaze[target], progress);
+            
+            for (int i = 0; i < n; i++) {
+                int next = neighbors[i];
+                if ((inFrontier[next >>> 6] & (1L << next)) == 0
+                        && !isOpen(grid, columns, next)) {
+                    inFrontier[next >>> 6] |= 1L << next;
+                    frontier[size++] = next;
+                }
+            }
+        }
+        counts.randomDraws += draws;
+        counts.peakStackDepth = Math.max(counts.peakStackDepth, peak);
+    }
+    
+    @Override
+    public String getName() {
+        return "Prim";
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The random number generators a maze can be generated with. The same seed
+ * gives a different maze under each algorithm.
+ * <p>
+ * Saved mazes refer to their algorithm by its code, so a new algorithm needs
+ * a new code and the codes of the others must never change.
+ * @author Julian
+ */
+public enum RandomAlgorithm {
+    
+    /** java.util.Random, matching mazes from before generators were pluggable */
+    LEGACY(1) {
+        @Override
+        public MazeRandom newRandom(long seed) {
+            return new LegacyMazeRandom(seed);
+        }
+        
+        @Override
+        public MazeRandom newRandom() {
+            return new LegacyMazeRandom();
+        }
+    },
+    
+    /** java.util.SplittableRandom */
+    SPLITTABLE(2) {
+        @Override
+        public MazeRandom newRandom(long seed) {
+            return new SplittableMazeRandom(seed);
+        }
+        
+        @Override
+        public MazeRandom newRandom() {
+            return new SplittableMazeRandom();
+        }
+    },
+    
+    /** xoshiro256** */
+    XOSHIRO256(3) {
+        @Override
+        public MazeRandom newRandom(long seed) {
+            return new Xoshiro256MazeRandom(seed);
+        }
+        
+        @Override
+        public MazeRandom newRandom() {
+            return new Xoshiro256MazeRandom();
+        }
+    };
+    
+    private final int code;
+    
+    RandomAlgorithm(int code) {
+        this.code = code;
+    }
+    
+    /***************************************************************************
+     * Returns the code saved mazes refer to this algorithm by. Codes start at
+     * 1, as 0 is saved for mazes without an algorithm.
+     * @return the code of this algorithm
+     */
+    public int getCode() {
+        return code;
+    }
+    
+    /***************************************************************************
+     * Looks up an algorithm by its code
+     * @param code The code of the algorithm
+     * @return the algorithm, or null if no algorithm has the code
+     */
+    public static RandomAlgorithm fromCode(int code) {
+        for (RandomAlgorithm algorithm : values()) {
+            if (algorithm.code == code) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+    
+    /***************************************************************************
+     * Creates a generator that always produces the same sequence for a seed
+     * @param seed The seed
+     * @return a new generator
+     */
+    public abstract MazeRandom newRandom(long seed);
+    
+    /***************************************************************************
+     * Creates an unseeded generator
+     * @return a new generator
+     */
+    public abstract MazeRandom newRandom();
+}
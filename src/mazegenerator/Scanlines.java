@@ -0,0 +1,226 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.Arrays;
+
+/**
+ * Expands rows of tile bits into packed 1-bit pixel scanlines, most
+ * significant bit first, as used by PNG and by TYPE_BYTE_BINARY images.
+ * Rows with a solution overlay are expanded into 2-bit palette indices.
+ * <p>
+ * Eight tiles of t pixels each always fill exactly t bytes, so for small
+ * tiles a row is expanded eight tiles at a time by looking the eight tile
+ * bits up in a table of their expanded bytes, with no per-pixel work and no
+ * branches on the tile bits. Larger tiles are expanded a run of path tiles
+ * at a time, where each run is long enough to be filled with Arrays.fill.
+ * @author Julian
+ */
+class Scanlines {
+    
+    // Pixels per tile up to which rows are expanded through a table
+    static final int MAX_TABLE_FACTOR = 16;
+    
+    // For each number of pixels per tile, the expanded bytes of every
+    // possible group of eight tile bits
+    private static final byte[][] EXPANSIONS = buildExpansions();
+    
+    private Scanlines() {
+    }
+    
+    /***************************************************************************
+     * Builds the expansion table of each number of pixels per tile
+     * @return the tables, indexed by the number of pixels per tile
+     */
+    private static byte[][] buildExpansions() {
+        byte[][] expansions = new byte[MAX_TABLE_FACTOR + 1][];
+        for (int factor = 1; factor <= MAX_TABLE_FACTOR; factor++) {
+            byte[] table = new byte[256 * factor];
+            for (int bits = 0; bits < 256; bits++) {
+                for (int tile = 0; tile < 8; tile++) {
+                    if ((bits & (1 << tile)) == 0) {
+                        continue;
+                    }
+                    for (int pixel = tile * factor;
+                            pixel < (tile + 1) * factor; pixel++) {
+                        table[bits * factor + (pixel >>> 3)] |=
+                                (byte) (0x80 >>> (pixel & 7));
+                    }
+                }
+            }
+            expansions[factor] = table;
+        }
+        return expansions;
+    }
+    
+    /***************************************************************************
+     * Expands a row of tiles into a scanline, setting the pixels of path
+     * tiles and clearing the rest
+     * @param row The path bits of the row
+     * @param mazeWidth The number of tiles in the row
+     * @param tileSize The width of a tile in pixels
+     * @param line The array holding the scanline
+     * @param offset The index of the first byte of the scanline
+     */
+    static void expand(long[] row, int mazeWidth, int tileSize, byte[] line,
+            int offset) {
+        int length = (int) (((long) mazeWidth * tileSize + 7) >>> 3);
+        if (tileSize > MAX_TABLE_FACTOR) {
+            expandRuns(row, mazeWidth, tileSize, line, offset, length);
+            return;
+        }
+        
+        byte[] table = EXPANSIONS[tileSize];
+        int groups = (mazeWidth + 7) >>> 3;
+        for (int group = 0; group < groups; group++) {
+            int index = groupBits(row, group, mazeWidth) * tileSize;
+            int to = offset + group * tileSize;
+            int count = Math.min(tileSize, length - group * tileSize);
+            for (int i = 0; i < count; i++) {
+                line[to + i] = table[index + i];
+            }
+        }
+    }
+    
+    /***************************************************************************
+     * Expands a row of tiles into a scanline a run of path tiles at a time
+     * @param length The number of bytes in the scanline
+     */
+    private static void expandRuns(long[] row, int mazeWidth, int tileSize,
+            byte[] line, int offset, int length) {
+        Arrays.fill(line, offset, offset + length, (byte) 0);
+        for (int word = 0; word << 6 < mazeWidth; word++) {
+            long bits = wordBits(row, word, mazeWidth);
+            while (bits != 0) {
+                int start = Long.numberOfTrailingZeros(bits);
+                int end = start + Long.numberOfTrailingZeros(~(bits >>> start));
+                fill(line, offset,
+                        ((long) (word << 6) + start) * tileSize,
+                        ((long) (word << 6) + end) * tileSize, 0xFF);
+                bits = end == 64 ? 0 : bits & (-1L << end);
+            }
+        }
+    }
+    
+    /***************************************************************************
+     * Sets a range of bits in a scanline to a repeating pattern
+     * @param line The array holding the scanline
+     * @param offset The index of the first byte of the scanline
+     * @param from The first bit (inclusive)
+     * @param to The last bit (exclusive)
+     * @param pattern The byte whose bits are set wherever the range covers
+     * them
+     */
+    static void fill(byte[] line, int offset, long from, long to,
+            int pattern) {
+        int first = offset + (int) (from >>> 3);
+        int last = offset + (int) ((to - 1) >>> 3);
+        int firstMask = (0xFF >>> (from & 7)) & pattern;
+        int lastMask = (0xFF << (7 - ((to - 1) & 7))) & pattern;
+        if (first == last) {
+            line[first] |= (byte) (firstMask & lastMask);
+        } else {
+            line[first] |= (byte) firstMask;
+            Arrays.fill(line, first + 1, last, (byte) pattern);
+            line[last] |= (byte) lastMask;
+        }
+    }
+    
+    /***************************************************************************
+     * Expands a row of tiles into a scanline of 2-bit palette indices: 0 for
+     * walls, 1 for path tiles and 2 for tiles on the overlay. A palette index
+     * is two pixel bits, so small tiles are expanded through the table of
+     * twice their size: the high bit of each pair comes from the overlay and
+     * the low bit from the paths not on it.
+     * @param row The path bits of the row
+     * @param overlay The overlay bits of the row
+     * @param mazeWidth The number of tiles in the row
+     * @param tileSize The width of a tile in pixels
+     * @param line The array holding the scanline
+     * @param offset The index of the first byte of the scanline
+     */
+    static void expandIndexed(long[] row, long[] overlay, int mazeWidth,
+            int tileSize, byte[] line, int offset) {
+        int factor = 2 * tileSize;
+        int length = (int) (((long) mazeWidth * factor + 7) >>> 3);
+        if (factor > MAX_TABLE_FACTOR) {
+            expandIndexedRuns(row, overlay, mazeWidth, factor, line, offset,
+                    length);
+            return;
+        }
+        
+        byte[] table = EXPANSIONS[factor];
+        int groups = (mazeWidth + 7) >>> 3;
+        for (int group = 0; group < groups; group++) {
+            int high = groupBits(overlay, group, mazeWidth);
+            int low = groupBits(row, group, mazeWidth) & ~high;
+            int highIndex = high * factor;
+            int lowIndex = low * factor;
+            int to = offset + group * factor;
+            int count = Math.min(factor, length - group * factor);
+            for (int i = 0; i < count; i++) {
+                line[to + i] = (byte) ((table[highIndex + i] & 0xAA)
+                        | (table[lowIndex + i] & 0x55));
+            }
+        }
+    }
+    
+    /***************************************************************************
+     * Expands a row of tiles into 2-bit palette indices a run of tiles with
+     * the same index at a time
+     * @param factor The number of bits per tile
+     * @param length The number of bytes in the scanline
+     */
+    private static void expandIndexedRuns(long[] row, long[] overlay,
+            int mazeWidth, int factor, byte[] line, int offset, int length) {
+        Arrays.fill(line, offset, offset + length, (byte) 0);
+        for (int word = 0; word << 6 < mazeWidth; word++) {
+            long high = wordBits(overlay, word, mazeWidth);
+            long low = wordBits(row, word, mazeWidth) & ~high;
+            fillRuns(high, word, factor, 0xAA, line, offset);
+            fillRuns(low, word, factor, 0x55, line, offset);
+        }
+    }
+    
+    /***************************************************************************
+     * Fills the pixels of every run of set tile bits in one word of a row
+     */
+    private static void fillRuns(long bits, int word, int factor, int pattern,
+            byte[] line, int offset) {
+        while (bits != 0) {
+            int start = Long.numberOfTrailingZeros(bits);
+            int end = start + Long.numberOfTrailingZeros(~(bits >>> start));
+            fill(line, offset, ((long) (word << 6) + start) * factor,
+                    ((long) (word << 6) + end) * factor, pattern);
+            bits = end == 64 ? 0 : bits & (-1L << end);
+        }
+    }
+    
+    /***************************************************************************
+     * Returns a word of a row with the bits past the end of the row cleared
+     */
+    private static long wordBits(long[] row, int word, int mazeWidth) {
+        long bits = row[word];
+        if ((word << 6) + 64 > mazeWidth) {
+            bits &= (1L << (mazeWidth & 63)) - 1;
+        }
+        return bits;
+    }
+    
+    /***************************************************************************
+     * Returns eight tiles of a row as the low bits of an int, with the bits
+     * past the end of the row cleared
+     * @param row The bits of the row
+     * @param group The index of the group of eight tiles
+     * @param mazeWidth The number of tiles in the row
+     */
+    private static int groupBits(long[] row, int group, int mazeWidth) {
+        int bits = (int) (row[group >>> 3] >>> ((group & 7) << 3)) & 0xFF;
+        int remaining = mazeWidth - (group << 3);
+        return remaining >= 8 ? bits : bits & ((1 << remaining) - 1);
+    }
+}
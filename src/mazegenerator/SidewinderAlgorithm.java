@@ -0,0 +1,57 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The sidewinder algorithm: each row is carved as runs of cells joined to
+ * the right, and each run is joined upward from one random cell. The top row
+ * is one long corridor. Only the start of the current run is remembered, so
+ * it needs constant memory beyond the grid and one or two draws per cell.
+ * @author Julian
+ */
+public class SidewinderAlgorithm extends CellMazeAlgorithm {
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        long draws = 0;
+        
+        open(grid, columns, 0, progress);
+        for (int x = 1; x < columns; x++) {
+            join(grid, columns, x, x - 1, progress);
+        }
+        
+        for (int y = 1; y < rows; y++) {
+            int row = y * columns;
+            int runStart = 0;
+            for (int x = 0; x < columns; x++) {
+                if (x == runStart) {
+                    open(grid, columns, row + x, progress);
+                }
+                boolean closeRun = x == columns - 1 || rand.nextBoolean();
+                if (x < columns - 1) {
+                    draws++;
+                }
+                if (closeRun) {
+                    int up = runStart + rand.nextInt(x - runStart + 1);
+                    draws++;
+                    join(grid, columns, row + up, row + up - columns,
+                            progress);
+                    runStart = x + 1;
+                } else {
+                    join(grid, columns, row + x + 1, row + x, progress);
+                }
+            }
+        }
+        counts.randomDraws += draws;
+    }
+    
+    @Override
+    public String getName() {
+        return "Sidewinder";
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * The algorithms a maze can be solved with. All of them find the same path
+ * in a perfect maze; they differ in how much of the maze they visit.
+ * @author Julian
+ */
+public enum SolverAlgorithm {
+    
+    /** Breadth-first search from the start tile */
+    BFS("Breadth-First Search"),
+    
+    /** Breadth-first search from both ends, meeting in the middle */
+    BIDIRECTIONAL_BFS("Bidirectional BFS"),
+    
+    /** A* search with the Manhattan distance to the end as its heuristic */
+    A_STAR("A*"),
+    
+    /** Fills in every dead end until only the solution is left */
+    DEAD_END_FILLING("Dead-End Filling");
+    
+    private final String displayName;
+    
+    SolverAlgorithm(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    /***************************************************************************
+     * Returns the name of the algorithm for menus
+     * @return the name of the algorithm
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
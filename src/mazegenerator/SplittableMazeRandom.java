@@ -0,0 +1,48 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.SplittableRandom;
+
+/**
+ * A MazeRandom backed by java.util.SplittableRandom, which keeps its state
+ * in a plain field instead of the atomic seed java.util.Random updates on
+ * every draw.
+ * @author Julian
+ */
+public class SplittableMazeRandom implements MazeRandom {
+    
+    private final SplittableRandom rand;
+    
+    public SplittableMazeRandom() {
+        rand = new SplittableRandom();
+    }
+    
+    public SplittableMazeRandom(long seed) {
+        rand = new SplittableRandom(seed);
+    }
+    
+    @Override
+    public int nextInt(int bound) {
+        return rand.nextInt(bound);
+    }
+    
+    @Override
+    public boolean nextBoolean() {
+        return rand.nextBoolean();
+    }
+    
+    @Override
+    public long nextLong() {
+        return rand.nextLong();
+    }
+    
+    @Override
+    public MazeRandom withSeed(long seed) {
+        return new SplittableMazeRandom(seed);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Generates a maze one row at a time with Eller's algorithm, handing each
+ * finished tile row to a MazeRowConsumer. Only the current row of cells is
+ * kept, so memory use is proportional to the maze width and any height can be
+ * generated.
+ * <p>
+ * Cells sit on odd x and y values, with the tiles between two cells opened
+ * to join them; every other tile is a wall. The start tile is on the top edge
+ * and the end tile on the bottom edge. When the width or height is even, the
+ * last column or row is an extra wall.
+ * @author Julian
+ */
+public class StreamingMazeGenerator {
+
+    private static final String USAGE = "Usage: --stream <width> <height>"
+            + " <tileSize> <seed> <file.png> [legacy|splittable|xoshiro256]";
+
+    private final int mazeWidth;
+    private final int mazeHeight;
+    private final MazeRandom rand;
+
+    // Number of cells across and down
+    private final int columns;
+    private final int rows;
+
+
+    public StreamingMazeGenerator(int mazeWidth, int mazeHeight,
+            MazeRandom rand) {
+        if (mazeWidth < 3 || mazeHeight < 3) {
+            throw new IllegalArgumentException("Maze must be at least 3x3: "
+                    + mazeWidth + "x" + mazeHeight);
+        }
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+        this.rand = rand;
+
+        columns = (mazeWidth - 1) / 2;
+        rows = (mazeHeight - 1) / 2;
+    }
+
+
+    /***************************************************************************
+     * Generates a maze to a PNG file from command line arguments.
+     * @param args The command line arguments, starting with "--stream"
+     * @return the process exit code
+     */
+    public static int runFromCommandLine(String[] args) {
+        if (args.length != 6 && args.length != 7) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        int width;
+        int height;
+        int tileSize;
+        long seed;
+        RandomAlgorithm algorithm = RandomAlgorithm.LEGACY;
+        try {
+            width = Integer.parseInt(args[1]);
+            height = Integer.parseInt(args[2]);
+            tileSize = Integer.parseInt(args[3]);
+            seed = Long.parseLong(args[4]);
+            if (args.length == 7) {
+                algorithm = RandomAlgorithm.valueOf(
+                        args[6].toUpperCase(Locale.ROOT));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (width < 3 || height < 3 || tileSize <= 0) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try (PngMazeWriter png = new PngMazeWriter(new BufferedOutputStream(
+                new FileOutputStream(new File(args[5]))), width, height,
+                tileSize)) {
+            new StreamingMazeGenerator(width, height,
+                    algorithm.newRandom(seed)).generate(png);
+        } catch (IOException e) {
+            System.err.println("There was an error writing the image to a"
+                    + " file.");
+            return 1;
+        }
+        return 0;
+    }
+
+    /***************************************************************************
+     * Generates the maze, passing each tile row to the consumer from top to
+     * bottom.
+     * @param consumer The consumer of the rows
+     * @throws IOException if the consumer cannot accept a row
+     */
+    public void generate(MazeRowConsumer consumer) throws IOException {
+        long[] row = new long[(mazeWidth + 63) >>> 6];
+
+        // Set of each cell in the current row, and a union-find over the sets
+        int[] set = new int[columns];
+        int[] parent = new int[columns];
+        boolean[] joinRight = new boolean[columns];
+        boolean[] down = new boolean[columns];
+
+        // Per set: cells seen, the cell picked to go down, and if any went down
+        int[] seen = new int[columns];
+        int[] picked = new int[columns];
+        boolean[] hasDown = new boolean[columns];
+        boolean[] used = new boolean[columns];
+
+        for (int i = 0; i < columns; i++) {
+            set[i] = i;
+        }
+
+        // Top edge with the start tile
+        int xStart = 2 * rand.nextInt(columns) + 1;
+        setTile(row, xStart);
+        consumer.acceptRow(0, row);
+
+        for (int j = 0; j < rows; j++) {
+            boolean lastRow = j == rows - 1;
+            for (int i = 0; i < columns; i++) {
+                parent[i] = i;
+            }
+
+            // Join neighboring cells of different sets at random, or always
+            // on the last row so every set ends up joined
+            for (int i = 0; i < columns - 1; i++) {
+                int a = find(parent, set[i]);
+                int b = find(parent, set[i + 1]);
+                joinRight[i] = a != b && (lastRow || rand.nextBoolean());
+                if (joinRight[i]) {
+                    parent[b] = a;
+                }
+            }
+            joinRight[columns - 1] = false;
+
+            Arrays.fill(row, 0L);
+            for (int i = 0; i < columns; i++) {
+                setTile(row, 2 * i + 1);
+                if (joinRight[i]) {
+                    setTile(row, 2 * i + 2);
+                }
+            }
+            consumer.acceptRow(2 * j + 1, row);
+
+            if (lastRow) {
+                break;
+            }
+
+            // Every set needs at least one cell going down, so one cell per
+            // set is picked by reservoir sampling in case none does at random
+            Arrays.fill(seen, 0);
+            Arrays.fill(hasDown, false);
+            for (int i = 0; i < columns; i++) {
+                int s = find(parent, set[i]);
+                set[i] = s;
+                down[i] = rand.nextBoolean();
+                hasDown[s] |= down[i];
+                if (rand.nextInt(++seen[s]) == 0) {
+                    picked[s] = i;
+                }
+            }
+            for (int i = 0; i < columns; i++) {
+                if (!hasDown[set[i]] && picked[set[i]] == i) {
+                    down[i] = true;
+                }
+            }
+
+            // Cells that did not go down start the next row in new sets
+            Arrays.fill(used, false);
+            for (int i = 0; i < columns; i++) {
+                if (down[i]) {
+                    used[set[i]] = true;
+                }
+            }
+            int free = 0;
+            for (int i = 0; i < columns; i++) {
+                if (!down[i]) {
+                    while (used[free]) {
+                        free++;
+                    }
+                    set[i] = free++;
+                }
+            }
+
+            Arrays.fill(row, 0L);
+            for (int i = 0; i < columns; i++) {
+                if (down[i]) {
+                    setTile(row, 2 * i + 1);
+                }
+            }
+            consumer.acceptRow(2 * j + 2, row);
+        }
+
+        // The rest of the rows lead straight down to the end tile
+        int xEnd = 2 * rand.nextInt(columns) + 1;
+        Arrays.fill(row, 0L);
+        setTile(row, xEnd);
+        for (int y = 2 * rows; y < mazeHeight; y++) {
+            consumer.acceptRow(y, row);
+        }
+    }
+
+    private static void setTile(long[] row, int x) {
+        row[x >>> 6] |= 1L << x;
+    }
+
+    private static int find(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a maze as an SVG image one tile row at a time. The image is a white
+ * background with the walls drawn over it as a single black path in tile
+ * units, so its size depends on how many walls the maze has and not on the
+ * tile size, which only sets the width and height of the image.
+ * <p>
+ * Each row's walls are split into horizontal runs. A run that covers exactly
+ * the same tiles as one in the row above extends that run's rectangle
+ * downward instead of starting a new one, so long corridors of wall in
+ * either direction become one rectangle. Only the rectangles still open are
+ * kept, at most one per two tiles of a row, and a rectangle is written as
+ * soon as a row does not continue it.
+ * @author Julian
+ */
+public class SvgMazeWriter implements MazeRowConsumer, Closeable {
+
+    private final Writer out;
+    private final int mazeWidth;
+    private final int mazeHeight;
+
+    // Rectangles continued by the last row, ordered by x: first tile, tile
+    // after the last, and first row
+    private int[] openStart;
+    private int[] openEnd;
+    private int[] openTop;
+    private int openCount;
+
+    // The rectangles the current row is building
+    private int[] nextStart;
+    private int[] nextEnd;
+    private int[] nextTop;
+
+    private final StringBuilder line;
+    private long rectangles;
+
+    // Where the last subpath started, which later moves are relative to
+    private int lastX;
+    private int lastY;
+
+    private int nextRow;
+    private boolean closed;
+
+
+    public SvgMazeWriter(OutputStream out, int mazeWidth, int mazeHeight,
+            int mazeTileSize) throws IOException {
+        if (mazeWidth <= 0 || mazeHeight <= 0 || mazeTileSize <= 0) {
+            throw new IllegalArgumentException("Unsupported maze size: "
+                    + mazeWidth + "x" + mazeHeight + " tiles of "
+                    + mazeTileSize);
+        }
+        this.out = new BufferedWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8));
+        this.mazeWidth = mazeWidth;
+        this.mazeHeight = mazeHeight;
+
+        int maxRuns = (mazeWidth + 1) / 2;
+        openStart = new int[maxRuns];
+        openEnd = new int[maxRuns];
+        openTop = new int[maxRuns];
+        nextStart = new int[maxRuns];
+        nextEnd = new int[maxRuns];
+        nextTop = new int[maxRuns];
+        line = new StringBuilder();
+
+        this.out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""
+                + (long) mazeWidth * mazeTileSize + "\" height=\""
+                + (long) mazeHeight * mazeTileSize + "\" viewBox=\"0 0 "
+                + mazeWidth + " " + mazeHeight
+                + "\" shape-rendering=\"crispEdges\">\n"
+                + "<rect width=\"" + mazeWidth + "\" height=\"" + mazeHeight
+                + "\" fill=\"#fff\"/>\n"
+                + "<path fill=\"#000\" d=\"");
+    }
+
+    /***************************************************************************
+     * Writes a whole maze as an SVG image and closes the stream
+     * @param maze The maze to write
+     * @param out The stream to write to
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Maze maze, OutputStream out) throws IOException {
+        try (SvgMazeWriter svg = new SvgMazeWriter(out, maze.getMazeWidth(),
+                maze.getMazeHeight(), maze.mazeTileSize)) {
+            maze.writeRows(svg);
+        }
+    }
+
+    /***************************************************************************
+     * Adds the walls of the next tile row of the maze, writing the rectangles
+     * that this row ends
+     * @param y The y value of the row, which must follow the previous row
+     * @param row The path bits of the row
+     * @throws IOException if the row cannot be written
+     */
+    @Override
+    public void acceptRow(int y, long[] row) throws IOException {
+        if (y != nextRow || y >= mazeHeight) {
+            throw new IllegalStateException("Expected row " + nextRow
+                    + " but got row " + y);
+        }
+
+        // Walk the wall runs of this row and the open rectangles together;
+        // both are ordered by x
+        int count = 0;
+        int open = 0;
+        int x = 0;
+        while (x < mazeWidth) {
+            x = nextRun(row, x, false);
+            if (x >= mazeWidth) {
+                break;
+            }
+            int end = nextRun(row, x, true);
+
+            while (open < openCount && openStart[open] < x) {
+                appendRectangle(open++, y);
+            }
+            int top = y;
+            if (open < openCount && openStart[open] == x
+                    && openEnd[open] == end) {
+                top = openTop[open++];
+            }
+            nextStart[count] = x;
+            nextEnd[count] = end;
+            nextTop[count] = top;
+            count++;
+            x = end;
+        }
+        while (open < openCount) {
+            appendRectangle(open++, y);
+        }
+        flushLine();
+
+        int[] swap = openStart;
+        openStart = nextStart;
+        nextStart = swap;
+        swap = openEnd;
+        openEnd = nextEnd;
+        nextEnd = swap;
+        swap = openTop;
+        openTop = nextTop;
+        nextTop = swap;
+        openCount = count;
+        nextRow++;
+    }
+
+    /***************************************************************************
+     * Writes the rectangles still open, finishes the image and closes the
+     * underlying stream.
+     * @throws IOException if the image cannot be finished, or if fewer rows
+     * than the maze height were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            for (int i = 0; i < openCount; i++) {
+                appendRectangle(i, nextRow);
+            }
+            flushLine();
+            out.write("\"/>\n</svg>\n");
+        } finally {
+            out.close();
+        }
+        if (nextRow != mazeHeight) {
+            throw new IOException("Only " + nextRow + " of " + mazeHeight
+                    + " rows were written");
+        }
+    }
+
+    /***************************************************************************
+     * Returns the number of rectangles written so far
+     * @return the number of rectangles written
+     */
+    public long getRectangles() {
+        return rectangles;
+    }
+
+    /***************************************************************************
+     * Adds an open rectangle to the path as a closed subpath. The move to it
+     * is relative to the last rectangle, which keeps the numbers short.
+     * @param open The index of the open rectangle
+     * @param bottom The row after the rectangle's last row
+     */
+    private void appendRectangle(int open, int bottom) {
+        int x = openStart[open];
+        int y = openTop[open];
+        int width = openEnd[open] - x;
+        line.append('m').append(x - lastX).append(' ').append(y - lastY)
+                .append('h').append(width)
+                .append('v').append(bottom - y)
+                .append('h').append(-width).append('z');
+        lastX = x;
+        lastY = y;
+        rectangles++;
+    }
+
+    private void flushLine() throws IOException {
+        if (line.length() > 0) {
+            line.append('\n');
+            out.append(line);
+            line.setLength(0);
+        }
+    }
+
+    /***************************************************************************
+     * Finds the next tile at or after x that is a path, or a wall
+     * @param row The path bits of the row
+     * @param x The x value to search from
+     * @param path True to find a path tile, false to find a wall tile
+     * @return the x value of the tile found, or at least mazeWidth if none
+     */
+    private int nextRun(long[] row, int x, boolean path) {
+        int word = x >>> 6;
+        long bits = (path ? row[word] : ~row[word]) & (-1L << x);
+        while (bits == 0) {
+            if (++word << 6 >= mazeWidth) {
+                return mazeWidth;
+            }
+            bits = path ? row[word] : ~row[word];
+        }
+        return Math.min(mazeWidth, (word << 6)
+                + Long.numberOfTrailingZeros(bits));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+/**
+ * Wilson's algorithm: loop-erased random walks from each cell not yet in the
+ * maze until the walk reaches the maze, then the walk is added. Every
+ * spanning tree is equally likely, so the maze has no bias, at the cost of
+ * long walks while the maze is still small. A walk remembers one int per
+ * cell, the cell it last stepped to from there, which erases loops for free.
+ * @author Julian
+ */
+public class WilsonAlgorithm extends CellMazeAlgorithm {
+    
+    @Override
+    void carveCells(MazeGrid grid, int columns, int rows, MazeRandom rand,
+            GenerationMetrics counts, CarveProgress progress) {
+        int cells = columns * rows;
+        int[] next = new int[cells];
+        int[] neighbors = new int[4];
+        long draws = 1;
+        
+        open(grid, columns, rand.nextInt(cells), progress);
+        
+        for (int from = 0; from < cells; from++) {
+            if (isOpen(grid, columns, from)) {
+                continue;
+            }
+            
+            // Walk until the maze is reached, overwriting the step taken out
+            // of each cell so that only the last exit from a loop is kept
+            int cell = from;
+            while (!isOpen(grid, columns, cell)) {
+                int n = neighbors(cell, columns, rows, neighbors);
+                int step = neighbors[rand.nextInt(n)];
+                draws++;
+                next[cell] = step;
+                cell = step;
+            }
+            
+            // Add the loop-erased walk to the maze
+            for (cell = from; !isOpen(grid, columns, cell);
+                    cell = next[cell]) {
+                join(grid, columns, cell, next[cell], progress);
+            }
+        }
+        counts.randomDraws += draws;
+    }
+    
+    @Override
+    public String getName() {
+        return "Wilson";
+    }
+}
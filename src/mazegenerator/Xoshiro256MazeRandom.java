@@ -0,0 +1,91 @@
+/*
+ * This program, if distributed by its author to the public as source code,
+ * can be used if credit is given to its author and any project or program
+ * released with the source code is released under the same stipulations.
+ */
+
+package mazegenerator;
+
+import java.util.SplittableRandom;
+
+/**
+ * A MazeRandom using the xoshiro256** generator by Blackman and Vigna. The
+ * 256 bit state is filled from the seed with SplitMix64.
+ * @author Julian
+ */
+public class Xoshiro256MazeRandom implements MazeRandom {
+    
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+    
+    public Xoshiro256MazeRandom() {
+        this(new SplittableRandom().nextLong());
+    }
+    
+    public Xoshiro256MazeRandom(long seed) {
+        long x = seed;
+        s0 = splitMix64(x += 0x9E3779B97F4A7C15L);
+        s1 = splitMix64(x += 0x9E3779B97F4A7C15L);
+        s2 = splitMix64(x += 0x9E3779B97F4A7C15L);
+        s3 = splitMix64(x + 0x9E3779B97F4A7C15L);
+    }
+    
+    /***************************************************************************
+     * Scrambles a value with the SplitMix64 finalizer
+     * @param z The value to scramble
+     * @return the scrambled value
+     */
+    static long splitMix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+    
+    /***************************************************************************
+     * Returns a uniformly distributed int using Lemire's multiply and shift
+     * method, which only needs a division on the rare rejected draw.
+     * @param bound The upper bound (exclusive), which must be positive
+     * @return a value between 0 (inclusive) and bound (exclusive)
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        long product = (nextLong() >>> 32) * bound;
+        int low = (int) product;
+        if (Integer.compareUnsigned(low, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(low, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+                low = (int) product;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+    
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+    
+    @Override
+    public MazeRandom withSeed(long seed) {
+        return new Xoshiro256MazeRandom(seed);
+    }
+}